@@ -0,0 +1,63 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.bench;
+
+import com.t_oster.liblasercut.LaserJob;
+import com.t_oster.liblasercut.LaserProperty;
+import com.t_oster.visicut.model.LaserProfile;
+import com.t_oster.visicut.model.graphicelements.GraphicSet;
+import java.util.List;
+
+/**
+ * Measures LaserProfile.addToLaserJob on a whole document,
+ * i.e. rendering and dithering for raster profiles and flattening
+ * and optimizing for vector profiles.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class AddToLaserJobBenchmark extends Benchmark
+{
+
+  private LaserProfile profile;
+  private int parts;
+  private GraphicSet objects;
+  private List<LaserProperty> properties;
+
+  public AddToLaserJobBenchmark(LaserProfile profile, int parts)
+  {
+    super(profile.getClass().getSimpleName() + ".addToLaserJob[" + 4 * parts + " elements]");
+    this.profile = profile;
+    this.parts = parts;
+  }
+
+  @Override
+  public void setUp() throws Exception
+  {
+    objects = SampleDocuments.importSvg(parts);
+    properties = SampleDocuments.getLaserProperties();
+  }
+
+  @Override
+  public Object run() throws Exception
+  {
+    LaserJob job = new LaserJob("benchmark", "benchmark", "visicut");
+    profile.addToLaserJob(job, objects, properties);
+    return job;
+  }
+}
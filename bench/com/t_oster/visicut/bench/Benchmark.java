@@ -0,0 +1,60 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.bench;
+
+/**
+ * A single benchmark, measured by the BenchmarkRunner.
+ * 
+ * setUp is called once before the warmup, run is called repeatedly
+ * and only its execution time is measured. Whatever run returns is
+ * consumed by the runner, so the JIT can not eliminate the work.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public abstract class Benchmark
+{
+
+  private String name;
+
+  public Benchmark(String name)
+  {
+    this.name = name;
+  }
+
+  public String getName()
+  {
+    return name;
+  }
+
+  public void setUp() throws Exception
+  {
+  }
+
+  public abstract Object run() throws Exception;
+
+  public void tearDown() throws Exception
+  {
+  }
+
+  @Override
+  public String toString()
+  {
+    return name;
+  }
+}
@@ -0,0 +1,330 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.bench;
+
+import com.t_oster.visicut.model.Raster3dProfile;
+import com.t_oster.visicut.model.RasterProfile;
+import com.t_oster.visicut.model.VectorProfile;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks of the hot paths of VisiCut.
+ * 
+ * Each benchmark is warmed up for some iterations, then measured for
+ * some iterations. An iteration calls the benchmark until the iteration
+ * time is over and yields the average time per call. The result is the
+ * mean and the standard deviation over the measured iterations.
+ * 
+ * Results can be saved and compared against a saved baseline. If a
+ * benchmark got slower than the threshold, the exit code is 1.
+ * 
+ * Usage: BenchmarkRunner [options] [regex...]
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class BenchmarkRunner
+{
+
+  private static volatile int sink = 0;
+  private int warmupIterations = 3;
+  private int iterations = 5;
+  private long iterationTime = 1000;
+
+  public static List<Benchmark> getBenchmarks()
+  {
+    List<Benchmark> result = new LinkedList<Benchmark>();
+    int[] sizes = new int[]{25, 400};
+    for (int parts : sizes)
+    {
+      result.add(new SVGImportBenchmark(parts));
+    }
+    for (int parts : sizes)
+    {
+      result.add(new FilterSetBenchmark(parts));
+      result.add(new UnmatchedObjectsBenchmark(parts));
+    }
+    for (int parts : sizes)
+    {
+      result.add(new AddToLaserJobBenchmark(new RasterProfile(), parts));
+      result.add(new AddToLaserJobBenchmark(new Raster3dProfile(), parts));
+      result.add(new AddToLaserJobBenchmark(new VectorProfile(), parts));
+      result.add(new RenderedPreviewBenchmark(new RasterProfile(), parts));
+      result.add(new RenderedPreviewBenchmark(new Raster3dProfile(), parts));
+    }
+    for (int parts : sizes)
+    {
+      result.add(new PreviewPanelBenchmark(parts));
+    }
+    return result;
+  }
+
+  public void setWarmupIterations(int warmupIterations)
+  {
+    this.warmupIterations = warmupIterations;
+  }
+
+  public void setIterations(int iterations)
+  {
+    this.iterations = iterations;
+  }
+
+  public void setIterationTime(long iterationTime)
+  {
+    this.iterationTime = iterationTime;
+  }
+
+  /**
+   * Runs the benchmark for one iteration
+   * @return the average time per call in ns
+   */
+  private double iteration(Benchmark b) throws Exception
+  {
+    long ops = 0;
+    long start = System.nanoTime();
+    long end = start + iterationTime * 1000000L;
+    long now;
+    do
+    {
+      Object result = b.run();
+      sink ^= System.identityHashCode(result);
+      ops++;
+      now = System.nanoTime();
+    }
+    while (now < end);
+    return (double) (now - start) / ops;
+  }
+
+  /**
+   * Measures the given benchmark
+   * @return mean and standard deviation of the time per call in ns
+   */
+  public double[] measure(Benchmark b) throws Exception
+  {
+    b.setUp();
+    try
+    {
+      for (int i = 0; i < warmupIterations; i++)
+      {
+        iteration(b);
+      }
+      double[] times = new double[iterations];
+      double sum = 0;
+      for (int i = 0; i < iterations; i++)
+      {
+        times[i] = iteration(b);
+        sum += times[i];
+      }
+      double mean = sum / iterations;
+      double var = 0;
+      for (double t : times)
+      {
+        var += (t - mean) * (t - mean);
+      }
+      double dev = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+      return new double[]{mean, dev};
+    }
+    finally
+    {
+      b.tearDown();
+      System.gc();
+    }
+  }
+
+  private static String format(double ns)
+  {
+    if (ns >= 1000000)
+    {
+      return String.format("%.3f ms", ns / 1000000);
+    }
+    else if (ns >= 1000)
+    {
+      return String.format("%.3f us", ns / 1000);
+    }
+    return String.format("%.1f ns", ns);
+  }
+
+  private static Map<String, Double> loadResults(File f) throws IOException
+  {
+    Map<String, Double> result = new LinkedHashMap<String, Double>();
+    BufferedReader r = new BufferedReader(new FileReader(f));
+    try
+    {
+      String line;
+      while ((line = r.readLine()) != null)
+      {
+        String[] cols = line.split("\t");
+        if (cols.length >= 2 && !line.startsWith("#"))
+        {
+          result.put(cols[0], Double.parseDouble(cols[1]));
+        }
+      }
+    }
+    finally
+    {
+      r.close();
+    }
+    return result;
+  }
+
+  private static void printUsage()
+  {
+    System.out.println("Usage: BenchmarkRunner [options] [regex...]");
+    System.out.println("Runs all benchmarks whose name contains one of the regular expressions");
+    System.out.println(" -l\t\t\tlist the benchmarks and exit");
+    System.out.println(" -wi <n>\t\twarmup iterations (default 3)");
+    System.out.println(" -i <n>\t\t\tmeasured iterations (default 5)");
+    System.out.println(" -r <ms>\t\ttime per iteration (default 1000)");
+    System.out.println(" -o <file>\t\tsave the results to file");
+    System.out.println(" -b <file>\t\tcompare against the results saved in file");
+    System.out.println(" -t <percent>\t\tmaximal slowdown against the baseline (default 20)");
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    BenchmarkRunner runner = new BenchmarkRunner();
+    List<Pattern> filters = new LinkedList<Pattern>();
+    File output = null;
+    File baselineFile = null;
+    double threshold = 20;
+    boolean list = false;
+    for (int i = 0; i < args.length; i++)
+    {
+      String a = args[i];
+      if ("-l".equals(a))
+      {
+        list = true;
+      }
+      else if ("-wi".equals(a) && i + 1 < args.length)
+      {
+        runner.setWarmupIterations(Integer.parseInt(args[++i]));
+      }
+      else if ("-i".equals(a) && i + 1 < args.length)
+      {
+        runner.setIterations(Integer.parseInt(args[++i]));
+      }
+      else if ("-r".equals(a) && i + 1 < args.length)
+      {
+        runner.setIterationTime(Long.parseLong(args[++i]));
+      }
+      else if ("-o".equals(a) && i + 1 < args.length)
+      {
+        output = new File(args[++i]);
+      }
+      else if ("-b".equals(a) && i + 1 < args.length)
+      {
+        baselineFile = new File(args[++i]);
+      }
+      else if ("-t".equals(a) && i + 1 < args.length)
+      {
+        threshold = Double.parseDouble(args[++i]);
+      }
+      else if (a.startsWith("-"))
+      {
+        printUsage();
+        System.exit("-h".equals(a) || "--help".equals(a) ? 0 : 2);
+      }
+      else
+      {
+        filters.add(Pattern.compile(a));
+      }
+    }
+    List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+    for (Benchmark b : getBenchmarks())
+    {
+      boolean matches = filters.isEmpty();
+      for (Pattern p : filters)
+      {
+        matches |= p.matcher(b.getName()).find();
+      }
+      if (matches)
+      {
+        benchmarks.add(b);
+      }
+    }
+    if (list)
+    {
+      for (Benchmark b : benchmarks)
+      {
+        System.out.println(b.getName());
+      }
+      return;
+    }
+    Map<String, Double> baseline = baselineFile != null ? loadResults(baselineFile) : null;
+    Map<String, double[]> results = new LinkedHashMap<String, double[]>();
+    boolean failed = false;
+    for (Benchmark b : benchmarks)
+    {
+      System.out.print(b.getName() + ": ");
+      System.out.flush();
+      try
+      {
+        double[] r = runner.measure(b);
+        results.put(b.getName(), r);
+        System.out.print(format(r[0]) + "/op +- " + format(r[1]));
+        Double base = baseline != null ? baseline.get(b.getName()) : null;
+        if (base != null)
+        {
+          double change = 100 * (r[0] - base) / base;
+          System.out.print(String.format(" (%+.1f%%)", change));
+          if (change > threshold)
+          {
+            System.out.print(" REGRESSION");
+            failed = true;
+          }
+        }
+        System.out.println();
+      }
+      catch (Exception ex)
+      {
+        System.out.println("FAILED");
+        Logger.getLogger(BenchmarkRunner.class.getName()).log(Level.SEVERE, null, ex);
+        failed = true;
+      }
+    }
+    if (output != null)
+    {
+      PrintWriter w = new PrintWriter(new FileWriter(output));
+      try
+      {
+        w.println("#benchmark\tmean ns/op\tstddev ns/op");
+        for (Map.Entry<String, double[]> e : results.entrySet())
+        {
+          w.println(e.getKey() + "\t" + e.getValue()[0] + "\t" + e.getValue()[1]);
+        }
+      }
+      finally
+      {
+        w.close();
+      }
+    }
+    System.exit(failed ? 1 : 0);
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.bench;
+
+import com.t_oster.visicut.VisicutModel;
+import com.t_oster.visicut.gui.beans.PreviewPanel;
+import com.t_oster.visicut.model.PlfPart;
+import com.t_oster.visicut.model.Raster3dProfile;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Measures painting the PreviewPanel into an offscreen image
+ * once the raster previews are rendered, i.e. what happens on
+ * every repaint while moving or zooming.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class PreviewPanelBenchmark extends Benchmark
+{
+
+  private static final int WIDTH = 1200;
+  private static final int HEIGHT = 600;
+  /**
+   * Maximal time to wait for the background rendering in ms
+   */
+  private static final long RENDER_TIMEOUT = 60000;
+  private int parts;
+  private PlfPart part;
+  private PreviewPanel panel;
+  private BufferedImage buffer;
+
+  public PreviewPanelBenchmark(int parts)
+  {
+    super("PreviewPanel.paintComponent[" + 4 * parts + " elements]");
+    this.parts = parts;
+  }
+
+  @Override
+  public void setUp() throws Exception
+  {
+    part = SampleDocuments.getPlfPart(parts, SampleDocuments.getMappingSet(new Raster3dProfile()));
+    VisicutModel model = VisicutModel.getInstance();
+    model.setMaterial(SampleDocuments.getMaterial());
+    model.getPlfFile().add(part);
+    panel = new PreviewPanel();
+    panel.setDoubleBuffered(false);
+    panel.setAreaSize(new Point2D.Double(part.getBoundingBox().getMaxX(), part.getBoundingBox().getMaxY()));
+    panel.setPreferredSize(new Dimension(WIDTH, HEIGHT));
+    panel.setSize(WIDTH, HEIGHT);
+    buffer = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    //the first paint starts rendering the raster previews
+    this.run();
+    long timeout = System.currentTimeMillis() + RENDER_TIMEOUT;
+    while (!panel.isRenderingFinished())
+    {
+      if (System.currentTimeMillis() > timeout)
+      {
+        throw new Exception("Preview was not rendered within " + RENDER_TIMEOUT + "ms");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @Override
+  public Object run() throws Exception
+  {
+    Graphics2D g = buffer.createGraphics();
+    try
+    {
+      panel.paint(g);
+    }
+    finally
+    {
+      g.dispose();
+    }
+    return buffer;
+  }
+
+  @Override
+  public void tearDown() throws Exception
+  {
+    VisicutModel model = VisicutModel.getInstance();
+    model.removePropertyChangeListener(panel);
+    model.getPlfFile().clear();
+    model.setMaterial(null);
+    panel.clearCache();
+  }
+}
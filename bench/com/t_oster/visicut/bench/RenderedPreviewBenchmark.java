@@ -0,0 +1,74 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.bench;
+
+import com.t_oster.visicut.model.LaserProfile;
+import com.t_oster.visicut.model.MaterialProfile;
+import com.t_oster.visicut.model.Raster3dProfile;
+import com.t_oster.visicut.model.RasterProfile;
+import com.t_oster.visicut.model.graphicelements.GraphicSet;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Measures getRenderedPreview of RasterProfile and Raster3dProfile
+ * at a typical zoom level of the preview.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class RenderedPreviewBenchmark extends Benchmark
+{
+
+  /**
+   * Pixels per mm in the preview
+   */
+  private static final double SCALE = 4;
+  private LaserProfile profile;
+  private int parts;
+  private GraphicSet objects;
+  private MaterialProfile material;
+  private AffineTransform mm2px = AffineTransform.getScaleInstance(SCALE, SCALE);
+
+  public RenderedPreviewBenchmark(LaserProfile profile, int parts)
+  {
+    super(profile.getClass().getSimpleName() + ".getRenderedPreview[" + 4 * parts + " elements]");
+    if (!(profile instanceof RasterProfile || profile instanceof Raster3dProfile))
+    {
+      throw new IllegalArgumentException("Only raster profiles render previews");
+    }
+    this.profile = profile;
+    this.parts = parts;
+  }
+
+  @Override
+  public void setUp() throws Exception
+  {
+    objects = SampleDocuments.importSvg(parts);
+    material = SampleDocuments.getMaterial();
+  }
+
+  @Override
+  public Object run() throws Exception
+  {
+    if (profile instanceof RasterProfile)
+    {
+      return ((RasterProfile) profile).getRenderedPreview(objects, material, mm2px);
+    }
+    return ((Raster3dProfile) profile).getRenderedPreview(objects, material, mm2px, null);
+  }
+}
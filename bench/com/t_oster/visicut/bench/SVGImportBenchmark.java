@@ -0,0 +1,56 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.bench;
+
+import com.t_oster.visicut.model.graphicelements.svgsupport.SVGImporter;
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Measures SVGImporter.importSetFromFile with a new importer
+ * for each run, as VisiCut does when loading a file.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class SVGImportBenchmark extends Benchmark
+{
+
+  private int parts;
+  private File file;
+
+  public SVGImportBenchmark(int parts)
+  {
+    super("SVGImporter.importSetFromFile[" + 4 * parts + " elements]");
+    this.parts = parts;
+  }
+
+  @Override
+  public void setUp() throws Exception
+  {
+    file = SampleDocuments.getSvg(parts);
+  }
+
+  @Override
+  public Object run() throws Exception
+  {
+    List<String> warnings = new LinkedList<String>();
+    return new SVGImporter().importSetFromFile(file, warnings);
+  }
+}
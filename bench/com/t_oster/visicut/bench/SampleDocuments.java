@@ -0,0 +1,192 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.bench;
+
+import com.t_oster.liblasercut.LaserProperty;
+import com.t_oster.liblasercut.PowerSpeedFocusFrequencyProperty;
+import com.t_oster.visicut.model.LaserProfile;
+import com.t_oster.visicut.model.MaterialProfile;
+import com.t_oster.visicut.model.PlfPart;
+import com.t_oster.visicut.model.RasterProfile;
+import com.t_oster.visicut.model.VectorProfile;
+import com.t_oster.visicut.model.graphicelements.GraphicSet;
+import com.t_oster.visicut.model.graphicelements.svgsupport.SVGImporter;
+import com.t_oster.visicut.model.mapping.FilterSet;
+import com.t_oster.visicut.model.mapping.Mapping;
+import com.t_oster.visicut.model.mapping.MappingFilter;
+import com.t_oster.visicut.model.mapping.MappingSet;
+import java.awt.Color;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Generates the SVG documents and mappings the benchmarks work on.
+ * 
+ * The documents look like typical laser cutter jobs: Rows of parts
+ * in (nested and transformed) groups, each with a red cut outline,
+ * blue marked curves and a black filled area to engrave.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class SampleDocuments
+{
+
+  public static final Color CUT = Color.RED;
+  public static final Color MARK = Color.BLUE;
+  public static final Color ENGRAVE = Color.BLACK;
+
+  private static File folder = null;
+
+  private static synchronized File getFolder() throws IOException
+  {
+    if (folder == null)
+    {
+      folder = File.createTempFile("visicut-bench", "");
+      folder.delete();
+      if (!folder.mkdirs())
+      {
+        throw new IOException("Can't create " + folder);
+      }
+      folder.deleteOnExit();
+    }
+    return folder;
+  }
+
+  /**
+   * Returns an SVG file with the given number of parts. Each part
+   * consists of 4 elements, so the document has 4*parts elements.
+   * Parts are grouped in rows, rows in one outer layer.
+   */
+  public static File getSvg(int parts) throws IOException
+  {
+    File result = new File(getFolder(), "parts-" + parts + ".svg");
+    if (result.exists())
+    {
+      return result;
+    }
+    int columns = (int) Math.ceil(Math.sqrt(parts));
+    double size = 20;
+    double width = columns * size;
+    double height = Math.ceil((double) parts / columns) * size;
+    PrintWriter w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(result), "UTF-8"));
+    try
+    {
+      w.println("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+      w.println("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "mm\" height=\"" + height + "mm\" viewBox=\"0 0 " + width + " " + height + "\">");
+      w.println("<g id=\"layer1\">");
+      for (int i = 0; i < parts; i++)
+      {
+        int col = i % columns;
+        int row = i / columns;
+        if (col == 0)
+        {
+          w.println("<g id=\"row" + row + "\" transform=\"translate(0," + (row * size) + ")\">");
+        }
+        double angle = Math.toRadians(i * 7 % 90);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        w.println("<g id=\"part" + i + "\" transform=\"matrix(" + cos + "," + sin + "," + (-sin) + "," + cos + "," + (col * size + size / 2) + "," + (size / 2) + ")\">");
+        w.println("<rect x=\"-8\" y=\"-8\" width=\"16\" height=\"16\" rx=\"2\" style=\"fill:none;stroke:#ff0000;stroke-width:0.1\"/>");
+        w.println("<circle cx=\"0\" cy=\"0\" r=\"3\" style=\"fill:none;stroke:#ff0000;stroke-width:0.1\"/>");
+        w.println("<path d=\"M -6,4 C -4,0 -2,8 0,4 S 4,0 6,4\" style=\"fill:none;stroke:#0000ff;stroke-width:0.1\"/>");
+        w.println("<path d=\"M -6,-6 L -1,-6 L -1,-4 L -4,-4 L -4,-1 L -6,-1 Z\" style=\"fill:#000000;stroke:none\"/>");
+        w.println("</g>");
+        if (col == columns - 1 || i == parts - 1)
+        {
+          w.println("</g>");
+        }
+      }
+      w.println("</g>");
+      w.println("</svg>");
+    }
+    finally
+    {
+      w.close();
+    }
+    result.deleteOnExit();
+    return result;
+  }
+
+  public static GraphicSet importSvg(int parts) throws Exception
+  {
+    List<String> warnings = new LinkedList<String>();
+    return new SVGImporter().importSetFromFile(getSvg(parts), warnings);
+  }
+
+  public static FilterSet getFilterSet(String attribute, Object value)
+  {
+    FilterSet result = new FilterSet();
+    result.add(new MappingFilter(attribute, value));
+    return result;
+  }
+
+  /**
+   * Returns a mapping like the default ones: Engrave the black
+   * filled areas, mark the blue and cut the red lines. The given
+   * profile is used for everything else.
+   */
+  public static MappingSet getMappingSet(LaserProfile rest)
+  {
+    MappingSet result = new MappingSet();
+    result.setName("benchmark");
+    RasterProfile engrave = new RasterProfile();
+    engrave.setName("engrave");
+    result.add(new Mapping(getFilterSet("Fill Color", ENGRAVE), engrave));
+    VectorProfile mark = new VectorProfile();
+    mark.setName("mark");
+    mark.setIsCut(false);
+    result.add(new Mapping(getFilterSet("Stroke Color", MARK), mark));
+    VectorProfile cut = new VectorProfile();
+    cut.setName("cut");
+    result.add(new Mapping(getFilterSet("Stroke Color", CUT), cut));
+    result.add(new Mapping(null, rest));
+    return result;
+  }
+
+  public static PlfPart getPlfPart(int parts, MappingSet mapping) throws Exception
+  {
+    PlfPart result = new PlfPart();
+    result.setSourceFile(getSvg(parts));
+    result.setGraphicObjects(importSvg(parts));
+    result.setMapping(mapping);
+    return result;
+  }
+
+  public static MaterialProfile getMaterial()
+  {
+    MaterialProfile result = new MaterialProfile();
+    result.setName("benchmark");
+    result.setColor(new Color(220, 190, 140));
+    result.setEngraveColor(new Color(90, 60, 30));
+    result.setCutColor(Color.WHITE);
+    return result;
+  }
+
+  public static List<LaserProperty> getLaserProperties()
+  {
+    List<LaserProperty> result = new LinkedList<LaserProperty>();
+    result.add(new PowerSpeedFocusFrequencyProperty());
+    return result;
+  }
+}
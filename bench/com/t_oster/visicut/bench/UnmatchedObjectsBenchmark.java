@@ -0,0 +1,53 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.bench;
+
+import com.t_oster.visicut.model.PlfPart;
+import com.t_oster.visicut.model.VectorProfile;
+
+/**
+ * Measures PlfPart.getUnmatchedObjects with the default like mapping
+ * from SampleDocuments.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class UnmatchedObjectsBenchmark extends Benchmark
+{
+
+  private int parts;
+  private PlfPart part;
+
+  public UnmatchedObjectsBenchmark(int parts)
+  {
+    super("PlfPart.getUnmatchedObjects[" + 4 * parts + " elements]");
+    this.parts = parts;
+  }
+
+  @Override
+  public void setUp() throws Exception
+  {
+    part = SampleDocuments.getPlfPart(parts, SampleDocuments.getMappingSet(new VectorProfile()));
+  }
+
+  @Override
+  public Object run() throws Exception
+  {
+    return part.getUnmatchedObjects();
+  }
+}
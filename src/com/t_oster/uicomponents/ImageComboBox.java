@@ -27,6 +27,7 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.swing.Icon;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JList;
@@ -62,17 +63,14 @@ public class ImageComboBox extends JComboBox
 
           ImageListable item = (ImageListable) o;
           String label = "<html><table cellpadding=3><tr>";
+          Icon icon = null;
           if (item.getThumbnailPath() != null)
           {
-            File f = new File(item.getThumbnailPath());
-            if (f.exists())
-            {
-              label += "<td height=80>"+Helper.imgTag(f,64,64)+"</td>";
-            }
+            icon = ThumbnailCache.getInstance().getIcon(new File(item.getThumbnailPath()), 64, 64);
           }
           if (ImageComboBox.this.isDisabled(o))
           {
-            label += "<td width=3><td>";
+            label += "<td>";
             label += "<font color=" + Helper.toHtmlRGB((Color) UIManager.get("ComboBox.disabledForeground")) + ">";
             label += item.toString() + "<br/>" + ImageComboBox.this.disableReasons.get(o) + "</font></td></tr></table></html>";
             l.setFocusable(false);
@@ -80,8 +78,10 @@ public class ImageComboBox extends JComboBox
           }
           else
           {
-            label += "</td><td width=3><td>" + item.toString() + "</td></tr></table></html>";
+            label += "<td>" + item.toString() + "</td></tr></table></html>";
           }
+          l.setIcon(icon);
+          l.setDisabledIcon(icon);
           l.setText(label);
           l.setToolTipText(item.getDescription());
         }
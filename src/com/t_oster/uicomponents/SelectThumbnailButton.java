@@ -28,6 +28,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.File;
 import java.io.FilenameFilter;
+import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
 import javax.swing.JMenuItem;
@@ -147,17 +148,21 @@ public class SelectThumbnailButton extends JButton implements ActionListener
     firePropertyChange(PROP_THUMBNAILPATH, oldThumbnailPath, thumbnailPath);
     if (thumbnailPath == null)
     {
-      this.setText("<html><table cellpadding=3><tr><td>"+Helper.imgTag(this.getClass().getResource("resources/no-image.png"), 64, 64)+"</td></tr></table></html>");
+      this.setIcon(ThumbnailCache.getInstance().getIcon(this.getClass().getResource("resources/no-image.png"), 64, 64));
+      this.setText(null);
     }
     else
     {
       File f = new File(thumbnailPath);
-      if (f.exists())
+      ImageIcon icon = f.exists() ? ThumbnailCache.getInstance().getIcon(f, 64, 64) : null;
+      if (icon != null)
       {
-        this.setText("<html><table cellpadding=3><tr><td>"+Helper.imgTag(f, 64, 64)+"</td></tr></table></html>");
+        this.setIcon(icon);
+        this.setText(null);
       }
       else
       {
+        this.setIcon(null);
         this.setText(java.util.ResourceBundle.getBundle("com/t_oster/uicomponents/resources/SelectThumbnailButton").getString("FILE NOT FOUND"));
       }
     }
@@ -0,0 +1,220 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.uicomponents;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.ImageIcon;
+
+/**
+ * Decodes thumbnails once at the size they are displayed and keeps
+ * the resulting icons in a bounded LRU cache, so list and combo box
+ * renderers do not have to load and scale the full image on every
+ * repaint. Entries of files are keyed by path and modification time,
+ * so replacing a thumbnail on disk is picked up on the next lookup.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class ThumbnailCache
+{
+
+  private static final int MAX_ENTRIES = 256;
+
+  private static ThumbnailCache instance = null;
+
+  public static synchronized ThumbnailCache getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new ThumbnailCache();
+    }
+    return instance;
+  }
+
+  private static class Entry
+  {
+    long lastModified;
+    long length;
+    ImageIcon icon;
+  }
+
+  private final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+  {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+    {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private ThumbnailCache()
+  {
+  }
+
+  /**
+   * Returns the image in the given file scaled to fit into
+   * width x height (keeping its aspect ratio and centered), or null
+   * if the file does not exist or can not be decoded
+   */
+  public ImageIcon getIcon(File f, int width, int height)
+  {
+    if (f == null || !f.isFile())
+    {
+      return null;
+    }
+    String key = f.getAbsolutePath() + "@" + width + "x" + height;
+    long lastModified = f.lastModified();
+    long length = f.length();
+    synchronized (cache)
+    {
+      Entry e = cache.get(key);
+      if (e != null && e.lastModified == lastModified && e.length == length)
+      {
+        return e.icon;
+      }
+    }
+    Entry e = new Entry();
+    e.lastModified = lastModified;
+    e.length = length;
+    try
+    {
+      ImageInputStream in = ImageIO.createImageInputStream(f);
+      e.icon = load(in, width, height);
+    }
+    catch (IOException ex)
+    {
+      Logger.getLogger(ThumbnailCache.class.getName()).log(Level.WARNING, "Could not load thumbnail " + f, ex);
+    }
+    synchronized (cache)
+    {
+      cache.put(key, e);
+    }
+    return e.icon;
+  }
+
+  /**
+   * Same as getIcon(File, int, int) for resources, which are
+   * assumed not to change while the application is running
+   */
+  public ImageIcon getIcon(URL u, int width, int height)
+  {
+    if (u == null)
+    {
+      return null;
+    }
+    String key = u.toExternalForm() + "@" + width + "x" + height;
+    synchronized (cache)
+    {
+      Entry e = cache.get(key);
+      if (e != null)
+      {
+        return e.icon;
+      }
+    }
+    Entry e = new Entry();
+    try
+    {
+      //closing the ImageInputStream does not close the stream it wraps
+      InputStream stream = u.openStream();
+      try
+      {
+        e.icon = load(ImageIO.createImageInputStream(stream), width, height);
+      }
+      finally
+      {
+        stream.close();
+      }
+    }
+    catch (IOException ex)
+    {
+      Logger.getLogger(ThumbnailCache.class.getName()).log(Level.WARNING, "Could not load thumbnail " + u, ex);
+    }
+    synchronized (cache)
+    {
+      cache.put(key, e);
+    }
+    return e.icon;
+  }
+
+  private static ImageIcon load(ImageInputStream in, int width, int height) throws IOException
+  {
+    if (in == null)
+    {
+      return null;
+    }
+    try
+    {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+      if (!readers.hasNext())
+      {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try
+      {
+        reader.setInput(in, true, true);
+        int w = reader.getWidth(0);
+        int h = reader.getHeight(0);
+        //subsample large images while decoding, but keep at least
+        //twice the target resolution for a smooth downscale
+        int step = Math.max(1, Math.min(w / (2 * width), h / (2 * height)));
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(step, step, 0, 0);
+        BufferedImage src = reader.read(0, param);
+        return new ImageIcon(scale(src, width, height));
+      }
+      finally
+      {
+        reader.dispose();
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  private static BufferedImage scale(BufferedImage src, int width, int height)
+  {
+    double factor = Math.min((double) width / src.getWidth(), (double) height / src.getHeight());
+    int w = Math.max(1, (int) Math.round(src.getWidth() * factor));
+    int h = Math.max(1, (int) Math.round(src.getHeight() * factor));
+    BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = result.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    g.drawImage(src, (width - w) / 2, (height - h) / 2, w, h, null);
+    g.dispose();
+    return result;
+  }
+}
@@ -0,0 +1,431 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut;
+
+import com.t_oster.liblasercut.LaserCutter;
+import com.t_oster.liblasercut.LaserJob;
+import com.t_oster.liblasercut.LaserProperty;
+import com.t_oster.visicut.managers.LaserPropertyManager;
+import com.t_oster.visicut.managers.MappingManager;
+import com.t_oster.visicut.model.LaserDevice;
+import com.t_oster.visicut.model.LaserProfile;
+import com.t_oster.visicut.model.MaterialProfile;
+import com.t_oster.visicut.model.PlfPart;
+import com.t_oster.visicut.model.graphicelements.ImportService;
+import com.t_oster.visicut.model.mapping.Mapping;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prepares and sends PLF files without any user interface.
+ * Every job gets its own VisicutModel, so several jobs can be loaded and
+ * prepared at the same time. Sending is serialized per laser cutter.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class BatchProcessor
+{
+
+  /**
+   * Outcome and timings of one job
+   */
+  public static class Result
+  {
+    private final File file;
+    private boolean success = false;
+    private String message = null;
+    private List<String> warnings = new LinkedList<String>();
+    private long loadTime = 0;
+    private long prepareTime = 0;
+    private long sendTime = 0;
+
+    public Result(File file)
+    {
+      this.file = file;
+    }
+
+    public File getFile()
+    {
+      return file;
+    }
+
+    public boolean isSuccess()
+    {
+      return success;
+    }
+
+    public String getMessage()
+    {
+      return message;
+    }
+
+    public List<String> getWarnings()
+    {
+      return warnings;
+    }
+
+    /**
+     * @return time in ms needed to load the file
+     */
+    public long getLoadTime()
+    {
+      return loadTime;
+    }
+
+    /**
+     * @return time in ms needed to look up the settings and create the job
+     */
+    public long getPrepareTime()
+    {
+      return prepareTime;
+    }
+
+    /**
+     * @return time in ms needed to send the job, including the time
+     * waiting for other jobs to the same laser cutter
+     */
+    public long getSendTime()
+    {
+      return sendTime;
+    }
+
+    @Override
+    public String toString()
+    {
+      return file.getName() + ": " + (success ? "sent" : "FAILED (" + message + ")")
+        + " load " + loadTime + " ms, prepare " + prepareTime + " ms, send " + sendTime + " ms";
+    }
+  }
+
+  private final Preferences preferences;
+  private final LaserDevice laserDevice;
+  private final MaterialProfile material;
+  private final Float materialThickness;
+  private final ExecutorService executor;
+  /**
+   * Shared by the models of all jobs, so each job does not start its
+   * own import threads
+   */
+  private final ImportService importService;
+  private PrintStream out = System.out;
+
+  /**
+   * @param preferences used to set up the model of each job
+   * @param laserDevice the laser device or null to use the one from the preferences
+   * @param material the material or null to use the one from the preferences
+   * @param materialThickness the material thickness or null to use the default
+   * @param concurrency maximum number of jobs processed at the same time
+   */
+  public BatchProcessor(Preferences preferences, LaserDevice laserDevice, MaterialProfile material, Float materialThickness, int concurrency)
+  {
+    this.preferences = preferences;
+    this.laserDevice = laserDevice;
+    this.material = material;
+    this.materialThickness = materialThickness;
+    this.importService = VisicutModel.createImportService(preferences);
+    this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), new ThreadFactory()
+    {
+      private int count = 0;
+
+      public synchronized Thread newThread(Runnable r)
+      {
+        Thread t = new Thread(r, "BatchJob-" + (++count));
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Sets the stream the result of each job is printed to, null for no output
+   */
+  public void setOutput(PrintStream out)
+  {
+    this.out = out;
+  }
+
+  /**
+   * Collects the laser settings for all profiles used in the model's PLF file
+   * @return the settings or null if the combination of laser device,
+   * material and a profile is not supported
+   */
+  public static Map<LaserProfile, List<LaserProperty>> collectLaserProperties(VisicutModel model) throws FileNotFoundException, IOException
+  {
+    Map<LaserProfile, List<LaserProperty>> propmap = new LinkedHashMap<LaserProfile, List<LaserProperty>>();
+    for (PlfPart part : model.getPlfFile())
+    {
+      if (part.getMapping() == null)
+      {
+        continue;
+      }
+      for (Mapping ms : part.getMapping())
+      {
+        LaserProfile p = ms.getProfile();
+        if (p == null)
+        {
+          continue;
+        }
+        List<LaserProperty> list = LaserPropertyManager.getInstance().getLaserProperties(model.getSelectedLaserDevice(), model.getMaterial(), p, model.getMaterialThickness());
+        if (list == null)
+        {
+          return null;
+        }
+        propmap.put(p, list);
+      }
+    }
+    return propmap;
+  }
+
+  /**
+   * Processes the given PLF files. Directories are replaced by the PLF
+   * files they contain.
+   * @return the results in the order of the files
+   */
+  public List<Result> processAll(List<File> files) throws InterruptedException
+  {
+    List<Future<Result>> futures = new ArrayList<Future<Result>>();
+    for (File f : expand(files))
+    {
+      futures.add(submit(f));
+    }
+    List<Result> results = new ArrayList<Result>(futures.size());
+    for (Future<Result> f : futures)
+    {
+      try
+      {
+        results.add(f.get());
+      }
+      catch (ExecutionException ex)
+      {
+        Logger.getLogger(BatchProcessor.class.getName()).log(Level.SEVERE, null, ex);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Processes PLF files dropped into the given folder until the thread is
+   * interrupted. A file is picked up once its size stopped changing and
+   * is moved into the "done" or "failed" subfolder after it was processed.
+   * @param pollInterval time between two scans of the folder in ms
+   */
+  public void watch(final File folder, long pollInterval) throws InterruptedException
+  {
+    final File done = new File(folder, "done");
+    final File failed = new File(folder, "failed");
+    done.mkdirs();
+    failed.mkdirs();
+    final Set<File> active = new HashSet<File>();
+    Map<File, Long> lastSizes = new HashMap<File, Long>();
+    while (true)
+    {
+      Map<File, Long> sizes = new HashMap<File, Long>();
+      File[] files = folder.listFiles();
+      for (final File f : files != null ? files : new File[0])
+      {
+        if (!f.isFile() || !VisicutModel.PLFFilter.accept(f))
+        {
+          continue;
+        }
+        sizes.put(f, f.length());
+        synchronized (active)
+        {
+          if (active.contains(f) || !Long.valueOf(f.length()).equals(lastSizes.get(f)))
+          {
+            continue;
+          }
+          active.add(f);
+        }
+        executor.submit(new Runnable()
+        {
+          public void run()
+          {
+            Result r = process(f);
+            File target = new File(r.isSuccess() ? done : failed, f.getName());
+            target.delete();
+            if (!f.renameTo(target))
+            {
+              //keep it marked as active, so it is not sent again
+              Logger.getLogger(BatchProcessor.class.getName()).log(Level.SEVERE, "Could not move {0} to {1}", new Object[]{f, target});
+              return;
+            }
+            synchronized (active)
+            {
+              active.remove(f);
+            }
+          }
+        });
+      }
+      lastSizes = sizes;
+      Thread.sleep(pollInterval);
+    }
+  }
+
+  public void shutdown()
+  {
+    executor.shutdown();
+    importService.shutdown();
+  }
+
+  private Future<Result> submit(final File f)
+  {
+    return executor.submit(new Callable<Result>()
+    {
+      public Result call()
+      {
+        return process(f);
+      }
+    });
+  }
+
+  /**
+   * Loads, prepares and sends a single PLF file on the calling thread
+   */
+  public Result process(File file)
+  {
+    Result r = new Result(file);
+    VisicutModel model = new VisicutModel();
+    try
+    {
+      long start = System.nanoTime();
+      model.setPreferences(preferences);
+      model.setImportService(importService);
+      if (laserDevice != null)
+      {
+        model.setSelectedLaserDevice(laserDevice);
+      }
+      if (material != null)
+      {
+        model.setMaterial(material);
+      }
+      if (materialThickness != null)
+      {
+        model.setMaterialThickness(materialThickness);
+      }
+      if (model.getSelectedLaserDevice() == null)
+      {
+        throw new IllegalArgumentException("No Laserdevice selected");
+      }
+      if (model.getMaterial() == null)
+      {
+        throw new IllegalArgumentException("No Material selected");
+      }
+      model.loadFile(MappingManager.getInstance(), file, r.warnings, true);
+      long loaded = System.nanoTime();
+      r.loadTime = (loaded - start) / 1000000;
+
+      Map<LaserProfile, List<LaserProperty>> propmap = collectLaserProperties(model);
+      if (propmap == null)
+      {
+        throw new IllegalArgumentException("Combination of Laserdevice, Material and Mapping is not supported");
+      }
+      String name = file.getName();
+      if (name.toLowerCase().endsWith(".plf"))
+      {
+        name = name.substring(0, name.length() - 4);
+      }
+      LaserJob job = model.prepareJob(name, propmap);
+      model.addSourceWarnings(r.warnings);
+      long prepared = System.nanoTime();
+      r.prepareTime = (prepared - loaded) / 1000000;
+
+      LaserCutter cutter = model.getSelectedLaserDevice().getLaserCutter();
+      synchronized (cutter)
+      {
+        cutter.sendJob(job, r.warnings);
+      }
+      r.sendTime = (System.nanoTime() - prepared) / 1000000;
+      r.success = true;
+    }
+    catch (Exception ex)
+    {
+      Logger.getLogger(BatchProcessor.class.getName()).log(Level.FINE, null, ex);
+      r.message = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+    }
+    finally
+    {
+      model.deleteExtractedFiles();
+    }
+    report(r);
+    return r;
+  }
+
+  private void report(Result r)
+  {
+    if (out == null)
+    {
+      return;
+    }
+    synchronized (out)
+    {
+      out.println(r);
+      for (String w : r.getWarnings())
+      {
+        out.println("WARNING: " + r.getFile().getName() + ": " + w);
+      }
+    }
+  }
+
+  private static List<File> expand(List<File> files)
+  {
+    List<File> result = new LinkedList<File>();
+    for (File f : files)
+    {
+      if (f.isDirectory())
+      {
+        File[] content = f.listFiles();
+        if (content != null)
+        {
+          Arrays.sort(content);
+          for (File c : content)
+          {
+            if (c.isFile() && VisicutModel.PLFFilter.accept(c))
+            {
+              result.add(c);
+            }
+          }
+        }
+      }
+      else
+      {
+        result.add(f);
+      }
+    }
+    return result;
+  }
+}
@@ -56,6 +56,22 @@ public class Preferences
     this.disableSandbox = disableSandbox;
   }
   
+  private boolean disableImportCache = false;
+
+  /**
+   * If true, imported files are not stored in or loaded from
+   * the import cache in the settings directory
+   */
+  public boolean isDisableImportCache()
+  {
+    return disableImportCache;
+  }
+
+  public void setDisableImportCache(boolean disableImportCache)
+  {
+    this.disableImportCache = disableImportCache;
+  }
+
   private boolean useFilenamesForJobs = false;
 
   public boolean isUseFilenamesForJobs()
@@ -39,8 +39,12 @@ import com.t_oster.visicut.model.MaterialProfile;
 import com.t_oster.visicut.model.PlfFile;
 import com.t_oster.visicut.model.PlfPart;
 import com.t_oster.visicut.model.graphicelements.GraphicFileImporter;
+import com.t_oster.visicut.model.graphicelements.GraphicObject;
 import com.t_oster.visicut.model.graphicelements.GraphicSet;
+import com.t_oster.visicut.model.graphicelements.ImportCache;
 import com.t_oster.visicut.model.graphicelements.ImportException;
+import com.t_oster.visicut.model.graphicelements.ImportService;
+import com.t_oster.visicut.model.graphicelements.jpgpngsupport.JPGPNGImage;
 import com.t_oster.visicut.model.graphicelements.psvgsupport.ParametricPlfPart;
 import com.t_oster.visicut.model.mapping.Mapping;
 import com.t_oster.visicut.model.mapping.MappingSet;
@@ -56,6 +60,10 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -65,12 +73,17 @@ import java.io.InputStream;
 import java.net.SocketTimeoutException;
 import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -249,7 +262,8 @@ public class VisicutModel
 
   /**
    * This Constructor is only for the UI Editor to run properly
-   * Do not use. use getInstance() instead.
+   * and for independent models of batch jobs (see BatchProcessor).
+   * Otherwise do not use. use getInstance() instead.
    */
   public VisicutModel()
   {
@@ -333,6 +347,8 @@ public class VisicutModel
     if (this.preferences != null)
     {
       this.graphicFileImporter = null;
+      //the import service captured the importers and cache settings
+      this.discardImportService();
       List<LaserDevice> devices = LaserDeviceManager.getInstance().getAll();
       if (this.preferences.lastLaserDevice != null)
       {
@@ -433,116 +449,255 @@ public class VisicutModel
     }
     else
     {
-      if (discardCurrent)
+      this.addGraphicPart(file, loadGraphicFile(file, warnings), discardCurrent);
+    }
+  }
+
+  /**
+   * Loads all given files. The graphic files are imported concurrently,
+   * but added to the current PlfFile in the given order after all imports
+   * finished. If discardCurrent is set, only the first file replaces
+   * the current PlfFile, the others are added to it.
+   *
+   * @return the files which could not be loaded together with the reason
+   */
+  public Map<File, Exception> loadFiles(MappingManager mm, List<File> files, List<String> warnings, boolean discardCurrent)
+  {
+    List<File> graphicFiles = new LinkedList<File>();
+    for (File f : files)
+    {
+      if (!PLFFilter.accept(f))
       {
-        PlfFile nf = new PlfFile();
-        nf.setFile(new File(file.getParentFile(), file.getName().substring(0, file.getName().lastIndexOf(".")) +".plf"));
-        this.setPlfFile(nf);
+        graphicFiles.add(f);
       }
-      PlfPart p = loadGraphicFile(file, warnings);
-      if (this.preferences.getDefaultMapping() != null)
+    }
+    Iterator<ImportService.Result> imported = this.getImportService().importFiles(graphicFiles).iterator();
+    Map<File, Exception> errors = new LinkedHashMap<File, Exception>();
+    for (File f : files)
+    {
+      try
       {
-        try
+        if (PLFFilter.accept(f))
         {
-          p.setMapping(MappingManager.getInstance().getItemByName(this.preferences.getDefaultMapping()));
+          this.loadFile(mm, f, warnings, discardCurrent);
         }
-        catch (Exception e)
+        else
         {
-          System.err.println("Could not load mapping '"+this.preferences.getDefaultMapping()+"'");
+          ImportService.Result r = imported.next();
+          warnings.addAll(r.getWarnings());
+          if (r.getError() != null)
+          {
+            throw r.getError();
+          }
+          this.addGraphicPart(f, r.getPart(), discardCurrent);
         }
+        discardCurrent = false;
+      }
+      catch (Exception e)
+      {
+        errors.put(f, e);
       }
-      this.plfFile.add(p);
-      this.propertyChangeSupport.firePropertyChange(PROP_PLF_PART_ADDED, null, p);
-      this.setSelectedPart(p);
     }
+    return errors;
   }
-  
-  private PlfFile loadPlfFile(MappingManager mm, File f, List<String> warnings) throws FileNotFoundException, IOException, ImportException
+
+  private void addGraphicPart(File file, PlfPart p, boolean discardCurrent)
   {
-    ZipFile zip = new ZipFile(f);
-    PlfFile resultingFile = new PlfFile();
-    resultingFile.setFile(f);
-    //Collect for each part the transform,mapping and sourceFile
-    Map<Integer,AffineTransform> transforms = new LinkedHashMap<Integer,AffineTransform>();
-    Map<Integer,MappingSet> mappings = new LinkedHashMap<Integer, MappingSet>();
-    Map<Integer,File> sourceFiles = new LinkedHashMap<Integer, File>();
-    Enumeration entries = zip.entries();
-    while (entries.hasMoreElements())
+    if (discardCurrent)
+    {
+      PlfFile nf = new PlfFile();
+      nf.setFile(new File(file.getParentFile(), file.getName().substring(0, file.getName().lastIndexOf(".")) +".plf"));
+      this.setPlfFile(nf);
+    }
+    if (this.preferences.getDefaultMapping() != null)
     {
-      ZipEntry entry = (ZipEntry) entries.nextElement();
-      String name = entry.getName();
-      Integer i = name.matches("[0-9]+/.*") ? Integer.parseInt(name.split("/")[0]) : 0;
-      if (name.equals((i > 0 ? i+"/" : "")+"transform.xml"))
+      try
+      {
+        p.setMapping(MappingManager.getInstance().getItemByName(this.preferences.getDefaultMapping()));
+      }
+      catch (Exception e)
       {
-        XMLDecoder decoder = new XMLDecoder(zip.getInputStream(entry));
-        transforms.put(i, (AffineTransform) decoder.readObject());
+        System.err.println("Could not load mapping '"+this.preferences.getDefaultMapping()+"'");
       }
-      else if (name.equals((i > 0 ? i+"/" : "")+"mappings.xml"))
+    }
+    this.plfFile.add(p);
+    this.propertyChangeSupport.firePropertyChange(PROP_PLF_PART_ADDED, null, p);
+    this.setSelectedPart(p);
+  }
+  
+  private static final Pattern DOUBLE_ELEMENT = Pattern.compile("<double>([^<]*)</double>");
+  private static final Pattern ARRAY_ELEMENT = Pattern.compile("<void\\s+index=\"([0-5])\">\\s*<double>([^<]*)</double>\\s*</void>");
+
+  /**
+   * Reads an AffineTransform written by XMLEncoder. The formats written
+   * by VisiCut (six doubles or a sparse double array) are parsed directly,
+   * anything else is passed to the slower XMLDecoder.
+   */
+  private static AffineTransform readTransform(InputStream in) throws IOException
+  {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    byte[] b = new byte[4096];
+    int len;
+    while ((len = in.read(b)) > 0)
+    {
+      buf.write(b, 0, len);
+    }
+    in.close();
+    String xml = buf.toString("UTF-8");
+    if (xml.contains("<object class=\"java.awt.geom.AffineTransform\">") && !xml.contains("<void method") && !xml.contains("<void property"))
+    {
+      try
       {
-        MappingSet map = mm.loadFromFile(zip.getInputStream(entry));
-        if (map != null)
+        double[] m = new double[6];
+        int count = 0;
+        if (xml.contains("<array class=\"double\" length=\"6\">"))
         {
-          mappings.put(i, map);
+          Matcher matcher = ARRAY_ELEMENT.matcher(xml);
+          while (matcher.find())
+          {
+            m[Integer.parseInt(matcher.group(1))] = Double.parseDouble(matcher.group(2));
+          }
+          count = 6;
         }
         else
         {
-          warnings.add("Could not load Mapping "+i+" from PLF File");
-        }
-      }
-      else
-      {
-        //source files get extracted
-        File tempFile = FileUtils.getNonexistingWritableFile(name.replace("/","_"));
-        byte[] buf = new byte[1024];
-        InputStream in = zip.getInputStream(entry);
-        FileOutputStream out = new FileOutputStream(tempFile);
-        // Transfer bytes from the file to the ZIP file
-        int len;
-        while ((len = in.read(buf)) > 0)
-        {
-          out.write(buf, 0, len);
+          Matcher matcher = DOUBLE_ELEMENT.matcher(xml);
+          while (matcher.find() && count < 7)
+          {
+            if (count < 6)
+            {
+              m[count] = Double.parseDouble(matcher.group(1));
+            }
+            count++;
+          }
         }
-        out.close();
-        in.close();
-        tempFile.deleteOnExit();
-        //Parameter files for parametric svg files are just extracted next
-        //to the svg, but not counted as source file
-        if (!name.toLowerCase().endsWith(".parameters"))
+        if (count == 6)
         {
-          sourceFiles.put(i, tempFile);
+          return new AffineTransform(m);
         }
       }
+      catch (NumberFormatException e)
+      {
+        //let the XMLDecoder try
+      }
     }
-    
-    for (Integer i : sourceFiles.keySet())
+    XMLDecoder decoder = new XMLDecoder(new ByteArrayInputStream(buf.toByteArray()));
+    return (AffineTransform) decoder.readObject();
+  }
+
+  /**
+   * Directories the source files of loaded PLF files were extracted to
+   */
+  private final List<File> extractedDirectories = new LinkedList<File>();
+
+  /**
+   * Deletes the source files extracted from the PLF files loaded so far.
+   * Parts loaded from these files can not be reloaded or saved afterwards.
+   */
+  public void deleteExtractedFiles()
+  {
+    synchronized (extractedDirectories)
     {
-      try
+      for (File dir : extractedDirectories)
+      {
+        FileUtils.deleteRecursively(dir);
+      }
+      extractedDirectories.clear();
+    }
+  }
+
+  private PlfFile loadPlfFile(MappingManager mm, File f, List<String> warnings) throws FileNotFoundException, IOException, ImportException
+  {
+    //every PLF file gets its own directory, so concurrent loads of files
+    //with equally named entries do not overwrite each other
+    File dir = FileUtils.createTempDirectory("visicut-plf");
+    synchronized (extractedDirectories)
+    {
+      extractedDirectories.add(dir);
+    }
+    ZipFile zip = new ZipFile(f);
+    PlfFile resultingFile = new PlfFile();
+    resultingFile.setFile(f);
+    //Collect for each part the transform,mapping and sourceFile
+    Map<Integer,AffineTransform> transforms = new LinkedHashMap<Integer,AffineTransform>();
+    Map<Integer,MappingSet> mappings = new LinkedHashMap<Integer, MappingSet>();
+    Map<Integer,File> sourceFiles = new LinkedHashMap<Integer, File>();
+    try
+    {
+      Enumeration entries = zip.entries();
+      while (entries.hasMoreElements())
       {
-        PlfPart p = this.loadGraphicFile(sourceFiles.get(i), warnings);
-        if (p.getGraphicObjects() == null)
+        ZipEntry entry = (ZipEntry) entries.nextElement();
+        String name = entry.getName();
+        Integer i = name.matches("[0-9]+/.*") ? Integer.parseInt(name.split("/")[0]) : 0;
+        if (name.equals((i > 0 ? i+"/" : "")+"transform.xml"))
         {
-          warnings.add("Corrupted input file "+i);
+          transforms.put(i, readTransform(zip.getInputStream(entry)));
         }
-        else
+        else if (name.equals((i > 0 ? i+"/" : "")+"mappings.xml"))
         {
-          if (transforms.containsKey(i))
+          MappingSet map = mm.loadFromFile(zip.getInputStream(entry));
+          if (map != null)
           {
-            p.getGraphicObjects().setTransform(transforms.get(i));
+            mappings.put(i, map);
           }
           else
           {
-            warnings.add("Could not load Transform "+i+" from PLF File");
+            warnings.add("Could not load Mapping "+i+" from PLF File");
           }
-          if (mappings.containsKey(i))
+        }
+        else
+        {
+          //source files get extracted, because the parts refer to them
+          //for reloading, saving and editing parameters
+          File tempFile = new File(dir, name.replace("/","_"));
+          FileUtils.copyStreamToFile(zip.getInputStream(entry), tempFile);
+          //Parameter files for parametric svg files are just extracted next
+          //to the svg, but not counted as source file
+          if (!name.toLowerCase().endsWith(".parameters"))
           {
-            p.setMapping(mappings.get(i));
+            sourceFiles.put(i, tempFile);
           }
-          resultingFile.add(p);
         }
       }
-      catch (ImportException e)
+    }
+    finally
+    {
+      zip.close();
+    }
+    //all files are extracted before importing, because parametric
+    //files need their parameter files next to them
+    List<ImportService.Result> imported = this.getImportService().importFiles(new LinkedList<File>(sourceFiles.values()));
+    Iterator<ImportService.Result> results = imported.iterator();
+    for (Integer i : sourceFiles.keySet())
+    {
+      ImportService.Result r = results.next();
+      warnings.addAll(r.getWarnings());
+      if (r.getError() != null)
+      {
+        warnings.add("Error loading "+sourceFiles.get(i).getName()+": "+r.getError().getMessage());
+        continue;
+      }
+      PlfPart p = r.getPart();
+      if (p.getGraphicObjects() == null)
       {
-        warnings.add("Error loading "+sourceFiles.get(i).getName()+": "+e.getMessage());
+        warnings.add("Corrupted input file "+i);
+      }
+      else
+      {
+        if (transforms.containsKey(i))
+        {
+          p.getGraphicObjects().setTransform(transforms.get(i));
+        }
+        else
+        {
+          warnings.add("Could not load Transform "+i+" from PLF File");
+        }
+        if (mappings.containsKey(i))
+        {
+          p.setMapping(mappings.get(i));
+        }
+        resultingFile.add(p);
       }
     }
     return resultingFile;
@@ -550,94 +705,196 @@ public class VisicutModel
 
   public void saveToFile(MaterialManager pm, MappingManager mm, File f) throws FileNotFoundException, IOException
   {
-    PlfFile plf = this.getPlfFile();
-    FileInputStream in;
-    byte[] buf = new byte[1024];
-    int len;
-    // Create the ZIP file
-    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(f));
-    //find temporary file for xml
-    int k = 0;
-    File tmp = null;
-    do
+    try
+    {
+      this.createSaveTask(mm, f).call();
+    }
+    catch (IOException e)
+    {
+      throw e;
+    }
+    catch (Exception e)
     {
-      tmp = new File(Helper.getBasePath(), "tmp" + (k++) + ".xml");
+      IOException ex = new IOException(e.getMessage());
+      ex.initCause(e);
+      throw ex;
     }
-    while (tmp.exists());
+  }
+
+  /**
+   * Entries of these types are already compressed, so they are
+   * stored instead of being compressed again
+   */
+  private static final FileFilter COMPRESSED_FILES = new ExtensionFilter(new String[]{".png", ".jpg", ".jpeg", ".gif"}, "Compressed files");
+
+  /**
+   * Returns a task which writes the current PlfFile to the given file.
+   * Everything which may still change while the task is running
+   * (transforms, mappings, parameters) is serialized right away,
+   * so the task can run on another thread while the user keeps editing.
+   * The file is written under a temporary name and then renamed, so
+   * an existing file is not damaged if saving fails.
+   */
+  public Callable<File> createSaveTask(MappingManager mm, final File f) throws IOException
+  {
+    final List<String> names = new LinkedList<String>();
+    final List<Object> contents = new LinkedList<Object>();
+    PlfFile plf = this.getPlfFile();
     for(int i = 0; i < plf.size(); i++)
     {
+      String prefix = i > 0 ? i+"/" : "";
+      PlfPart part = plf.get(i);
       // Add source GraphicsFile to the Zip File
-      out.putNextEntry(new ZipEntry((i > 0 ? i+"/" : "")+plf.get(i).getSourceFile().getName()));
-      in = new FileInputStream(plf.get(i).getSourceFile());
-      // Transfer bytes from the file to the ZIP file
-      while ((len = in.read(buf)) > 0)
-      {
-        out.write(buf, 0, len);
-      }
-      in.close();
-      // Complete the entry
-      out.closeEntry();
+      names.add(prefix+part.getSourceFile().getName());
+      contents.add(part.getSourceFile());
       //If it's a Parametric PlfPart, write the parameters into an extra file
-      if (plf.get(i) instanceof ParametricPlfPart)
+      if (part instanceof ParametricPlfPart)
       {
-        // Add source GraphicsFile to the Zip File
-        out.putNextEntry(new ZipEntry((i > 0 ? i+"/" : "")+plf.get(i).getSourceFile().getName()+".parameters"));
-        ParametricPlfPart.serializeParameterValues(((ParametricPlfPart) plf.get(i)).getParameters(), out);
-        // Complete the entry
-        out.closeEntry(); 
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParametricPlfPart.serializeParameterValues(((ParametricPlfPart) part).getParameters(), out);
+        names.add(prefix+part.getSourceFile().getName()+".parameters");
+        contents.add(out.toByteArray());
       }
-      AffineTransform at = plf.get(i).getGraphicObjects().getTransform();
+      AffineTransform at = part.getGraphicObjects().getTransform();
       if (at != null)
       {
-        out.putNextEntry(new ZipEntry((i > 0 ? i+"/" : "")+"transform.xml"));
-        //Write xml to temp file
-        //TODO: Why not directly write to zip output stream?
-        XMLEncoder encoder = new XMLEncoder(new FileOutputStream(tmp));
-        encoder.setPersistenceDelegate(AffineTransform.class, new PersistenceDelegate()
-        {//Fix for older java versions
-          protected Expression instantiate(Object oldInstance, Encoder out)
+        names.add(prefix+"transform.xml");
+        contents.add(writeTransform(at));
+      }
+      if (part.getMapping() != null)
+      {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mm.save(part.getMapping(), out);
+        names.add(prefix+"mappings.xml");
+        contents.add(out.toByteArray());
+      }
+    }
+    return new Callable<File>()
+    {
+      public File call() throws Exception
+      {
+        File dir = f.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(f.getName(), ".tmp", dir);
+        try
+        {
+          ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+          try
           {
-            AffineTransform tx = (AffineTransform) oldInstance;
-            double[] coeffs = new double[6];
-            tx.getMatrix(coeffs);
-            return new Expression(oldInstance,
-              oldInstance.getClass(),
-              "new",
-              new Object[]
+            Iterator<Object> content = contents.iterator();
+            for (String name : names)
+            {
+              Object c = content.next();
+              if (c instanceof File)
+              {
+                writeZipEntry(out, name, (File) c);
+              }
+              else
               {
-                coeffs
-              });
+                out.putNextEntry(new ZipEntry(name));
+                out.write((byte[]) c);
+                out.closeEntry();
+              }
+            }
           }
-        });
-        encoder.writeObject(at);
-        encoder.close();
-        in = new FileInputStream(tmp);
-        // Transfer bytes from the file to the ZIP file
-        while ((len = in.read(buf)) > 0)
+          finally
+          {
+            // Complete the ZIP file
+            out.close();
+          }
+          //renameTo does not replace existing files on all platforms,
+          //so move the old file aside and restore it if the rename fails
+          if (!tmp.renameTo(f))
+          {
+            File backup = File.createTempFile(f.getName(), ".bak", dir);
+            backup.delete();
+            if (!f.renameTo(backup))
+            {
+              throw new IOException("Could not write "+f);
+            }
+            if (!tmp.renameTo(f))
+            {
+              backup.renameTo(f);
+              throw new IOException("Could not write "+f);
+            }
+            backup.delete();
+          }
+        }
+        finally
         {
-          out.write(buf, 0, len);
+          tmp.delete();
         }
-        in.close();
-        out.closeEntry();
+        return f;
       }
-      if (plf.get(i).getMapping() != null)
+    };
+  }
+
+  private static void writeZipEntry(ZipOutputStream out, String name, File source) throws IOException
+  {
+    ZipEntry entry = new ZipEntry(name);
+    if (COMPRESSED_FILES.accept(source))
+    {
+      //stored entries need their size and checksum in advance
+      CRC32 crc = new CRC32();
+      InputStream in = new BufferedInputStream(new FileInputStream(source));
+      try
       {
-        out.putNextEntry(new ZipEntry((i > 0 ? i+"/" : "")+"mappings.xml"));
-        mm.save(plf.get(i).getMapping(), tmp);
-        in = new FileInputStream(tmp);
-        // Transfer bytes from the file to the ZIP file
+        byte[] buf = new byte[65536];
+        int len;
         while ((len = in.read(buf)) > 0)
         {
-          out.write(buf, 0, len);
+          crc.update(buf, 0, len);
         }
+      }
+      finally
+      {
         in.close();
-        out.closeEntry();
+      }
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(source.length());
+      entry.setCompressedSize(source.length());
+      entry.setCrc(crc.getValue());
+    }
+    out.putNextEntry(entry);
+    InputStream in = new FileInputStream(source);
+    try
+    {
+      byte[] buf = new byte[65536];
+      int len;
+      while ((len = in.read(buf)) > 0)
+      {
+        out.write(buf, 0, len);
       }
     }
-    // Complete the ZIP file
-    out.close();
-    // Delete the tmp file
-    tmp.delete();
+    finally
+    {
+      in.close();
+    }
+    out.closeEntry();
+  }
+
+  private static byte[] writeTransform(AffineTransform at)
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    XMLEncoder encoder = new XMLEncoder(out);
+    encoder.setPersistenceDelegate(AffineTransform.class, new PersistenceDelegate()
+    {//Fix for older java versions
+      protected Expression instantiate(Object oldInstance, Encoder out)
+      {
+        AffineTransform tx = (AffineTransform) oldInstance;
+        double[] coeffs = new double[6];
+        tx.getMatrix(coeffs);
+        return new Expression(oldInstance,
+          oldInstance.getClass(),
+          "new",
+          new Object[]
+          {
+            coeffs
+          });
+      }
+    });
+    encoder.writeObject(at);
+    encoder.close();
+    return out.toByteArray();
   }
   private GraphicFileImporter graphicFileImporter = null;
 
@@ -650,9 +907,61 @@ public class VisicutModel
     return graphicFileImporter;
   }
 
+  private ImportService importService = null;
+  private boolean ownImportService = false;
+
+  /**
+   * The ImportService is used for all imports, because the importers
+   * are not thread safe and files may be loaded from several threads.
+   */
+  public synchronized ImportService getImportService()
+  {
+    if (importService == null)
+    {
+      importService = createImportService(this.preferences);
+      ownImportService = true;
+    }
+    return importService;
+  }
+
+  /**
+   * Shuts down the own ImportService, so the next import creates a new
+   * one with the current preferences. Queued imports are still finished.
+   */
+  private synchronized void discardImportService()
+  {
+    if (importService != null && ownImportService)
+    {
+      importService.shutdown();
+    }
+    importService = null;
+    ownImportService = false;
+  }
+
+  /**
+   * Sets the ImportService to use instead of creating an own one, so
+   * several models (e.g. the jobs of a BatchProcessor) can share one.
+   * The caller is responsible for shutting it down.
+   */
+  public synchronized void setImportService(ImportService importService)
+  {
+    this.discardImportService();
+    this.importService = importService;
+  }
+
+  /**
+   * Creates an ImportService with the importers and cache settings
+   * of the given preferences
+   */
+  public static ImportService createImportService(Preferences preferences)
+  {
+    ImportCache cache = preferences.isDisableImportCache() ? null : new ImportCache(new File(Helper.getCachePath(), "importcache"));
+    return new ImportService(preferences.getAvailableImporters(), cache, Runtime.getRuntime().availableProcessors());
+  }
+
   private PlfPart loadGraphicFile(File f, List<String> warnings) throws ImportException
   {
-    return this.getGraphicFileImporter().importFile(f, warnings);
+    return this.getImportService().importFile(f, warnings);
   }
   protected MaterialProfile material = null;
   public static final String PROP_MATERIAL = "material";
@@ -679,7 +988,11 @@ public class VisicutModel
     propertyChangeSupport.firePropertyChange(PROP_MATERIAL, oldMaterial, material);
   }
 
-  private LaserJob prepareJob(String name, Map<LaserProfile, List<LaserProperty>> propmap) throws FileNotFoundException, IOException
+  /**
+   * Creates the laser job for the current PlfFile without sending it
+   * @param propmap the laser settings for each used profile
+   */
+  public LaserJob prepareJob(String name, Map<LaserProfile, List<LaserProperty>> propmap) throws FileNotFoundException, IOException
   {
     LaserJob job = new LaserJob(name, name, "visicut");
     if (this.startPoint != null)
@@ -709,6 +1022,32 @@ public class VisicutModel
     return job;
   }
 
+  /**
+   * Adds a warning for every bitmap which could not be rendered,
+   * because its file has changed or can not be read since it was imported
+   */
+  public void addSourceWarnings(List<String> warnings)
+  {
+    for (PlfPart p : this.getPlfFile())
+    {
+      if (p.getGraphicObjects() == null)
+      {
+        continue;
+      }
+      for (GraphicObject o : p.getGraphicObjects())
+      {
+        if (o instanceof JPGPNGImage)
+        {
+          String problem = ((JPGPNGImage) o).getSourceProblem();
+          if (problem != null && !warnings.contains(problem))
+          {
+            warnings.add(problem);
+          }
+        }
+      }
+    }
+  }
+
   public void sendJob(String name, ProgressListener pl, Map<LaserProfile, List<LaserProperty>> props, List<String> warnings) throws IllegalJobException, SocketTimeoutException, Exception
   {
     LaserCutter lasercutter = this.getSelectedLaserDevice().getLaserCutter();
@@ -717,6 +1056,7 @@ public class VisicutModel
       pl.taskChanged(this, "preparing job");
     }
     LaserJob job = this.prepareJob(name, props);
+    this.addSourceWarnings(warnings);
     if (pl != null)
     {
       pl.taskChanged(this, "sending job");
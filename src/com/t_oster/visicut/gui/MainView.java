@@ -48,9 +48,11 @@ import com.t_oster.visicut.managers.MappingManager;
 import com.t_oster.visicut.managers.MaterialManager;
 import com.t_oster.visicut.managers.PreferencesManager;
 import com.t_oster.visicut.managers.ProfileManager;
+import com.t_oster.visicut.misc.CameraCaptureService;
 import com.t_oster.visicut.misc.DialogHelper;
 import com.t_oster.visicut.misc.ExtensionFilter;
 import com.t_oster.visicut.misc.Helper;
+import com.t_oster.visicut.misc.HttpFrameReader;
 import com.t_oster.visicut.model.LaserDevice;
 import com.t_oster.visicut.model.LaserProfile;
 import com.t_oster.visicut.model.MaterialProfile;
@@ -65,6 +67,7 @@ import com.tur0kk.facebook.FacebookManager;
 import com.tur0kk.facebook.gui.FacebookDialog;
 import com.tur0kk.thingiverse.ThingiverseManager;
 import com.frochr123.pluginicon.PluginIconLoader;
+import java.awt.Cursor;
 import java.awt.Desktop;
 import java.awt.Dimension;
 import java.awt.FileDialog;
@@ -84,15 +87,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URLConnection;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.SocketException;
 import java.net.URI;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLClassLoader;
 import java.util.Arrays;
 import java.util.Collections;
@@ -102,11 +102,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
-import javax.imageio.stream.ImageInputStream;
-import javax.imageio.stream.MemoryCacheImageInputStream;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -115,6 +118,7 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileFilter;
 import org.jdesktop.application.Action;
 
@@ -189,10 +193,17 @@ public class MainView extends javax.swing.JFrame
   };
   private boolean ignoreLaserCutterComboBoxUpdates;
 
-  public MainView(File loadedFile)
+  public MainView(final File loadedFile)
   {
     this();
-    this.loadFileReal(loadedFile, true);
+    //load the file after the window has been shown
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      public void run()
+      {
+        MainView.this.loadFileReal(loadedFile, true);
+      }
+    });
   }
 
   /**
@@ -297,6 +308,8 @@ public class MainView extends javax.swing.JFrame
 
         public void handleQuitRequestWith(QuitEvent qe, QuitResponse qr)
         {
+          //VisiCut exits on its own once pending saves are written
+          qr.cancelQuit();
           MainView.this.exitMenuItemActionPerformed(null);
         }
       });
@@ -312,10 +325,7 @@ public class MainView extends javax.swing.JFrame
 
         public void openFiles(OpenFilesEvent ofe)
         {
-          for (File f : ofe.getFiles())
-          {
-            MainView.this.loadFile(f, false);
-          }
+          MainView.this.loadFiles(ofe.getFiles(), false);
         }
       });
     }
@@ -670,6 +680,7 @@ public class MainView extends javax.swing.JFrame
         viewMenu = new javax.swing.JMenu();
         showGridMenuItem = new javax.swing.JCheckBoxMenuItem();
         jmShowPhoto = new javax.swing.JCheckBoxMenuItem();
+        jmLiveCamera = new javax.swing.JCheckBoxMenuItem();
         zoomInMenuItem = new javax.swing.JMenuItem();
         zoomOutMenuItem = new javax.swing.JMenuItem();
         jmExtras = new javax.swing.JMenu();
@@ -1233,6 +1244,15 @@ public class MainView extends javax.swing.JFrame
 
         viewMenu.add(jmShowPhoto);
 
+        jmLiveCamera.setText(resourceMap.getString("jmLiveCamera.text")); // NOI18N
+        jmLiveCamera.setName("jmLiveCamera"); // NOI18N
+        jmLiveCamera.addItemListener(new java.awt.event.ItemListener() {
+            public void itemStateChanged(java.awt.event.ItemEvent evt) {
+                jmLiveCameraItemStateChanged(evt);
+            }
+        });
+        viewMenu.add(jmLiveCamera);
+
         javax.swing.ActionMap actionMap = org.jdesktop.application.Application.getInstance(com.t_oster.visicut.gui.VisicutApp.class).getContext().getActionMap(MainView.class, this);
         zoomInMenuItem.setAction(actionMap.get("zoomIn")); // NOI18N
         zoomInMenuItem.setText(resourceMap.getString("zoomInMenuItem.text")); // NOI18N
@@ -1356,17 +1376,33 @@ public class MainView extends javax.swing.JFrame
     private void exitMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_exitMenuItemActionPerformed
       PreferencesManager.getInstance().getPreferences().setWindowBounds(MainView.this.getBounds());
       this.visicutModel1.updatePreferences();
-      System.exit(0);
+      this.exitAfterPendingSaves();
     }//GEN-LAST:event_exitMenuItemActionPerformed
 
   public void loadFile(File file, final boolean discardCurrent)
   {
-    final File fileToLoad = file;
-    lastDirectory = file.getParentFile();
+    this.loadFiles(Collections.singletonList(file), discardCurrent);
+  }
+
+  /**
+   * Loads all given files in the background. The files are imported
+   * concurrently and added in the given order once all are done.
+   */
+  public void loadFiles(List<File> files, final boolean discardCurrent)
+  {
+    if (files.isEmpty())
+    {
+      return;
+    }
+    final List<File> filesToLoad = new LinkedList<File>(files);
     //refresh recent files
     List<String> recent = this.visicutModel1.getPreferences().getRecentFiles();
-    recent.remove(file.getAbsolutePath());
-    recent.add(0, file.getAbsolutePath());
+    for (File file : filesToLoad)
+    {
+      lastDirectory = file.getParentFile();
+      recent.remove(file.getAbsolutePath());
+      recent.add(0, file.getAbsolutePath());
+    }
     if (recent.size() > 5)
     {
       for (int i=recent.size()-1;i>=5;i--)
@@ -1389,7 +1425,7 @@ public class MainView extends javax.swing.JFrame
       @Override
       public void run()
       {
-        MainView.this.loadFileReal(fileToLoad, discardCurrent);
+        MainView.this.loadFilesReal(filesToLoad, discardCurrent);
       }
     }.start();
   }
@@ -1460,6 +1496,11 @@ public class MainView extends javax.swing.JFrame
   }
   
   private void loadFileReal(File file, boolean discardCurrent)
+  {
+    this.loadFilesReal(Collections.singletonList(file), discardCurrent);
+  }
+
+  private void loadFilesReal(List<File> files, boolean discardCurrent)
   {
     // remove old error messages, they are no longer relevant (or for multiple files it is too confusing which one refers to which file)
     warningPanel.removeAllWarnings();
@@ -1468,20 +1509,27 @@ public class MainView extends javax.swing.JFrame
     {
       this.progressBar.setIndeterminate(true);
       LinkedList<String> warnings = new LinkedList<String>();
-      this.visicutModel1.loadFile(MappingManager.getInstance(), file, warnings, discardCurrent);
+      Map<File, Exception> errors = this.visicutModel1.loadFiles(MappingManager.getInstance(), files, warnings, discardCurrent);
       if (!warnings.isEmpty())
         {
           dialog.showWarningMessage(warnings);
         }
-      //if the image is too big, fit it a nd notify the user
-      this.fitObjectsIntoBed();
+      if (errors.size() < files.size())
+      {
+        //if the image is too big, fit it a nd notify the user
+        this.fitObjectsIntoBed();
+      }
       this.progressBar.setIndeterminate(false);
       this.refreshButtonStates();
+      for (Entry<File, Exception> e : errors.entrySet())
+      {
+        dialog.showErrorMessage(e.getValue(), bundle.getString("ERROR WHILE OPENING '") + e.getKey().getName() + "'");
+      }
     }
     catch (Exception e)
     {
       this.progressBar.setIndeterminate(false);
-      dialog.showErrorMessage(e, bundle.getString("ERROR WHILE OPENING '") + file.getName() + "'");
+      dialog.showErrorMessage(e);
     }
   }
 
@@ -1494,6 +1542,7 @@ public class MainView extends javax.swing.JFrame
     this.calibrateCameraMenuItem.setEnabled(cam);
     this.captureImageButton.setVisible(cam);
     this.jmShowPhoto.setEnabled(cam);
+    this.jmLiveCamera.setEnabled(cam);
     boolean estimateSupported = this.visicutModel1.getSelectedLaserDevice() != null && this.visicutModel1.getSelectedLaserDevice().getLaserCutter().canEstimateJobDuration();
     this.calculateTimeButton.setVisible(estimateSupported);
     this.timeLabel.setVisible(estimateSupported);
@@ -1749,10 +1798,7 @@ private void filesDropSupport1PropertyChange(java.beans.PropertyChangeEvent evt)
 {//GEN-HEADEREND:event_filesDropSupport1PropertyChange
   if (this.filesDropSupport1.getDroppedFiles() != null && this.filesDropSupport1.getDroppedFiles().size() > 0)
   {
-    for (File f : this.filesDropSupport1.getDroppedFiles())
-    {
-      this.loadFile(f, false);
-    }
+    this.loadFiles(this.filesDropSupport1.getDroppedFiles(), false);
   }
 }//GEN-LAST:event_filesDropSupport1PropertyChange
 
@@ -1789,18 +1835,96 @@ private void filesDropSupport1PropertyChange(java.beans.PropertyChangeEvent evt)
       {
         file = new File(file.getAbsolutePath() + ".plf");
       }
-      try
+      this.saveInBackground(file);
+    }
+    else
+    {
+      //File access cancelled by user.
+    }
+  }
+
+  private final ExecutorService saveExecutor = Executors.newSingleThreadExecutor();
+  private final AtomicInteger failedSaves = new AtomicInteger();
+  private boolean exiting = false;
+
+  /**
+   * Exits once all saves queued so far are written. The window stays
+   * responsive but disabled meanwhile. If one of the saves failed,
+   * VisiCut keeps running, so the user can save again.
+   */
+  private void exitAfterPendingSaves()
+  {
+    if (exiting)
+    {
+      return;
+    }
+    exiting = true;
+    final int failed = failedSaves.get();
+    this.setEnabled(false);
+    this.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+    this.progressBar.setIndeterminate(true);
+    this.progressBar.setString(bundle.getString("SAVING FILE BEFORE EXIT"));
+    this.progressBar.setStringPainted(true);
+    //the executor runs one task at a time, so this runs after all pending saves
+    saveExecutor.submit(new Runnable()
+    {
+      public void run()
       {
-        this.visicutModel1.saveToFile(MaterialManager.getInstance(), MappingManager.getInstance(), file);
+        SwingUtilities.invokeLater(new Runnable()
+        {
+          public void run()
+          {
+            if (failedSaves.get() == failed)
+            {
+              System.exit(0);
+            }
+            exiting = false;
+            MainView.this.setEnabled(true);
+            MainView.this.setCursor(Cursor.getDefaultCursor());
+            MainView.this.progressBar.setIndeterminate(false);
+            MainView.this.progressBar.setString("");
+            MainView.this.progressBar.setStringPainted(false);
+          }
+        });
       }
-      catch (Exception ex)
+    });
+  }
+
+  /**
+   * Saves the current PLF file on a background thread. The file contents
+   * are captured immediately, so the user can continue editing while
+   * the file is written.
+   */
+  private void saveInBackground(File file)
+  {
+    try
+    {
+      final Callable<File> task = this.visicutModel1.createSaveTask(MappingManager.getInstance(), file);
+      saveExecutor.submit(new Runnable()
       {
-        dialog.showErrorMessage(ex, bundle.getString("ERROR SAVING FILE"));
-      }
+        public void run()
+        {
+          try
+          {
+            task.call();
+          }
+          catch (final Exception ex)
+          {
+            failedSaves.incrementAndGet();
+            SwingUtilities.invokeLater(new Runnable()
+            {
+              public void run()
+              {
+                dialog.showErrorMessage(ex, bundle.getString("ERROR SAVING FILE"));
+              }
+            });
+          }
+        }
+      });
     }
-    else
+    catch (Exception ex)
     {
-      //File access cancelled by user.
+      dialog.showErrorMessage(ex, bundle.getString("ERROR SAVING FILE"));
     }
   }
 
@@ -1873,14 +1997,7 @@ private void saveMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-
   }
   else
   {
-    try
-    {
-      this.visicutModel1.saveToFile(MaterialManager.getInstance(), MappingManager.getInstance(), this.visicutModel1.getPlfFile().getFile());
-    }
-    catch (Exception ex)
-    {
-      dialog.showErrorMessage(ex, bundle.getString("ERROR SAVING FILE"));
-    }
+    this.saveInBackground(this.visicutModel1.getPlfFile().getFile());
   }
 }//GEN-LAST:event_saveMenuItemActionPerformed
 
@@ -1929,100 +2046,118 @@ private void calibrateCameraMenuItemActionPerformed(java.awt.event.ActionEvent e
 private void executeJobMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_executeJobMenuItemActionPerformed
   this.executeJob();
 }//GEN-LAST:event_executeJobMenuItemActionPerformed
-  private boolean capturing = false;
 
-  private void captureImage()
+private void jmLiveCameraItemStateChanged(java.awt.event.ItemEvent evt) {//GEN-FIRST:event_jmLiveCameraItemStateChanged
+  // continuous camera refresh, e.g. while positioning material
+  if (jmLiveCamera.isSelected())
+  {
+    captureImage();
+  }
+  cameraCapture.setLive(jmLiveCamera.isSelected());
+}//GEN-LAST:event_jmLiveCameraItemStateChanged
+  private final AtomicReference<BufferedImage> capturedFrame = new AtomicReference<BufferedImage>();
+  private final CameraCaptureService cameraCapture = new CameraCaptureService(new CameraCaptureService.Listener()
   {
-    if (!capturing)
+    public void frameCaptured(BufferedImage frame)
     {
-      capturing = true;
-      new Thread()
+      // only the latest frame is shown, if the ui is slower than the camera
+      if (capturedFrame.getAndSet(frame) == null)
       {
-
-        @Override
-        public void run()
+        SwingUtilities.invokeLater(new Runnable()
         {
-          MainView.this.captureImageButton.setEnabled(false);
-          MainView.this.progressBar.setStringPainted(true);
-          MainView.this.progressBar.setString(bundle.getString("CAPTURING PHOTO..."));
-          MainView.this.progressBar.setIndeterminate(true);
-          MainView.this.progressBar.repaint();
-          URLConnection conn=null;
-          try
-          {
-            URL src = new URL(MainView.this.visicutModel1.getSelectedLaserDevice().getCameraURL());
-            conn=src.openConnection();
-            ImageInputStream stream=new MemoryCacheImageInputStream(conn.getInputStream());
-            BufferedImage back = ImageIO.read(stream);
-            if (back != null && MainView.this.visicutModel1.getBackgroundImage() == null)
-            {//First Time Image is Captured => resize View
-              MainView.this.previewPanel.setZoom(100d);
-            }
-            MainView.this.visicutModel1.setBackgroundImage(back);
-            MainView.this.jmShowPhoto.setSelected(true);
-            MainView.this.progressBar.setString("");
-            MainView.this.progressBar.setStringPainted(false);
-            MainView.this.progressBar.setIndeterminate(false);
-            MainView.this.progressBar.repaint();
-          }
-          catch (Exception ex)
+          public void run()
           {
-            MainView.this.visicutModel1.setBackgroundImage(null);
-            MainView.this.progressBar.setString("");
-            ex.printStackTrace();
-            if (ex instanceof IOException && conn instanceof HttpURLConnection) {
-              // possible HTTP error - if the server sent a message, display it
-              // This can be used by VisiCam to show an error message like "marker not found"
-              String msg="";
-              int responseCode=0;
-              try {
-                responseCode=((HttpURLConnection) conn).getResponseCode();
-                if (responseCode != 200) {
-                  // received a text error message, display it
-                  InputStream stream=((HttpURLConnection) conn).getErrorStream();
-                  if (stream == null) {
-                    msg="(no message sent)";
-                  } else {
-                    InputStreamReader errorReader=new InputStreamReader(stream);
-                    StringBuilder buffer=new StringBuilder();
-                    int c;
-                    while ((c=errorReader.read()) != -1) {
-                      // read until finished
-                      buffer.append((char) c);
-                      if (buffer.length() > 200) {
-                        buffer.append("...");
-                        break;
-                      }
-                    }
-                    msg=buffer.toString();
-                  }
-                } else {
-                  // server sent HTTP OK, so the exception is not a HTTP problem
-                  msg=ex.toString();
-                }
-              } catch(Exception e) {
-                e.printStackTrace();
-                if (e instanceof java.net.SocketException) {
-                    // Network error like "port not found"
-                    msg=e.getLocalizedMessage();
-                } else {
-                  msg=" (could not get error message)";
-                }
-              }
-              if (responseCode != 0) {
-                msg = msg + "\n(HTTP " + responseCode + ")";
-              }
-              MainView.this.dialog.showWarningMessage(bundle.getString("ERROR CAPTURING PHOTO") + ": "+ msg);
-            } else {
-              MainView.this.dialog.showErrorMessage(ex, bundle.getString("ERROR CAPTURING PHOTO"));
+            BufferedImage back = capturedFrame.getAndSet(null);
+            if (back != null)
+            {
+              showCapturedImage(back);
             }
-            MainView.this.progressBar.setIndeterminate(false);
-            MainView.this.progressBar.repaint();
           }
-          MainView.this.captureImageButton.setEnabled(true);
-          MainView.this.capturing = false;
+        });
+      }
+    }
+
+    public void captureFailed(final Exception ex)
+    {
+      SwingUtilities.invokeLater(new Runnable()
+      {
+        public void run()
+        {
+          showCaptureError(ex);
         }
-      }.start();
+      });
+    }
+  });
+
+  private void captureImage()
+  {
+    LaserDevice dev = this.visicutModel1.getSelectedLaserDevice();
+    String url = dev != null ? dev.getCameraURL() : null;
+    try
+    {
+      cameraCapture.setUrl(url);
+    }
+    catch (MalformedURLException ex)
+    {
+      this.dialog.showErrorMessage(ex, bundle.getString("ERROR CAPTURING PHOTO"));
+      return;
+    }
+    if (url == null || "".equals(url))
+    {
+      this.jmLiveCamera.setSelected(false);
+      return;
+    }
+    if (!cameraCapture.isLive())
+    {
+      this.progressBar.setStringPainted(true);
+      this.progressBar.setString(bundle.getString("CAPTURING PHOTO..."));
+      this.progressBar.setIndeterminate(true);
+    }
+    cameraCapture.capture();
+  }
+
+  private void showCapturedImage(BufferedImage back)
+  {
+    if (this.visicutModel1.getBackgroundImage() == null)
+    {//First Time Image is Captured => resize View
+      this.previewPanel.setZoom(100d);
+    }
+    this.visicutModel1.setBackgroundImage(back);
+    if (!this.jmShowPhoto.isSelected())
+    {
+      this.jmShowPhoto.setSelected(true);
+    }
+    this.progressBar.setString("");
+    this.progressBar.setStringPainted(false);
+    this.progressBar.setIndeterminate(false);
+  }
+
+  private void showCaptureError(Exception ex)
+  {
+    this.jmLiveCamera.setSelected(false);
+    this.visicutModel1.setBackgroundImage(null);
+    this.progressBar.setString("");
+    this.progressBar.setIndeterminate(false);
+    ex.printStackTrace();
+    if (ex instanceof HttpFrameReader.HttpException)
+    {
+      // The server sent an error message, display it
+      // This can be used by VisiCam to show an error message like "marker not found"
+      HttpFrameReader.HttpException hex = (HttpFrameReader.HttpException) ex;
+      this.dialog.showWarningMessage(bundle.getString("ERROR CAPTURING PHOTO") + ": " + hex.getMessage() + "\n(HTTP " + hex.getResponseCode() + ")");
+    }
+    else if (ex instanceof SocketException)
+    {
+      // Network error like "port not found"
+      this.dialog.showWarningMessage(bundle.getString("ERROR CAPTURING PHOTO") + ": " + ex.getLocalizedMessage());
+    }
+    else if (ex instanceof IOException)
+    {
+      this.dialog.showWarningMessage(bundle.getString("ERROR CAPTURING PHOTO") + ": " + ex.toString());
+    }
+    else
+    {
+      this.dialog.showErrorMessage(ex, bundle.getString("ERROR CAPTURING PHOTO"));
     }
   }
   
@@ -2119,6 +2254,7 @@ private void materialComboBoxActionPerformed(java.awt.event.ActionEvent evt) {//
       this.visicutModel1.setSelectedLaserDevice(newDev);
       if (this.visicutModel1.getSelectedLaserDevice() == null || this.visicutModel1.getSelectedLaserDevice().getCameraURL() == null || "".equals(this.visicutModel1.getSelectedLaserDevice().getCameraURL()))
       {
+        this.jmLiveCamera.setSelected(false);
         this.visicutModel1.setBackgroundImage(null);
       }
       else
@@ -2865,6 +3001,7 @@ private void jmDownloadSettingsActionPerformed(java.awt.event.ActionEvent evt) {
     private javax.swing.JMenuItem jmImportSettings;
     private javax.swing.JMenuItem jmInstallIllustrator;
     private javax.swing.JMenuItem jmInstallInkscape;
+    private javax.swing.JCheckBoxMenuItem jmLiveCamera;
     private javax.swing.JMenuItem jmManageLaserprofiles;
     private javax.swing.JMenuItem jmPreferences;
     private javax.swing.JCheckBoxMenuItem jmShowPhoto;
@@ -0,0 +1,132 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.gui;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the stages of the application startup and measures them.
+ * Stages which do not depend on each other (e.g. the settings catalogs)
+ * are run in the background, everything which needs their result just
+ * waits for their first load to finish.
+ *
+ * The duration of each stage is logged and printed with --debug.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+class StartupLoader
+{
+
+  private final long start = System.nanoTime();
+  private final List<String> timings = new LinkedList<String>();
+  private boolean finished = false;
+  private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory()
+  {
+    private int count = 0;
+
+    public synchronized Thread newThread(Runnable r)
+    {
+      Thread t = new Thread(r, "Startup-"+(++count));
+      t.setDaemon(true);
+      return t;
+    }
+  });
+
+  /**
+   * Runs the given stage on the calling thread
+   */
+  void run(String name, Runnable stage)
+  {
+    long started = System.nanoTime();
+    try
+    {
+      stage.run();
+    }
+    finally
+    {
+      record(name, started);
+    }
+  }
+
+  /**
+   * Runs the given stage in the background
+   */
+  void submit(final String name, final Runnable stage)
+  {
+    executor.submit(new Runnable()
+    {
+      public void run()
+      {
+        try
+        {
+          StartupLoader.this.run(name, stage);
+        }
+        catch (RuntimeException e)
+        {
+          Logger.getLogger(StartupLoader.class.getName()).log(Level.SEVERE, null, e);
+        }
+      }
+    });
+  }
+
+  private synchronized void record(String name, long started)
+  {
+    long now = System.nanoTime();
+    String line = "Startup: "+name+" took "+(now - started) / 1000000+" ms (finished after "+(now - start) / 1000000+" ms)";
+    Logger.getLogger(StartupLoader.class.getName()).log(Level.FINE, line);
+    if (finished)
+    {
+      print(line);
+    }
+    else
+    {
+      timings.add(line);
+    }
+  }
+
+  private void print(String line)
+  {
+    if (VisicutApp.GLOBAL_LOG_LEVEL.intValue() <= Level.FINE.intValue())
+    {
+      System.out.println(line);
+    }
+  }
+
+  /**
+   * Called when the main window is shown. Prints the timings so far,
+   * background stages finishing later are printed when they are done.
+   */
+  synchronized void finish()
+  {
+    finished = true;
+    for (String line : timings)
+    {
+      print(line);
+    }
+    timings.clear();
+    print("Startup: window shown after "+(System.nanoTime() - start) / 1000000+" ms");
+    executor.shutdown();
+  }
+}
@@ -22,6 +22,7 @@ import com.t_oster.liblasercut.LaserCutter;
 import com.t_oster.liblasercut.LaserProperty;
 import com.t_oster.liblasercut.LibInfo;
 import com.t_oster.liblasercut.ProgressListener;
+import com.t_oster.visicut.BatchProcessor;
 import com.t_oster.visicut.VisicutModel;
 import com.t_oster.visicut.managers.LaserDeviceManager;
 import com.t_oster.visicut.managers.LaserPropertyManager;
@@ -35,12 +36,10 @@ import com.t_oster.visicut.misc.Helper;
 import com.t_oster.visicut.model.LaserDevice;
 import com.t_oster.visicut.model.LaserProfile;
 import com.t_oster.visicut.model.MaterialProfile;
-import com.t_oster.visicut.model.PlfPart;
-import com.t_oster.visicut.model.mapping.Mapping;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -62,6 +61,7 @@ public class VisicutApp extends SingleFrameApplication
 
   private MainView mainView;
   private File loadedFile;
+  private StartupLoader startupLoader = new StartupLoader();
 
   /**
    * At startup create and show the main frame of the application.
@@ -69,8 +69,15 @@ public class VisicutApp extends SingleFrameApplication
   @Override
   protected void startup()
   {
-    mainView = loadedFile == null ? new MainView() : new MainView(loadedFile);
-    show(mainView);
+    startupLoader.run("main window", new Runnable()
+    {
+      public void run()
+      {
+        mainView = loadedFile == null ? new MainView() : new MainView(loadedFile);
+        show(mainView);
+      }
+    });
+    startupLoader.finish();
   }
 
   /**
@@ -95,7 +102,22 @@ public class VisicutApp extends SingleFrameApplication
   @Override
   protected void initialize(String[] args)
   {
-    VisicutModel.getInstance().setPreferences(PreferencesManager.getInstance().getPreferences());
+    startupLoader.run("preferences", new Runnable()
+    {
+      public void run()
+      {
+        VisicutModel.getInstance().setPreferences(PreferencesManager.getInstance().getPreferences());
+      }
+    });
+    //the extracted files back the open parts until VisiCut exits
+    Runtime.getRuntime().addShutdownHook(new Thread()
+    {
+      @Override
+      public void run()
+      {
+        VisicutModel.getInstance().deleteExtractedFiles();
+      }
+    });
     try
     {
       this.processProgramArguments(args);
@@ -116,6 +138,12 @@ public class VisicutApp extends SingleFrameApplication
    */
   public static void main(String[] args)
   {
+    if (Arrays.asList(args).contains("--batch"))
+    {
+      //no Swing at all, so this also works without a display
+      System.setProperty("java.awt.headless", "true");
+      System.exit(runBatch(args));
+    }
     //Mac Specific
     if (Helper.isMacOS())
     {
@@ -242,6 +270,8 @@ public class VisicutApp extends SingleFrameApplication
             System.out.println("Usage: visicut [-h|--help|-v|--version]");
             System.out.println("\t visicut [options] [<filename>]");
             System.out.println("\t visicut [options] --execute filename");
+            System.out.println("\t visicut [options] --batch [--threads <n>] <file.plf|folder>...");
+            System.out.println("\t visicut [options] --batch [--threads <n>] --watch <folder>");
             System.out.println("Options are:");
             System.out.println(" --material <materialname e.g. \"Acrylic Glass 2mm\">");
             System.out.println(" --laserdevice <laserdevice e.g. \"Epilog ZING @ Miltons Office\">");
@@ -249,6 +279,8 @@ public class VisicutApp extends SingleFrameApplication
             System.out.println(" --total-height <Height in mm e.g. \"2.5\"> (only valid with --execute)");
             System.out.println(" --singleinstanceport <port> (Tries to open the given port, to check for running instances)");
             System.out.println(" --basepath <path> \t Sets VisiCuts settings directory (default is $HOME/.visicut)");
+            System.out.println(" --threads <n> \t Number of jobs prepared at the same time (only valid with --batch, default 2)");
+            System.out.println(" --watch <folder> \t Sends PLF files put into the folder and moves them to done/ or failed/ (only valid with --batch)");
             System.out.println(" --gtkfilechooser (experimental)");
             System.exit(0);
           }
@@ -325,6 +357,9 @@ public class VisicutApp extends SingleFrameApplication
         }
       });
     }
+    //not before the handoff above, an instance which only passes
+    //its file to the running one does not need the catalogs
+    this.loadCatalogsInBackground();
     if (laserdevice != null)
     {
       search:
@@ -372,26 +407,30 @@ public class VisicutApp extends SingleFrameApplication
         System.err.println("Can not find file: " + file);
         System.exit(1);
       }
-      try
+      //without --execute, the main window loads the file once it is shown
+      if (execute)
       {
-        LinkedList<String> warnings = new LinkedList<String>();
-        model.loadFile(MappingManager.getInstance(), f, warnings, false);
-        if (execute && !VisicutModel.PLFFilter.accept(f))
+        try
         {
-          System.err.println("WARNING: execut parameter is only valid for PLF files. Will be ignored");
+          LinkedList<String> warnings = new LinkedList<String>();
+          model.loadFile(MappingManager.getInstance(), f, warnings, false);
+          if (!VisicutModel.PLFFilter.accept(f))
+          {
+            System.err.println("WARNING: execut parameter is only valid for PLF files. Will be ignored");
+          }
+          for(String s : warnings)
+          {
+            System.err.println("WARNING: "+s);
+          }
         }
-        for(String s : warnings)
+        catch (Exception ex)
         {
-          System.err.println("WARNING: "+s);
+          Logger.getLogger(VisicutApp.class.getName()).log(Level.SEVERE, null, ex);
+          System.err.println("Error loading file "+f+" :"+ex.getMessage());
+          System.exit(1);
         }
-        this.loadedFile = f;
-      }
-      catch (Exception ex)
-      {
-        Logger.getLogger(VisicutApp.class.getName()).log(Level.SEVERE, null, ex);
-        System.err.println("Error loading file "+f+" :"+ex.getMessage());
-        System.exit(1);
       }
+      this.loadedFile = f;
     }
     if (execute && file.toLowerCase().endsWith("plf"))
     {
@@ -405,25 +444,12 @@ public class VisicutApp extends SingleFrameApplication
         System.err.println("No Material selected");
         System.exit(1);
       }
-      Map<LaserProfile, List<LaserProperty>> propmap = new LinkedHashMap<LaserProfile, List<LaserProperty>>();
       //check if all settings are available
-      for (PlfPart part : model.getPlfFile())
+      Map<LaserProfile, List<LaserProperty>> propmap = BatchProcessor.collectLaserProperties(model);
+      if (propmap == null)
       {
-        for (Mapping ms : part.getMapping())
-        {
-          LaserProfile p = ms.getProfile();
-          if (p == null)
-          {
-            continue;
-          }
-          List<LaserProperty> list = LaserPropertyManager.getInstance().getLaserProperties(model.getSelectedLaserDevice(), model.getMaterial(), ms.getProfile(), model.getMaterialThickness());
-          if (list == null)
-          {
-            System.err.println("Combination of Laserdevice, Material and Mapping is not supported");
-            System.exit(1);
-          }
-          propmap.put(p, list);
-        }
+        System.err.println("Combination of Laserdevice, Material and Mapping is not supported");
+        System.exit(1);
       }
       try
       {
@@ -457,6 +483,190 @@ public class VisicutApp extends SingleFrameApplication
     }
   }
 
+  /**
+   * Headless batch mode: prepares and sends the given PLF files (or the
+   * ones put into a watched folder) without starting the user interface.
+   * @return the exit code
+   */
+  private static int runBatch(String[] args)
+  {
+    String laserdevice = null;
+    String material = null;
+    Float height = null;
+    String basepath = null;
+    String watch = null;
+    int threads = 2;
+    List<File> files = new LinkedList<File>();
+    try
+    {
+      for (int i = 0; i < args.length; i++)
+      {
+        String s = args[i];
+        if ("--batch".equals(s))
+        {
+          continue;
+        }
+        else if ("--debug".equals(s) || "-d".equals(s))
+        {
+          GLOBAL_LOG_LEVEL = Level.FINE;
+        }
+        else if ("--basepath".equals(s) || "-b".equals(s))
+        {
+          basepath = args[++i];
+        }
+        else if ("--laserdevice".equals(s))
+        {
+          laserdevice = args[++i];
+        }
+        else if ("--material".equals(s))
+        {
+          material = args[++i];
+        }
+        else if ("--total-height".equals(s))
+        {
+          height = Float.parseFloat(args[++i]);
+        }
+        else if ("--threads".equals(s))
+        {
+          threads = Integer.parseInt(args[++i]);
+        }
+        else if ("--watch".equals(s))
+        {
+          watch = args[++i];
+        }
+        else if (s.startsWith("-"))
+        {
+          System.err.println("Unknown or unsupported option in batch mode: " + s);
+          System.err.println("Use -h or --help for help");
+          return 1;
+        }
+        else
+        {
+          files.add(new File(s));
+        }
+      }
+    }
+    catch (Exception e)
+    {
+      System.err.println("Bad command line argumantes.");
+      System.err.println("Use -h or --help for help");
+      return 1;
+    }
+    if (basepath != null)
+    {
+      Helper.setBasePath(new File(basepath));
+    }
+    LaserDevice device = null;
+    if (laserdevice != null)
+    {
+      for (LaserDevice ld : LaserDeviceManager.getInstance().getAll())
+      {
+        if (ld.getName().equals(laserdevice))
+        {
+          device = ld;
+        }
+      }
+      if (device == null)
+      {
+        System.err.println("No such Laserdevice: " + laserdevice);
+        return 1;
+      }
+    }
+    MaterialProfile mp = null;
+    if (material != null)
+    {
+      for (MaterialProfile m : MaterialManager.getInstance().getAll())
+      {
+        if (material.equals(m.getName()))
+        {
+          mp = m;
+        }
+      }
+      if (mp == null)
+      {
+        System.err.println("Material " + material + " not available");
+        return 1;
+      }
+    }
+    BatchProcessor batch = new BatchProcessor(PreferencesManager.getInstance().getPreferences(), device, mp, height, threads);
+    try
+    {
+      if (watch != null)
+      {
+        File folder = new File(watch);
+        if (!folder.isDirectory())
+        {
+          System.err.println("Can not find folder: " + watch);
+          return 1;
+        }
+        System.out.println("Watching " + folder.getAbsolutePath() + " for PLF files");
+        batch.watch(folder, 1000);
+        return 0;
+      }
+      if (files.isEmpty())
+      {
+        System.err.println("No files given");
+        return 1;
+      }
+      long start = System.currentTimeMillis();
+      int failed = 0;
+      List<BatchProcessor.Result> results = batch.processAll(files);
+      for (BatchProcessor.Result r : results)
+      {
+        if (!r.isSuccess())
+        {
+          failed++;
+        }
+      }
+      System.out.println(results.size() + " jobs, " + failed + " failed, " + (System.currentTimeMillis() - start) + " ms");
+      return failed == 0 ? 0 : 1;
+    }
+    catch (InterruptedException ex)
+    {
+      return 1;
+    }
+    finally
+    {
+      batch.shutdown();
+    }
+  }
+
+  /**
+   * Starts loading the settings catalogs, each on its own thread.
+   * The managers block callers of getAll until their first load is done.
+   */
+  private void loadCatalogsInBackground()
+  {
+    startupLoader.submit("laser devices", new Runnable()
+    {
+      public void run()
+      {
+        LaserDeviceManager.getInstance().getAll();
+      }
+    });
+    startupLoader.submit("materials", new Runnable()
+    {
+      public void run()
+      {
+        MaterialManager.getInstance().getAll();
+      }
+    });
+    startupLoader.submit("profiles", new Runnable()
+    {
+      public void run()
+      {
+        ProfileManager.getInstance().getAll();
+      }
+    });
+    startupLoader.submit("mappings", new Runnable()
+    {
+      public void run()
+      {
+        MappingManager.getInstance().getAll();
+      }
+    });
+  }
+
   private void convertSettings()
   {
     System.out.println("Converting settings...");
@@ -351,6 +351,30 @@ public class PreviewPanel extends ZoomablePanel implements PropertyChangeListene
       this.renderBuffers.clear();
     }
   }
+
+  /**
+   * Returns true if no preview images are being rendered in background
+   */
+  public boolean isRenderingFinished()
+  {
+    synchronized(this.renderBuffers)
+    {
+      for (HashMap<Mapping,ImageProcessingThread> renderBuffer : this.renderBuffers.values())
+      {
+        synchronized (renderBuffer)
+        {
+          for (ImageProcessingThread thr : renderBuffer.values())
+          {
+            if (!thr.isFinished())
+            {
+              return false;
+            }
+          }
+        }
+      }
+    }
+    return true;
+  }
   public static final String PROP_SHOW_BACKGROUNDIMAGE = "showBackgroundImage";
   protected boolean showBackgroundImage = true;
 
@@ -23,10 +23,22 @@ import com.t_oster.visicut.VisicutModel;
 import com.t_oster.visicut.gui.MainView;
 import com.t_oster.visicut.model.PlfPart;
 import com.t_oster.uicomponents.parameter.ParameterTableModel;
+import com.t_oster.visicut.model.graphicelements.GraphicSet;
 import com.t_oster.visicut.model.graphicelements.psvgsupport.ParametricPlfPart;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 
@@ -64,45 +76,155 @@ public class ParameterPanel extends javax.swing.JPanel
     {
       public void tableChanged(TableModelEvent tme)
       {
-        if (!ignoreChanges)
+        if (!ignoreChanges && shownPart != null)
         {
-          applyParameters();
+          //the selection may change before the timer fires
+          changedPart = shownPart;
+          renderTimer.restart();
         }
       }
     });
+    renderTimer.setRepeats(false);
   }
   private boolean ignoreChanges = false;
+  /**
+   * The part whose parameters are shown in the table
+   */
+  private ParametricPlfPart shownPart = null;
+  /**
+   * The part whose parameters have been changed since the timer started
+   */
+  private ParametricPlfPart changedPart = null;
+
+  /**
+   * Parameter changes are collected for this many milliseconds before
+   * the part is rendered again, so dragging a value does not queue
+   * a rendering for every intermediate step.
+   */
+  private static final int RENDER_DELAY = 100;
+  private final Timer renderTimer = new Timer(RENDER_DELAY, new ActionListener()
+  {
+    public void actionPerformed(ActionEvent ae)
+    {
+      applyParameters();
+    }
+  });
+
+  /**
+   * Renders off the EDT. There is at most one rendering in progress,
+   * changes made meanwhile are rendered once it has finished.
+   */
+  private final ExecutorService renderExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+  {
+    public Thread newThread(Runnable r)
+    {
+      Thread t = new Thread(r, "ParameterRenderer");
+      t.setDaemon(true);
+      return t;
+    }
+  });
+  private boolean rendering = false;
+  /**
+   * Parts changed while another rendering was in progress
+   */
+  private final Set<ParametricPlfPart> pendingParts = new LinkedHashSet<ParametricPlfPart>();
 
+  /**
+   * Renders the part whose parameters have been changed, without
+   * waiting for the timer
+   */
   private void applyParameters()
   {
-    ignoreChanges = true;
-    PlfPart p = VisicutModel.getInstance().getSelectedPart();
-    if (p != null && p instanceof ParametricPlfPart)
+    renderTimer.stop();
+    ParametricPlfPart part = changedPart;
+    changedPart = null;
+    if (part != null)
     {
-      try
+      render(part);
+    }
+  }
+
+  private void render(final ParametricPlfPart part)
+  {
+    if (rendering)
+    {
+      pendingParts.add(part);
+      return;
+    }
+    final Callable<GraphicSet> task = part.createRenderTask();
+    rendering = true;
+    renderExecutor.submit(new Runnable()
+    {
+      public void run()
       {
-        ((ParametricPlfPart) p).applyParameters();
-        VisicutModel.getInstance().firePartUpdated(p);
+        GraphicSet result = null;
+        Exception error = null;
+        try
+        {
+          result = task.call();
+        }
+        catch (Exception e)
+        {
+          error = e;
+        }
+        final GraphicSet objects = result;
+        final Exception exception = error;
+        SwingUtilities.invokeLater(new Runnable()
+        {
+          public void run()
+          {
+            renderingFinished(part, objects, exception);
+          }
+        });
       }
-      catch (Exception e)
+    });
+  }
+
+  private void renderingFinished(ParametricPlfPart part, GraphicSet objects, Exception e)
+  {
+    rendering = false;
+    VisicutModel vm = VisicutModel.getInstance();
+    if (vm.getPlfFile().contains(part))
+    {
+      if (e != null)
       {
         MainView.getInstance().getDialog().showErrorMessage(e);
       }
+      else
+      {
+        ignoreChanges = true;
+        part.setRenderedObjects(objects);
+        vm.firePartUpdated(part);
+        ignoreChanges = false;
+      }
+    }
+    Iterator<ParametricPlfPart> pending = pendingParts.iterator();
+    if (pending.hasNext())
+    {
+      ParametricPlfPart next = pending.next();
+      pending.remove();
+      render(next);
     }
-    ignoreChanges = false;
   }
 
   public void refresh()
   {
+    //render changes of the old part before its parameters are replaced
+    if (renderTimer.isRunning())
+    {
+      applyParameters();
+    }
     ignoreChanges = true;
     PlfPart p = VisicutModel.getInstance().getSelectedPart();
     if (p != null && p instanceof ParametricPlfPart)
     {
-      Map<String, Parameter> params = ((ParametricPlfPart) p).getParameters();
+      shownPart = (ParametricPlfPart) p;
+      Map<String, Parameter> params = shownPart.getParameters();
       model.setParameterMap(params);
     }
     else
     {
+      shownPart = null;
       model.setParameterMap(null);
     }
     ignoreChanges = false;
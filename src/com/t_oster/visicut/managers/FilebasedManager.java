@@ -21,11 +21,18 @@ package com.t_oster.visicut.managers;
 import com.t_oster.visicut.misc.FileUtils;
 import com.t_oster.visicut.misc.Helper;
 import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.beans.XMLDecoder;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,14 +44,25 @@ import java.util.logging.Logger;
 public abstract class FilebasedManager<T>
 {
 
-  private XStream xstream = null;
+  private volatile XStream xstream = null;
+  private final Object xstreamLock = new Object();
   protected final XStream getXStream()
   {
-    if (xstream == null)
+    XStream xs = xstream;
+    if (xs == null)
     {
-      xstream = createXStream(); 
+      //not synchronized on this: getAll holds that lock while the files
+      //are read on other threads, which need the XStream as well
+      synchronized (xstreamLock)
+      {
+        if (xstream == null)
+        {
+          xstream = createXStream(); 
+        }
+        xs = xstream;
+      }
     }
-    return xstream;
+    return xs;
   }
   protected XStream createXStream()
   {
@@ -63,39 +81,222 @@ public abstract class FilebasedManager<T>
     pcs.removePropertyChangeListener(l);
   }
 
+  /**
+   * Has to be increased whenever the snapshot format changes
+   */
+  private static final int SNAPSHOT_VERSION = 1;
+  private static final int SNAPSHOT_MAGIC = 0x56434353;
+
   private List<T> loadFromDirectory(File dir)
   {
     List<T> result = new LinkedList<T>();
     if (dir.isDirectory())
     {
-      for (File f : dir.listFiles())
+      File[] files = dir.listFiles(new FileFilter()
       {
-        if (f.isFile() && f.getAbsolutePath().toLowerCase().endsWith(".xml"))
+        public boolean accept(File f)
         {
-          try
+          return f.isFile() && f.getAbsolutePath().toLowerCase().endsWith(".xml");
+        }
+      });
+      Arrays.sort(files);
+      List<T> loaded = this.loadSnapshot(files);
+      if (loaded == null)
+      {
+        loaded = this.loadInParallel(files);
+        boolean renamed = false;
+        for (int i = 0; i < files.length; i++)
+        {
+          T prof = loaded.get(i);
+          //if file was wrongly named, correct the name
+          if (prof != null && !(files[i].getName().equals(this.getObjectPath(prof).getName())))
           {
-            T prof = this.loadFromFile(f);
-            if (prof != null)
-            {
-              //if file was wrongly named, correct the name
-              if (!(f.getName().equals(this.getObjectPath(prof).getName())))
-              {
-                f.renameTo(new File(f.getParent(), this.getObjectPath(prof).getName()));
-              }
-              result.add(prof);
-            }
+            files[i].renameTo(new File(files[i].getParent(), this.getObjectPath(prof).getName()));
+            renamed = true;
           }
-          catch (Exception ex)
+        }
+        if (!renamed)
+        {
+          this.writeSnapshot(files, loaded);
+        }
+      }
+      for (T prof : loaded)
+      {
+        if (prof != null)
+        {
+          this.resolveThumbnail(prof, dir);
+          result.add(prof);
+        }
+      }
+    }
+    Collections.sort(result, this.getComparator());
+    return result;
+  }
+
+  /**
+   * Reads the given files on all available processors
+   * @return the objects in the order of the files, null for invalid files
+   */
+  private List<T> loadInParallel(File[] files)
+  {
+    //XStream is thread safe once it is configured
+    this.getXStream();
+    List<T> result = new ArrayList<T>(files.length);
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(files.length, Runtime.getRuntime().availableProcessors())));
+    try
+    {
+      List<Future<T>> futures = new ArrayList<Future<T>>(files.length);
+      for (final File f : files)
+      {
+        futures.add(executor.submit(new Callable<T>()
+        {
+          public T call() throws Exception
           {
-            Logger.getLogger(FilebasedManager.class.getName()).log(Level.SEVERE, null, ex);
+            return decodeFile(f);
           }
+        }));
+      }
+      for (Future<T> future : futures)
+      {
+        T prof = null;
+        try
+        {
+          prof = future.get();
+        }
+        catch (InterruptedException ex)
+        {
+          Logger.getLogger(FilebasedManager.class.getName()).log(Level.SEVERE, null, ex);
         }
+        catch (ExecutionException ex)
+        {
+          Logger.getLogger(FilebasedManager.class.getName()).log(Level.SEVERE, null, ex.getCause());
+        }
+        result.add(prof);
       }
     }
-    Collections.sort(result, this.getComparator());
+    finally
+    {
+      executor.shutdown();
+    }
     return result;
   }
 
+  /**
+   * The snapshot contains all objects of the directory in XStream's binary
+   * format, together with the names, modification dates and sizes of the
+   * files they have been read from. If none of the files changed, the
+   * whole catalog is read from the snapshot instead of parsing each file.
+   * Snapshots are kept in the cache folder, so they are not part of
+   * exported settings, in a subfolder per settings folder.
+   */
+  private File getSnapshotFile()
+  {
+    String settings = Integer.toHexString(Helper.getBasePath().getAbsolutePath().hashCode());
+    return new File(new File(new File(Helper.getCachePath(), "catalogcache"), settings), getSubfolderName().replace(File.separatorChar, '_')+".bin");
+  }
+
+  private void invalidateSnapshot()
+  {
+    File f = this.getSnapshotFile();
+    if (f.exists())
+    {
+      f.delete();
+    }
+  }
+
+  /**
+   * @return the objects in the order of the files or null
+   * if there is no valid snapshot for them
+   */
+  @SuppressWarnings("unchecked")
+  private List<T> loadSnapshot(File[] files)
+  {
+    File snapshot = this.getSnapshotFile();
+    if (!snapshot.isFile())
+    {
+      return null;
+    }
+    try
+    {
+      byte[] content = new byte[(int) snapshot.length()];
+      DataInputStream in = new DataInputStream(new FileInputStream(snapshot));
+      try
+      {
+        in.readFully(content);
+      }
+      finally
+      {
+        in.close();
+      }
+      in = new DataInputStream(new ByteArrayInputStream(content));
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION || in.readInt() != files.length)
+      {
+        return null;
+      }
+      for (File f : files)
+      {
+        if (!f.getName().equals(in.readUTF()) || f.lastModified() != in.readLong() || f.length() != in.readLong())
+        {
+          return null;
+        }
+      }
+      List<T> result = (List<T>) this.getXStream().unmarshal(new BinaryStreamReader(in));
+      return result.size() == files.length ? result : null;
+    }
+    catch (Exception ex)
+    {
+      //outdated or damaged snapshot, the files are read instead
+      return null;
+    }
+  }
+
+  private void writeSnapshot(File[] files, List<T> objects)
+  {
+    File snapshot = this.getSnapshotFile();
+    File tmp = null;
+    try
+    {
+      snapshot.getParentFile().mkdirs();
+      tmp = File.createTempFile(snapshot.getName(), ".tmp", snapshot.getParentFile());
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try
+      {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(files.length);
+        for (File f : files)
+        {
+          out.writeUTF(f.getName());
+          out.writeLong(f.lastModified());
+          out.writeLong(f.length());
+        }
+        BinaryStreamWriter writer = new BinaryStreamWriter(out);
+        this.getXStream().marshal(new ArrayList<T>(objects), writer);
+        writer.flush();
+      }
+      finally
+      {
+        out.close();
+      }
+      if (!tmp.renameTo(snapshot))
+      {
+        snapshot.delete();
+        tmp.renameTo(snapshot);
+      }
+    }
+    catch (Exception ex)
+    {
+      Logger.getLogger(FilebasedManager.class.getName()).log(Level.SEVERE, null, ex);
+    }
+    finally
+    {
+      if (tmp != null && tmp.exists())
+      {
+        tmp.delete();
+      }
+    }
+  }
+
   protected abstract String getSubfolderName();
   
   public void reload()
@@ -130,6 +331,7 @@ public abstract class FilebasedManager<T>
   
   private void deleteObject(T mp)
   {
+    this.invalidateSnapshot();
     File f = getObjectPath(mp);
     if (f.exists())
     {
@@ -176,6 +378,7 @@ public abstract class FilebasedManager<T>
   
   public void save(T mp, File f) throws FileNotFoundException, IOException
   {
+    this.invalidateSnapshot();
     if (!f.getParentFile().exists())
     {
       f.getParentFile().mkdirs();
@@ -205,6 +408,16 @@ public abstract class FilebasedManager<T>
     this.setThumbnail(mp, Helper.addParentPath(f.getParentFile(), this.getThumbnail(mp)));
   }
   
+  /**
+   * Writes the given object as XML to the stream. Unlike save(T, File)
+   * thumbnails are not copied or relativized.
+   */
+  public void save(T mp, OutputStream out) throws IOException
+  {
+    this.getXStream().toXML(mp, out);
+    out.flush();
+  }
+
   private T loadFromOldFile(File f)
   {
     try
@@ -221,6 +434,20 @@ public abstract class FilebasedManager<T>
   }
   
   public T loadFromFile(File f) throws FileNotFoundException, IOException
+  {
+    T result = this.decodeFile(f);
+    if (result != null)
+    {
+      this.resolveThumbnail(result, f.getParentFile());
+    }
+    return result;
+  }
+
+  /**
+   * Reads the object from the file as it is stored, without
+   * resolving the thumbnail path. May be called from any thread.
+   */
+  private T decodeFile(File f) throws FileNotFoundException, IOException
   {
     FileInputStream fin = new FileInputStream(f);
     T result = this.loadFromFile(fin);
@@ -233,15 +460,16 @@ public abstract class FilebasedManager<T>
     {
       System.err.println("Error reading: "+f.getAbsolutePath()+". Invalid File Format (created with old VisiCut version?)");    
     }
-    else
+    return result;
+  }
+
+  private void resolveThumbnail(T result, File dir)
+  {
+    this.setThumbnail(result, Helper.addParentPath(dir, this.getThumbnail(result)));
+    if (this.getThumbnail(result) == null && this.generateThumbnailPath(result).exists())
     {
-      this.setThumbnail(result, Helper.addParentPath(f.getParentFile(), this.getThumbnail(result)));
-      if (this.getThumbnail(result) == null && this.generateThumbnailPath(result).exists())
-      {
-        this.setThumbnail(result, this.generateThumbnailPath(result).getAbsolutePath());
-      }
+      this.setThumbnail(result, this.generateThumbnailPath(result).getAbsolutePath());
     }
-    return result;
   }
 
   public T loadFromFile(InputStream in)
@@ -265,7 +493,7 @@ public abstract class FilebasedManager<T>
    *
    * @return the value of materials
    */
-  public List<T> getAll()
+  public synchronized List<T> getAll()
   {
     if (objects == null)
     {
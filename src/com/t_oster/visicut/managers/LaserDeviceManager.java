@@ -40,7 +40,7 @@ public class LaserDeviceManager extends FilebasedManager<LaserDevice>
   
   private static LaserDeviceManager instance;
   
-  public static LaserDeviceManager getInstance()
+  public static synchronized LaserDeviceManager getInstance()
   {
     if (instance == null)
     {
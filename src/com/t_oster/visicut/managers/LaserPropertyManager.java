@@ -43,7 +43,7 @@ public class LaserPropertyManager
 
   private static LaserPropertyManager instance;
 
-  public static LaserPropertyManager getInstance()
+  public static synchronized LaserPropertyManager getInstance()
   {
     if (instance == null)
     {
@@ -97,53 +97,107 @@ public class LaserPropertyManager
     return profile;
   }
 
-  public List<LaserProperty> getLaserProperties(LaserDevice ld, MaterialProfile mp, LaserProfile lp, float materialThickness) throws FileNotFoundException, IOException
+  /**
+   * How long a cached file is trusted before its modification date
+   * and size are checked again
+   */
+  private static final long CHECK_INTERVAL = 2000;
+
+  private static class CacheEntry
+  {
+    /**
+     * The properties as stored in the file, null if there is no file
+     */
+    List<LaserProperty> properties;
+    long lastModified;
+    long length;
+    long checked;
+  }
+
+  private final Map<File, CacheEntry> cache = new HashMap<File, CacheEntry>();
+
+  /**
+   * Drops all cached properties, so they are read from disk again
+   */
+  public synchronized void reload()
+  {
+    cache.clear();
+  }
+
+  private synchronized List<LaserProperty> getStoredProperties(LaserDevice ld, MaterialProfile mp, LaserProfile lp, float materialThickness) throws FileNotFoundException, IOException
   {
     File f = getLaserPropertiesFile(ld, mp, lp, materialThickness);
-    if (!f.exists() && getOldLaserPropertiesFile(ld, mp, lp, materialThickness).exists())
+    long now = System.currentTimeMillis();
+    CacheEntry e = cache.get(f);
+    if (e != null && now - e.checked < CHECK_INTERVAL)
     {
-      File old = getOldLaserPropertiesFile(ld, mp, lp, materialThickness);
-      f.getParentFile().mkdirs();
-      old.renameTo(f);
+      return e.properties;
     }
-    if (f.exists())
+    if (e == null || e.lastModified != f.lastModified() || e.length != f.length())
     {
-      List<LaserProperty> result = this.loadProperties(f);
-      if (result != null)
+      if (!f.exists() && getOldLaserPropertiesFile(ld, mp, lp, materialThickness).exists())
       {
-        //check if it is still the correct type for the laser-cutter
-        for (LaserProperty p : result)
+        File old = getOldLaserPropertiesFile(ld, mp, lp, materialThickness);
+        f.getParentFile().mkdirs();
+        old.renameTo(f);
+      }
+      e = new CacheEntry();
+      e.lastModified = f.lastModified();
+      e.length = f.length();
+      e.properties = f.exists() ? this.loadProperties(f) : null;
+      cache.put(f, e);
+    }
+    e.checked = now;
+    return e.properties;
+  }
+
+  /**
+   * Returns the properties stored for the given combination. The files are
+   * cached and only read again when they changed, the returned properties
+   * are copies which can be modified.
+   */
+  public List<LaserProperty> getLaserProperties(LaserDevice ld, MaterialProfile mp, LaserProfile lp, float materialThickness) throws FileNotFoundException, IOException
+  {
+    List<LaserProperty> stored = this.getStoredProperties(ld, mp, lp, materialThickness);
+    if (stored != null)
+    {
+      List<LaserProperty> result = new LinkedList<LaserProperty>();
+      for (LaserProperty p : stored)
+      {
+        result.add(p.clone());
+      }
+      //check if it is still the correct type for the laser-cutter
+      for (LaserProperty p : result)
+      {
+        LaserProperty expected = null;
+        if (lp instanceof RasterProfile)
         {
-          LaserProperty expected = null;
-          if (lp instanceof RasterProfile)
-          {
-            expected = ld.getLaserCutter().getLaserPropertyForRasterPart();
-          }
-          else if (lp instanceof VectorProfile)
-          {
-            expected = ld.getLaserCutter().getLaserPropertyForVectorPart();
-          }
-          else if (lp instanceof Raster3dProfile)
-          {
-            expected = ld.getLaserCutter().getLaserPropertyForRaster3dPart();
-          }
-          if (!expected.getClass().isAssignableFrom(p.getClass()))
+          expected = ld.getLaserCutter().getLaserPropertyForRasterPart();
+        }
+        else if (lp instanceof VectorProfile)
+        {
+          expected = ld.getLaserCutter().getLaserPropertyForVectorPart();
+        }
+        else if (lp instanceof Raster3dProfile)
+        {
+          expected = ld.getLaserCutter().getLaserPropertyForRaster3dPart();
+        }
+        if (!expected.getClass().isAssignableFrom(p.getClass()))
+        {
+          System.err.println("Tried to load a laser-property of class " + p.getClass().toString() + ", but lasercutter expects " + expected.toString());
+          System.err.println("Trying to copy most values");
+          for (String k : p.getPropertyKeys())
           {
-            System.err.println("Tried to load a laser-property of class " + p.getClass().toString() + ", but lasercutter expects " + expected.toString());
-            System.err.println("Trying to copy most values");
-            for (String k : p.getPropertyKeys())
+            try
             {
-              try
-              {
-                expected.setProperty(k, p.getProperty(k));
-              }
-              catch (Exception e)
-              {
-                System.err.println("Could not transfer property: "+k);
-              }
+              expected.setProperty(k, p.getProperty(k));
+            }
+            catch (Exception e)
+            {
+              System.err.println("Could not transfer property: "+k);
             }
-            result.set(result.indexOf(p), expected);
           }
+          result.set(result.indexOf(p), expected);
         }
       }
       return result;
@@ -154,6 +208,10 @@ public class LaserPropertyManager
   public void deleteLaserProperties(LaserDevice ld, MaterialProfile mp, LaserProfile lp, float materialThickness)
   {
     File f = getLaserPropertiesFile(ld, mp, lp, materialThickness);
+    synchronized (this)
+    {
+      cache.remove(f);
+    }
     if (f.exists())
     {
       f.delete();
@@ -181,6 +239,10 @@ public class LaserPropertyManager
     {
       f.getParentFile().mkdirs();
     }
+    synchronized (this)
+    {
+      cache.remove(f);
+    }
     FileOutputStream out = new FileOutputStream(f);
     getXStream().toXML(lps, out);
     out.close();
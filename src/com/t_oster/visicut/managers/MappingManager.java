@@ -58,7 +58,7 @@ public class MappingManager extends FilebasedManager<MappingSet>
 
   private static MappingManager instance;
 
-  public static MappingManager getInstance()
+  public static synchronized MappingManager getInstance()
   {
     if (instance == null)
     {
@@ -58,7 +58,7 @@ public class MaterialManager extends FilebasedManager<MaterialProfile>
   }
   private static MaterialManager instance;
 
-  public static MaterialManager getInstance()
+  public static synchronized MaterialManager getInstance()
   {
     if (instance == null)
     {
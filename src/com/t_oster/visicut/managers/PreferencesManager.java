@@ -404,6 +404,7 @@ public final class PreferencesManager
       MappingManager.getInstance().reload();
       MaterialManager.getInstance().reload();
       ProfileManager.getInstance().reload();
+      LaserPropertyManager.getInstance().reload();
     }
   }
 }
@@ -47,7 +47,7 @@ public class ProfileManager extends FilebasedManager<LaserProfile>
 
   private static ProfileManager instance;
 
-  public static ProfileManager getInstance()
+  public static synchronized ProfileManager getInstance()
   {
     if (instance == null)
     {
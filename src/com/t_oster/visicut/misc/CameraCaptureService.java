@@ -0,0 +1,305 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.misc;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Captures camera images (e.g. from VisiCam) on a dedicated worker thread.
+ * The connection to the camera is kept open between captures (see
+ * HttpFrameReader) and frames are converted to the screen's image format
+ * before they are handed to the listener, so they can be drawn quickly.
+ *
+ * Capture requests do not queue up: if a capture is requested while
+ * another one is running, exactly one more frame is taken afterwards.
+ * In live mode frames are taken continuously. An MJPEG stream is read
+ * as fast as the camera sends it and closed after a single capture, so
+ * a capture never returns a frame which was buffered in the meantime.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class CameraCaptureService
+{
+
+  public interface Listener
+  {
+    /**
+     * Called on the worker thread for each new frame
+     */
+    void frameCaptured(BufferedImage frame);
+
+    /**
+     * Called on the worker thread if a capture failed.
+     * Live mode is stopped before this is called.
+     */
+    void captureFailed(Exception ex);
+  }
+
+  /**
+   * Minimum time between the start of two frames in live mode
+   */
+  private static final long LIVE_INTERVAL = 200;
+
+  private final Listener listener;
+  private final Object lock = new Object();
+  private HttpFrameReader reader = null;
+  private boolean captureRequested = false;
+  private boolean live = false;
+  private boolean running = true;
+  private Thread worker = null;
+
+  public CameraCaptureService(Listener listener)
+  {
+    this.listener = listener;
+  }
+
+  /**
+   * Sets the camera url. The connection to the old camera is closed.
+   * @param url the url or null/empty to disable capturing
+   */
+  public void setUrl(String url) throws MalformedURLException
+  {
+    HttpFrameReader old;
+    synchronized (lock)
+    {
+      if (reader != null && url != null && reader.getUrl().toString().equals(url))
+      {
+        return;
+      }
+      old = reader;
+      reader = url == null || "".equals(url) ? null : new HttpFrameReader(new URL(url));
+      if (reader == null)
+      {
+        captureRequested = false;
+        live = false;
+      }
+    }
+    if (old != null)
+    {
+      old.close();
+    }
+  }
+
+  /**
+   * Requests a new frame. Returns immediately.
+   */
+  public void capture()
+  {
+    synchronized (lock)
+    {
+      if (reader == null)
+      {
+        return;
+      }
+      captureRequested = true;
+      startWorker();
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Enables or disables continuous capturing
+   */
+  public void setLive(boolean live)
+  {
+    synchronized (lock)
+    {
+      this.live = live && reader != null;
+      if (this.live)
+      {
+        startWorker();
+      }
+      lock.notifyAll();
+    }
+  }
+
+  public boolean isLive()
+  {
+    synchronized (lock)
+    {
+      return live;
+    }
+  }
+
+  /**
+   * Stops the worker thread and closes the camera connection
+   */
+  public void shutdown()
+  {
+    HttpFrameReader r;
+    synchronized (lock)
+    {
+      running = false;
+      r = reader;
+      reader = null;
+      lock.notifyAll();
+    }
+    if (r != null)
+    {
+      r.close();
+    }
+  }
+
+  private void startWorker()
+  {
+    if (worker == null && running)
+    {
+      worker = new Thread("CameraCapture")
+      {
+        @Override
+        public void run()
+        {
+          work();
+        }
+      };
+      worker.setDaemon(true);
+      worker.start();
+    }
+  }
+
+  private void work()
+  {
+    long lastFrame = 0;
+    while (true)
+    {
+      HttpFrameReader r;
+      synchronized (lock)
+      {
+        try
+        {
+          while (running && !captureRequested && !live)
+          {
+            lock.wait();
+          }
+          if (!running)
+          {
+            return;
+          }
+          if (!captureRequested && !(reader != null && reader.isStreaming()))
+          {
+            long wait = lastFrame + LIVE_INTERVAL - System.currentTimeMillis();
+            if (wait > 0)
+            {
+              lock.wait(wait);
+              continue;
+            }
+          }
+        }
+        catch (InterruptedException ex)
+        {
+          return;
+        }
+        captureRequested = false;
+        r = reader;
+      }
+      if (r == null)
+      {
+        continue;
+      }
+      lastFrame = System.currentTimeMillis();
+      try
+      {
+        BufferedImage frame = r.read();
+        if (frame == null)
+        {
+          throw new IOException("Could not decode camera image");
+        }
+        synchronized (lock)
+        {
+          if (r != reader)
+          {
+            //camera has been changed during the capture
+            continue;
+          }
+        }
+        listener.frameCaptured(toCompatibleImage(frame));
+        closeUnlessLive(r);
+      }
+      catch (Exception ex)
+      {
+        synchronized (lock)
+        {
+          if (r != reader || !running)
+          {
+            //connection has been closed on purpose
+            continue;
+          }
+          live = false;
+        }
+        r.close();
+        listener.captureFailed(ex);
+      }
+    }
+  }
+
+  /**
+   * Closes the stream of the reader after a single capture, so frames
+   * do not pile up in the connection until the next one
+   */
+  private void closeUnlessLive(HttpFrameReader r)
+  {
+    synchronized (lock)
+    {
+      if (live && r == reader)
+      {
+        return;
+      }
+    }
+    r.close();
+  }
+
+  /**
+   * Converts the image to the format of the default screen, so drawing
+   * it does not need a conversion on every repaint
+   */
+  private static BufferedImage toCompatibleImage(BufferedImage img)
+  {
+    if (GraphicsEnvironment.isHeadless())
+    {
+      return img;
+    }
+    try
+    {
+      GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+      if (img.getColorModel().equals(gc.getColorModel(Transparency.OPAQUE)))
+      {
+        return img;
+      }
+      BufferedImage result = gc.createCompatibleImage(img.getWidth(), img.getHeight(), Transparency.OPAQUE);
+      Graphics2D g = result.createGraphics();
+      g.drawImage(img, 0, 0, null);
+      g.dispose();
+      return result;
+    }
+    catch (Exception ex)
+    {
+      Logger.getLogger(CameraCaptureService.class.getName()).log(Level.WARNING, null, ex);
+      return img;
+    }
+  }
+}
@@ -258,6 +258,37 @@ public class FileUtils
     zip.close();
   }
 
+  /**
+   * Creates a new, empty directory in the default temporary-file
+   * directory, which is not used by anyone else
+   * @param prefix the prefix of the directory name
+   */
+  public static File createTempDirectory(String prefix) throws IOException
+  {
+    return createTempDirectory(prefix, null);
+  }
+
+  /**
+   * Creates a new, empty directory in the given directory, which is
+   * not used by anyone else
+   * @param prefix the prefix of the directory name
+   * @param parent the parent directory or null for the default
+   * temporary-file directory
+   */
+  public static File createTempDirectory(String prefix, File parent) throws IOException
+  {
+    for (int i = 0; i < 10; i++)
+    {
+      File dir = File.createTempFile(prefix, "", parent);
+      //another thread or process may grab the name between delete and mkdir
+      if (dir.delete() && dir.mkdir())
+      {
+        return dir;
+      }
+    }
+    throw new IOException("Can not create a temporary directory");
+  }
+
   public static void deleteRecursively(File f)
   {
     if (f.exists())
@@ -307,6 +338,34 @@ public class FileUtils
     return stringBuilder.toString();
   }
   
+  /**
+   * Writes the remaining content of the stream to the given file
+   * and closes the stream
+   * @param in
+   * @param file
+   * @throws IOException 
+   */
+  public static void copyStreamToFile(InputStream in, File file) throws IOException
+  {
+    ReadableByteChannel rbc = Channels.newChannel(in);
+    FileOutputStream fos = new FileOutputStream(file);
+    try
+    {
+      FileChannel out = fos.getChannel();
+      long pos = 0;
+      long count;
+      while ((count = out.transferFrom(rbc, pos, FILE_COPY_BUFFER_SIZE)) > 0)
+      {
+        pos += count;
+      }
+    }
+    finally
+    {
+      fos.close();
+      rbc.close();
+    }
+  }
+
   /**
    * Download URL to file
    * @param url
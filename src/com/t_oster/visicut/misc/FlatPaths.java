@@ -0,0 +1,137 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.misc;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+
+/**
+ * Utilities for iterating over shapes approximated by straight lines.
+ * Instead of allocating coordinate arrays for every segment like
+ * most PathIterator loops, all methods reuse one buffer per traversal
+ * and pass primitive coordinates to a Visitor.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class FlatPaths
+{
+
+  /**
+   * Receives the segments of a flattened path
+   */
+  public interface Visitor
+  {
+    public void moveTo(double x, double y);
+
+    public void lineTo(double x, double y);
+
+    /**
+     * Closes the current subpath. The visitor has to remember
+     * the start point itself, if it needs it.
+     */
+    public void closePath();
+  }
+
+  /**
+   * Passes all segments of the given shape, transformed by the given
+   * transform and flattened with the given flatness, to the visitor.
+   * @param s
+   * @param at may be null
+   * @param flatness
+   * @param v 
+   */
+  public static void visit(Shape s, AffineTransform at, double flatness, Visitor v)
+  {
+    visit(s.getPathIterator(at, flatness), v);
+  }
+
+  /**
+   * Passes all segments of the given flattening iterator to the visitor.
+   * @param pi an iterator, which only returns straight segments
+   * @param v 
+   */
+  public static void visit(PathIterator pi, Visitor v)
+  {
+    double[] d = new double[6];
+    while (!pi.isDone())
+    {
+      switch (pi.currentSegment(d))
+      {
+        case PathIterator.SEG_MOVETO:
+          v.moveTo(d[0], d[1]);
+          break;
+        case PathIterator.SEG_LINETO:
+          v.lineTo(d[0], d[1]);
+          break;
+        case PathIterator.SEG_CLOSE:
+          v.closePath();
+          break;
+      }
+      pi.next();
+    }
+  }
+
+  /**
+   * Returns a copy of the given shape, which only consists of
+   * straight line segments, approximating curves with the given flatness
+   * @param s
+   * @param flatness
+   * @return
+   */
+  public static Path2D.Float flatten(Shape s, double flatness)
+  {
+    PathIterator pi = s.getPathIterator(null, flatness);
+    final Path2D.Float result = new Path2D.Float(pi.getWindingRule());
+    visit(pi, new Visitor()
+    {
+      public void moveTo(double x, double y)
+      {
+        result.moveTo(x, y);
+      }
+
+      public void lineTo(double x, double y)
+      {
+        result.lineTo(x, y);
+      }
+
+      public void closePath()
+      {
+        result.closePath();
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Returns the flatness, which has to be used before applying the
+   * given transform, so that the result has the flatness 1.
+   * With non-uniform scaling, the most stretched axis decides.
+   * @param at
+   * @return
+   */
+  public static double getFlatnessFor(AffineTransform at)
+  {
+    double scale = at == null ? 1 : Math.max(
+      Math.hypot(at.getScaleX(), at.getShearY()),
+      Math.hypot(at.getShearX(), at.getScaleY()));
+    return scale > 0 ? 1 / scale : 1;
+  }
+}
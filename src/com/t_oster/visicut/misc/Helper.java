@@ -381,6 +381,39 @@ public class Helper
     basePath = f;
   }
 
+  protected static File cachePath;
+
+  /**
+   * Returns the folder for data which can be recreated at any time
+   * (e.g. the import cache). It is outside of the base path, so it
+   * is not part of exported settings.
+   */
+  public static File getCachePath()
+  {
+    if (cachePath == null)
+    {
+      String localAppData = System.getenv("LOCALAPPDATA");
+      String xdgCache = System.getenv("XDG_CACHE_HOME");
+      if (isWindows() && localAppData != null)
+      {
+        cachePath = new File(new File(localAppData, "VisiCut"), "cache");
+      }
+      else if (isMacOS())
+      {
+        cachePath = new File(new File(new File(FileUtils.getUserDirectory(), "Library"), "Caches"), "VisiCut");
+      }
+      else if (xdgCache != null && xdgCache.length() > 0)
+      {
+        cachePath = new File(xdgCache, "visicut");
+      }
+      else
+      {
+        cachePath = new File(new File(FileUtils.getUserDirectory(), ".cache"), "visicut");
+      }
+    }
+    return cachePath;
+  }
+
   public static String removeParentPath(File parent, String path)
   {
     if (path == null)
@@ -523,66 +556,16 @@ public class Helper
     return new Rectangle.Double(minX, minY, maxX-minX, maxY - minY);
   }
   
+  /**
+   * Returns the smallest BoundingBox, which contains the given Shape
+   * after applying the given transform
+   * @param s
+   * @param t
+   * @return
+   */
   public static Rectangle2D smallestBoundingBox(Shape s, AffineTransform t)
   {
-    double minX = 0;
-    double maxX = 0;
-    double minY = 0;
-    double maxY = 0;
-    PathIterator pi = s.getPathIterator(t, 1);
-    double[] last = null;
-    boolean first = true;
-    while (!pi.isDone())
-    {
-      double[] d = new double[8];
-      switch(pi.currentSegment(d))
-      {
-        case PathIterator.SEG_LINETO:
-        {
-          if (last != null)
-          {
-            if (first)
-            {
-              minX = last[0];
-              maxX = last[0];
-              minY = last[1];
-              maxY = last[1];
-              first = false;
-            }
-            else
-            {
-              if (last[0] < minX) { minX = last[0]; }
-              if (last[0] > maxX) { maxX = last[0]; }
-              if (last[1] < minY) { minY = last[1]; }
-              if (last[1] > maxY) { maxY = last[1]; }
-            }
-          }
-          if (first)
-          {
-            minX = d[0];
-            maxX = d[0];
-            minY = d[1];
-            maxY = d[1];
-            first = false;
-          }
-          else
-          {
-            if (d[0] < minX) { minX = d[0]; }
-            if (d[0] > maxX) { maxX = d[0]; }
-            if (d[1] < minY) { minY = d[1]; }
-            if (d[1] > maxY) { maxY = d[1]; }
-          }
-          break;
-        }
-        case PathIterator.SEG_MOVETO:
-        {
-          last = d;
-          break;
-        }
-      }
-      pi.next();
-    }
-    return new Rectangle.Double(minX, minY, maxX-minX, maxY - minY);
+    return ShapeBounds.getBounds(s, t);
   }
 
   /**
@@ -601,16 +584,7 @@ public class Helper
     }
     else
     {
-      java.awt.Point.Double[] points = new java.awt.Point.Double[4];
-      points[0] = new java.awt.Point.Double(src.getX(), src.getY());
-      points[1] = new java.awt.Point.Double(src.getX(), src.getY()+src.getHeight());
-      points[2] = new java.awt.Point.Double(src.getX()+src.getWidth(), src.getY());
-      points[3] = new java.awt.Point.Double(src.getX()+src.getWidth(), src.getY()+src.getHeight());
-      for (int i=0;i<4;i++)
-      {
-        at.transform(points[i], points[i]);
-      }
-      return smallestBoundingBox(points);
+      return ShapeBounds.getBounds(src, at);
     }
   }
 
@@ -0,0 +1,319 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.misc;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import javax.imageio.ImageIO;
+
+/**
+ * Reads camera frames from an http url (e.g. VisiCam).
+ * If the server answers with a multipart/x-mixed-replace (MJPEG) stream,
+ * the stream is kept open and each call to read returns its next frame.
+ * The server keeps sending frames while the stream is open, so it should
+ * be closed if no frames are needed for a while, otherwise the next call
+ * returns an old frame from the connection's buffer.
+ * Otherwise every call does a new request, but reads the answer completely,
+ * so the underlying connection is kept alive and reused for the next frame.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class HttpFrameReader
+{
+
+  /**
+   * Thrown if the server answers with an http error. The message
+   * is the (shortened) text sent by the server, which VisiCam uses
+   * to report problems like "marker not found".
+   */
+  public static class HttpException extends IOException
+  {
+    private static final long serialVersionUID = 1L;
+    private final int responseCode;
+
+    public HttpException(int responseCode, String message)
+    {
+      super(message);
+      this.responseCode = responseCode;
+    }
+
+    public int getResponseCode()
+    {
+      return responseCode;
+    }
+  }
+
+  private static final int CONNECT_TIMEOUT = 5000;
+  private static final int READ_TIMEOUT = 20000;
+  private static final int MAX_ERROR_MESSAGE = 200;
+
+  private final URL url;
+  private URLConnection stream = null;
+  private InputStream streamInput = null;
+
+  public HttpFrameReader(URL url)
+  {
+    this.url = url;
+  }
+
+  public URL getUrl()
+  {
+    return url;
+  }
+
+  /**
+   * Fetches the next frame
+   * @return the decoded frame, or null if the data could not be decoded
+   */
+  public BufferedImage read() throws IOException
+  {
+    byte[] data;
+    synchronized (this)
+    {
+      if (streamInput == null)
+      {
+        URLConnection conn = url.openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT);
+        conn.setReadTimeout(READ_TIMEOUT);
+        if (conn instanceof HttpURLConnection)
+        {
+          HttpURLConnection http = (HttpURLConnection) conn;
+          int code = http.getResponseCode();
+          if (code != HttpURLConnection.HTTP_OK)
+          {
+            throw new HttpException(code, readErrorMessage(http));
+          }
+        }
+        String type = conn.getContentType();
+        if (type != null && type.toLowerCase().startsWith("multipart/"))
+        {
+          stream = conn;
+          streamInput = new BufferedInputStream(conn.getInputStream());
+        }
+        else
+        {
+          // read the complete answer, so the connection can be reused
+          InputStream in = conn.getInputStream();
+          try
+          {
+            data = readFully(in, conn.getContentLength());
+          }
+          finally
+          {
+            in.close();
+          }
+          return decode(data);
+        }
+      }
+    }
+    try
+    {
+      data = readPart(streamInput);
+    }
+    catch (IOException ex)
+    {
+      close();
+      throw ex;
+    }
+    return decode(data);
+  }
+
+  /**
+   * @return true if an MJPEG stream is open, i.e. the server sends
+   * frames at its own pace
+   */
+  public synchronized boolean isStreaming()
+  {
+    return streamInput != null;
+  }
+
+  /**
+   * Closes an open MJPEG stream. Can be called from another thread
+   * to abort a blocking read.
+   */
+  public void close()
+  {
+    InputStream in;
+    URLConnection conn;
+    synchronized (this)
+    {
+      in = streamInput;
+      conn = stream;
+      streamInput = null;
+      stream = null;
+    }
+    if (in != null)
+    {
+      try
+      {
+        in.close();
+      }
+      catch (IOException ex)
+      {
+        //already closed
+      }
+    }
+    if (conn instanceof HttpURLConnection)
+    {
+      ((HttpURLConnection) conn).disconnect();
+    }
+  }
+
+  private static BufferedImage decode(byte[] data) throws IOException
+  {
+    return ImageIO.read(new ByteArrayInputStream(data));
+  }
+
+  private static String readErrorMessage(HttpURLConnection conn)
+  {
+    InputStream err = conn.getErrorStream();
+    if (err == null)
+    {
+      return "(no message sent)";
+    }
+    try
+    {
+      InputStreamReader reader = new InputStreamReader(err);
+      StringBuilder buffer = new StringBuilder();
+      int c;
+      while ((c = reader.read()) != -1)
+      {
+        buffer.append((char) c);
+        if (buffer.length() > MAX_ERROR_MESSAGE)
+        {
+          buffer.append("...");
+          break;
+        }
+      }
+      reader.close();
+      return buffer.toString();
+    }
+    catch (IOException ex)
+    {
+      return " (could not get error message)";
+    }
+  }
+
+  private static byte[] readFully(InputStream in, int length) throws IOException
+  {
+    if (length >= 0)
+    {
+      byte[] result = new byte[length];
+      int pos = 0;
+      while (pos < length)
+      {
+        int n = in.read(result, pos, length - pos);
+        if (n < 0)
+        {
+          throw new EOFException();
+        }
+        pos += n;
+      }
+      return result;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = in.read(buffer)) != -1)
+    {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads the next part of a multipart stream. Uses the Content-Length
+   * header of the part if there is one, otherwise reads up to the end
+   * of the JPEG image.
+   */
+  private static byte[] readPart(InputStream in) throws IOException
+  {
+    int length = -1;
+    boolean inHeader = false;
+    while (true)
+    {
+      String line = readLine(in);
+      if (line.length() == 0)
+      {
+        if (inHeader)
+        {
+          break;
+        }
+        continue;
+      }
+      inHeader = true;
+      int colon = line.indexOf(':');
+      if (colon > 0 && "content-length".equalsIgnoreCase(line.substring(0, colon).trim()))
+      {
+        try
+        {
+          length = Integer.parseInt(line.substring(colon + 1).trim());
+        }
+        catch (NumberFormatException ex)
+        {
+          length = -1;
+        }
+      }
+    }
+    if (length >= 0)
+    {
+      return readFully(in, length);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int last = -1;
+    int c;
+    while ((c = in.read()) != -1)
+    {
+      out.write(c);
+      if (last == 0xFF && c == 0xD9)
+      {
+        return out.toByteArray();
+      }
+      last = c;
+    }
+    throw new EOFException();
+  }
+
+  private static String readLine(InputStream in) throws IOException
+  {
+    StringBuilder result = new StringBuilder();
+    int c;
+    while ((c = in.read()) != '\n')
+    {
+      if (c == -1)
+      {
+        throw new EOFException();
+      }
+      if (c != '\r')
+      {
+        result.append((char) c);
+      }
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.misc;
+
+import java.awt.Graphics;
+
+/**
+ * A polyline in integer (e.g. screen) coordinates, stored in
+ * primitive arrays which grow as needed and are kept when the
+ * polyline is cleared, so one instance can be reused for
+ * drawing many subpaths.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class Polyline
+{
+
+  private int[] xPoints;
+  private int[] yPoints;
+  private int size = 0;
+
+  public Polyline()
+  {
+    this(64);
+  }
+
+  public Polyline(int initialCapacity)
+  {
+    xPoints = new int[Math.max(initialCapacity, 2)];
+    yPoints = new int[xPoints.length];
+  }
+
+  public void add(int x, int y)
+  {
+    if (size == xPoints.length)
+    {
+      int[] nx = new int[size * 2];
+      int[] ny = new int[size * 2];
+      System.arraycopy(xPoints, 0, nx, 0, size);
+      System.arraycopy(yPoints, 0, ny, 0, size);
+      xPoints = nx;
+      yPoints = ny;
+    }
+    xPoints[size] = x;
+    yPoints[size] = y;
+    size++;
+  }
+
+  public int size()
+  {
+    return size;
+  }
+
+  public int getX(int i)
+  {
+    return xPoints[i];
+  }
+
+  public int getY(int i)
+  {
+    return yPoints[i];
+  }
+
+  public void clear()
+  {
+    size = 0;
+  }
+
+  /**
+   * Draws the polyline, if it contains at least one line
+   * @param g 
+   */
+  public void draw(Graphics g)
+  {
+    if (size > 1)
+    {
+      g.drawPolyline(xPoints, yPoints, size);
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.misc;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Computes tight bounding boxes of shapes without flattening them.
+ * The extrema of quadratic and cubic segments are calculated from
+ * the roots of their derivatives, so curves are bounded exactly
+ * instead of by their control points.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class ShapeBounds
+{
+
+  private static final int MIN_X = 0;
+  private static final int MIN_Y = 1;
+  private static final int MAX_X = 2;
+  private static final int MAX_Y = 3;
+  
+  private double[] bounds = new double[4];
+  private boolean empty = true;
+  
+  /**
+   * Resets the bounds, so that the next point added
+   * defines them
+   */
+  public void clear()
+  {
+    empty = true;
+  }
+  
+  public boolean isEmpty()
+  {
+    return empty;
+  }
+  
+  public void add(double x, double y)
+  {
+    if (empty)
+    {
+      bounds[MIN_X] = x;
+      bounds[MAX_X] = x;
+      bounds[MIN_Y] = y;
+      bounds[MAX_Y] = y;
+      empty = false;
+    }
+    else
+    {
+      if (x < bounds[MIN_X]) { bounds[MIN_X] = x; }
+      if (x > bounds[MAX_X]) { bounds[MAX_X] = x; }
+      if (y < bounds[MIN_Y]) { bounds[MIN_Y] = y; }
+      if (y > bounds[MAX_Y]) { bounds[MAX_Y] = y; }
+    }
+  }
+  
+  /**
+   * Adds the given rectangle after applying the given transform
+   * @param r
+   * @param at may be null
+   */
+  public void add(Rectangle2D r, AffineTransform at)
+  {
+    double x0 = r.getX();
+    double y0 = r.getY();
+    double x1 = x0 + r.getWidth();
+    double y1 = y0 + r.getHeight();
+    if (at == null)
+    {
+      add(x0, y0);
+      add(x1, y1);
+    }
+    else
+    {
+      double m00 = at.getScaleX();
+      double m01 = at.getShearX();
+      double m02 = at.getTranslateX();
+      double m10 = at.getShearY();
+      double m11 = at.getScaleY();
+      double m12 = at.getTranslateY();
+      add(m00 * x0 + m01 * y0 + m02, m10 * x0 + m11 * y0 + m12);
+      add(m00 * x0 + m01 * y1 + m02, m10 * x0 + m11 * y1 + m12);
+      add(m00 * x1 + m01 * y0 + m02, m10 * x1 + m11 * y0 + m12);
+      add(m00 * x1 + m01 * y1 + m02, m10 * x1 + m11 * y1 + m12);
+    }
+  }
+  
+  /**
+   * Adds the given shape after applying the given transform.
+   * Points which are only moved to and never drawn from are ignored.
+   * @param s
+   * @param at may be null
+   */
+  public void add(Shape s, AffineTransform at)
+  {
+    PathIterator pi = s.getPathIterator(at);
+    double[] d = new double[6];
+    double lastX = 0;
+    double lastY = 0;
+    double startX = 0;
+    double startY = 0;
+    boolean lastAdded = false;
+    while (!pi.isDone())
+    {
+      int type = pi.currentSegment(d);
+      if (type == PathIterator.SEG_MOVETO)
+      {
+        lastX = d[0];
+        lastY = d[1];
+        startX = lastX;
+        startY = lastY;
+        lastAdded = false;
+      }
+      else if (type == PathIterator.SEG_CLOSE)
+      {
+        //the next segment starts where the closed subpath started
+        lastX = startX;
+        lastY = startY;
+      }
+      else
+      {
+        if (!lastAdded)
+        {
+          add(lastX, lastY);
+          lastAdded = true;
+        }
+        switch (type)
+        {
+          case PathIterator.SEG_LINETO:
+            add(d[0], d[1]);
+            lastX = d[0];
+            lastY = d[1];
+            break;
+          case PathIterator.SEG_QUADTO:
+            addQuadExtrema(lastX, d[0], d[2], MIN_X, MAX_X);
+            addQuadExtrema(lastY, d[1], d[3], MIN_Y, MAX_Y);
+            add(d[2], d[3]);
+            lastX = d[2];
+            lastY = d[3];
+            break;
+          case PathIterator.SEG_CUBICTO:
+            addCubicExtrema(lastX, d[0], d[2], d[4], MIN_X, MAX_X);
+            addCubicExtrema(lastY, d[1], d[3], d[5], MIN_Y, MAX_Y);
+            add(d[4], d[5]);
+            lastX = d[4];
+            lastY = d[5];
+            break;
+        }
+      }
+      pi.next();
+    }
+  }
+  
+  private void addValue(double v, int min, int max)
+  {
+    if (v < bounds[min]) { bounds[min] = v; }
+    if (v > bounds[max]) { bounds[max] = v; }
+  }
+  
+  /**
+   * Adds the extremum of the quadratic bezier p0,p1,p2 in one
+   * dimension, if it is inside the segment. The end points have
+   * to be added separately
+   */
+  private void addQuadExtrema(double p0, double p1, double p2, int min, int max)
+  {
+    double denominator = p0 - 2 * p1 + p2;
+    if (denominator != 0)
+    {
+      double t = (p0 - p1) / denominator;
+      if (t > 0 && t < 1)
+      {
+        double mt = 1 - t;
+        addValue(mt * mt * p0 + 2 * mt * t * p1 + t * t * p2, min, max);
+      }
+    }
+  }
+  
+  /**
+   * Adds the extrema of the cubic bezier p0,p1,p2,p3 in one
+   * dimension, if they are inside the segment. The end points have
+   * to be added separately
+   */
+  private void addCubicExtrema(double p0, double p1, double p2, double p3, int min, int max)
+  {
+    //the derivative is a quadratic polynomial a*t^2+b*t+c
+    double a = -p0 + 3 * p1 - 3 * p2 + p3;
+    double b = 2 * (p0 - 2 * p1 + p2);
+    double c = p1 - p0;
+    if (Math.abs(a) < 1e-12)
+    {
+      if (b != 0)
+      {
+        addCubicValue(p0, p1, p2, p3, -c / b, min, max);
+      }
+    }
+    else
+    {
+      double discriminant = b * b - 4 * a * c;
+      if (discriminant >= 0)
+      {
+        double sqrt = Math.sqrt(discriminant);
+        addCubicValue(p0, p1, p2, p3, (-b + sqrt) / (2 * a), min, max);
+        addCubicValue(p0, p1, p2, p3, (-b - sqrt) / (2 * a), min, max);
+      }
+    }
+  }
+  
+  private void addCubicValue(double p0, double p1, double p2, double p3, double t, int min, int max)
+  {
+    if (t > 0 && t < 1)
+    {
+      double mt = 1 - t;
+      addValue(mt * mt * mt * p0 + 3 * mt * mt * t * p1 + 3 * mt * t * t * p2 + t * t * t * p3, min, max);
+    }
+  }
+  
+  /**
+   * Returns the current bounds as new Rectangle
+   * or an empty Rectangle at 0,0 if nothing was added
+   * @return 
+   */
+  public Rectangle2D getBounds()
+  {
+    if (empty)
+    {
+      return new Rectangle2D.Double();
+    }
+    return new Rectangle2D.Double(bounds[MIN_X], bounds[MIN_Y], bounds[MAX_X] - bounds[MIN_X], bounds[MAX_Y] - bounds[MIN_Y]);
+  }
+  
+  /**
+   * Returns the smallest bounding box of the given shape
+   * after applying the given transform
+   * @param s
+   * @param at may be null
+   * @return 
+   */
+  public static Rectangle2D getBounds(Shape s, AffineTransform at)
+  {
+    ShapeBounds result = new ShapeBounds();
+    result.add(s, at);
+    return result.getBounds();
+  }
+  
+  /**
+   * Returns the smallest axis aligned rectangle containing the given
+   * rectangle after applying the given transform
+   * @param r
+   * @param at may be null
+   * @return 
+   */
+  public static Rectangle2D getBounds(Rectangle2D r, AffineTransform at)
+  {
+    ShapeBounds result = new ShapeBounds();
+    result.add(r, at);
+    return result.getBounds();
+  }
+}
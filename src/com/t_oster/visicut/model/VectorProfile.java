@@ -29,20 +29,19 @@ import com.t_oster.visicut.model.graphicelements.GraphicObject;
 import com.t_oster.visicut.model.graphicelements.GraphicSet;
 import com.t_oster.visicut.model.graphicelements.ShapeDecorator;
 import com.t_oster.visicut.model.graphicelements.ShapeObject;
+import com.t_oster.visicut.model.graphicelements.lssupport.LaserScriptCache;
 import com.t_oster.visicut.model.graphicelements.lssupport.LaserScriptShape;
 import com.t_oster.visicut.model.graphicelements.lssupport.ScriptInterfaceLogUi;
-import com.t_oster.liblasercut.laserscript.ScriptInterpreter;
 import com.t_oster.liblasercut.laserscript.VectorPartScriptInterface;
 import com.t_oster.visicut.managers.PreferencesManager;
+import com.t_oster.visicut.misc.FlatPaths;
+import com.t_oster.visicut.misc.Polyline;
 import java.awt.BasicStroke;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
-import java.awt.geom.NoninvertibleTransformException;
-import java.awt.geom.PathIterator;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.List;
 import java.util.logging.Level;
@@ -157,14 +156,30 @@ public class VectorProfile extends LaserProfile
     this.width = width;
   }
 
+  /**
+   * Returns the transformation from the object coordinates
+   * of the given set to laser pixels
+   */
+  private AffineTransform getObjectsToLaserPx(GraphicSet objects)
+  {
+    double factor = Util.dpi2dpmm(this.getDPI());
+    AffineTransform result = AffineTransform.getScaleInstance(factor, factor);
+    if (objects.getTransform() != null)
+    {
+      result.concatenate(objects.getTransform());
+    }
+    return result;
+  }
+
   private GraphicSet calculateOuterShape(GraphicSet objects)
   {
     final Area outerShape = new Area();
+    double flatness = FlatPaths.getFlatnessFor(this.getObjectsToLaserPx(objects));
     for (GraphicObject o : objects)
     {
       if (o instanceof ShapeObject)
       {
-        outerShape.add(new Area(((ShapeObject) o).getShape()));
+        outerShape.add(new Area(((ShapeObject) o).getFlattenedShape(flatness)));
       }
       else
       {
@@ -190,69 +205,76 @@ public class VectorProfile extends LaserProfile
     {
       objects = this.calculateOuterShape(objects);
     }
+    //all coordinates are assumed to be milimeters, so the shapes are
+    //flattened as precise as the laser resolution requires
+    double flatness = FlatPaths.getFlatnessFor(this.getObjectsToLaserPx(objects));
+    AffineTransform objects2PreviewPx = new AffineTransform(mm2px);
+    if (objects.getTransform() != null)
+    {
+      objects2PreviewPx.concatenate(objects.getTransform());
+    }
+    PreviewPainter painter = new PreviewPainter(gg);
     for (GraphicObject e : objects)
     {
-      try
+      Shape sh = (e instanceof ShapeObject) ? ((ShapeObject) e).getFlattenedShape(flatness) : e.getBoundingBox();
+      if (sh == null)
       {
-        Shape sh = (e instanceof ShapeObject) ? ((ShapeObject) e).getShape() : e.getBoundingBox();
-        if (objects.getTransform() != null)
-        {
-          sh = objects.getTransform().createTransformedShape(sh);
-        }
-        //all coordinates are assumed to be milimeters, so we transform to desired resolution
-        double factor = Util.dpi2dpmm(this.getDPI());
-        AffineTransform mm2laserPx = AffineTransform.getScaleInstance(factor, factor);
-        sh = mm2laserPx.createTransformedShape(sh);
-
-        AffineTransform laserPx2PreviewPx = mm2laserPx.createInverse();
-        laserPx2PreviewPx.concatenate(mm2px);
-        if (sh == null)
-        {
-          //WTF??
-          System.out.println("Error extracting Shape from: " + ((ShapeObject) e).toString());
-        }
-        else
-        {
-          PathIterator iter = sh.getPathIterator(null, 1);
-          int startx = 0;
-          int starty = 0;
-          int lastx = 0;
-          int lasty = 0;
-          while (!iter.isDone())
-          {
-            double[] test = new double[8];
-            int result = iter.currentSegment(test);
-            //transform coordinates to preview-coordinates
-            laserPx2PreviewPx.transform(test, 0, test, 0, 1);
-            if (result == PathIterator.SEG_MOVETO)
-            {
-              startx = (int) test[0];
-              starty = (int) test[1];
-              lastx = (int) test[0];
-              lasty = (int) test[1];
-            }
-            else if (result == PathIterator.SEG_LINETO)
-            {
-              gg.drawLine(lastx, lasty, (int) test[0], (int) test[1]);
-              lastx = (int) test[0];
-              lasty = (int) test[1];
-            }
-            else if (result == PathIterator.SEG_CLOSE)
-            {
-              gg.drawLine(lastx, lasty, startx, starty);
-            }
-            iter.next();
-          }
-        }
+        //WTF??
+        System.out.println("Error extracting Shape from: " + ((ShapeObject) e).toString());
       }
-      catch (NoninvertibleTransformException ex)
+      else
       {
-        Logger.getLogger(VectorProfile.class.getName()).log(Level.SEVERE, null, ex);
+        //transform coordinates to preview-coordinates
+        FlatPaths.visit(sh, objects2PreviewPx, 1, painter);
+        painter.flush();
       }
     }
     gg.setStroke(bak);
   }
 
+  /**
+   * Draws the visited paths as polylines in integer coordinates,
+   * reusing the same point buffer for all of them
+   */
+  private static class PreviewPainter implements FlatPaths.Visitor
+  {
+    private Graphics2D gg;
+    private Polyline line = new Polyline();
+    private int startx = 0;
+    private int starty = 0;
+
+    PreviewPainter(Graphics2D gg)
+    {
+      this.gg = gg;
+    }
+
+    public void moveTo(double x, double y)
+    {
+      flush();
+      startx = (int) x;
+      starty = (int) y;
+      line.add(startx, starty);
+    }
+
+    public void lineTo(double x, double y)
+    {
+      line.add((int) x, (int) y);
+    }
+
+    public void closePath()
+    {
+      line.add(startx, starty);
+      flush();
+      line.add(startx, starty);
+    }
+
+    public void flush()
+    {
+      line.draw(gg);
+      line.clear();
+    }
+  }
+
   @Override
   public void addToLaserJob(LaserJob job, GraphicSet objects, List<LaserProperty> laserProperties)
   {
@@ -262,6 +284,8 @@ public class VectorProfile extends LaserProfile
     }
     double factor = Util.dpi2dpmm(this.getDPI());
     AffineTransform mm2laserpx = AffineTransform.getScaleInstance(factor, factor);
+    AffineTransform objects2laserpx = this.getObjectsToLaserPx(objects);
+    double flatness = FlatPaths.getFlatnessFor(objects2laserpx);
     VectorPart part = new VectorPart(laserProperties.get(0), this.getDPI());
     boolean optimize = true;
     for (LaserProperty prop : laserProperties)
@@ -275,12 +299,11 @@ public class VectorProfile extends LaserProfile
           //since the profiles are enumerated file-wise and a laserscript is always
           //one file and creates one shape, this whole file should not be optimized
           optimize = false;
-          ScriptInterpreter i = new ScriptInterpreter();
           AffineTransform mm2laser = new AffineTransform(objects.getTransform());
           mm2laser.preConcatenate(mm2laserpx);
           try
           {
-            i.execute(new FileReader(((LaserScriptShape) e).getScriptSource()), 
+            LaserScriptCache.getInstance().execute(((LaserScriptShape) e).getScriptSource(),
               new ScriptInterfaceLogUi(new VectorPartScriptInterface(part, mm2laser)),
               !PreferencesManager.getInstance().getPreferences().isDisableSandbox());
           }
@@ -295,12 +318,8 @@ public class VectorProfile extends LaserProfile
         }
         else
         {
-          Shape sh = (e instanceof ShapeObject) ? ((ShapeObject) e).getShape() : e.getBoundingBox();
-          if (objects.getTransform() != null)
-          {
-            sh = objects.getTransform().createTransformedShape(sh);
-          }
-          sh = mm2laserpx.createTransformedShape(sh);
+          Shape sh = (e instanceof ShapeObject) ? ((ShapeObject) e).getFlattenedShape(flatness) : e.getBoundingBox();
+          sh = objects2laserpx.createTransformedShape(sh);
           conv.addShape(sh, part);
         }
       }
@@ -0,0 +1,148 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ShapeObject which only consists of its geometry, attributes
+ * and a plain fill and stroke. It is what the ImportCache stores
+ * instead of the parsed document.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class CachedShape implements ShapeObject
+{
+
+  private Shape elementShape;
+  private AffineTransform transform;
+  private Shape shape = null;
+  private Rectangle2D boundingBox;
+  private Map<String, List<Object>> attributeValues;
+  private Color fill;
+  private Color stroke;
+  private float strokeWidth;
+  private FlattenedShapeCache flattenedShape = new FlattenedShapeCache();
+
+  /**
+   * @param elementShape the shape in the coordinates of its element
+   * @param transform the transformation from element to absolute coordinates
+   * @param boundingBox
+   * @param attributeValues the values of all attributes in the order
+   * returned by getAttributes()
+   * @param fill the fill color or null
+   * @param stroke the stroke color or null
+   * @param strokeWidth the stroke width in element coordinates
+   */
+  public CachedShape(Shape elementShape, AffineTransform transform, Rectangle2D boundingBox, Map<String, List<Object>> attributeValues, Color fill, Color stroke, float strokeWidth)
+  {
+    this.elementShape = elementShape;
+    this.transform = new AffineTransform(transform);
+    this.boundingBox = boundingBox;
+    this.attributeValues = new LinkedHashMap<String, List<Object>>(attributeValues);
+    this.fill = fill;
+    this.stroke = stroke;
+    this.strokeWidth = strokeWidth;
+  }
+
+  public Shape getElementShape()
+  {
+    return elementShape;
+  }
+
+  public AffineTransform getTransform()
+  {
+    return new AffineTransform(transform);
+  }
+
+  public synchronized Shape getShape()
+  {
+    if (shape == null)
+    {
+      shape = transform.createTransformedShape(elementShape);
+    }
+    return shape;
+  }
+
+  public Shape getFlattenedShape(double flatness)
+  {
+    return flattenedShape.get(this.getShape(), flatness);
+  }
+
+  public Rectangle2D getBoundingBox()
+  {
+    return (Rectangle2D) boundingBox.clone();
+  }
+
+  public List<Object> getAttributeValues(String name)
+  {
+    List<Object> result = attributeValues.get(name.replace("_", " "));
+    return result != null ? result : Collections.<Object>emptyList();
+  }
+
+  public List<String> getAttributes()
+  {
+    return new LinkedList<String>(attributeValues.keySet());
+  }
+
+  public Color getFill()
+  {
+    return fill;
+  }
+
+  public Color getStroke()
+  {
+    return stroke;
+  }
+
+  public float getStrokeWidth()
+  {
+    return strokeWidth;
+  }
+
+  public void render(Graphics2D g)
+  {
+    AffineTransform bak = g.getTransform();
+    g.transform(transform);
+    if (fill != null)
+    {
+      g.setColor(fill);
+      g.fill(elementShape);
+    }
+    if (stroke != null)
+    {
+      g.setColor(stroke);
+      //SVG defaults for cap, join and miter limit. The outline is filled
+      //instead of drawn like the SVG renderer does, so both rasterize the same
+      BasicStroke s = new BasicStroke(strokeWidth, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 4);
+      g.fill(s.createStrokedShape(elementShape));
+    }
+    g.setTransform(bak);
+  }
+}
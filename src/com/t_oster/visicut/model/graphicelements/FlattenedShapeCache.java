@@ -0,0 +1,65 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements;
+
+import com.t_oster.visicut.misc.FlatPaths;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+
+/**
+ * Holds the flattened version of a shape, so that it has to be
+ * computed only once as long as it is requested with the same flatness.
+ * The returned shape is shared and must not be modified.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class FlattenedShapeCache
+{
+
+  private double flatness = Double.NaN;
+  private Path2D.Float flattened = null;
+
+  /**
+   * Returns the given shape flattened with the given flatness.
+   * If the last call used the same flatness, the cached result
+   * is returned without looking at the source.
+   * @param source
+   * @param flatness
+   * @return the flattened shape or null if source is null
+   */
+  public synchronized Shape get(Shape source, double flatness)
+  {
+    if (source == null)
+    {
+      return null;
+    }
+    if (flattened == null || this.flatness != flatness)
+    {
+      flattened = FlatPaths.flatten(source, flatness);
+      this.flatness = flatness;
+    }
+    return flattened;
+  }
+
+  public synchronized void clear()
+  {
+    flattened = null;
+    flatness = Double.NaN;
+  }
+}
@@ -22,6 +22,7 @@ import com.t_oster.visicut.misc.MultiFilter;
 import com.t_oster.visicut.model.PlfPart;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Level;
@@ -38,6 +39,21 @@ public class GraphicFileImporter implements Importer
 {
 
   private List<Importer> importers = new LinkedList<Importer>();
+  private ImportCache importCache = null;
+
+  public ImportCache getImportCache()
+  {
+    return importCache;
+  }
+
+  /**
+   * Sets the cache for imported files or null to disable caching
+   * @param importCache 
+   */
+  public void setImportCache(ImportCache importCache)
+  {
+    this.importCache = importCache;
+  }
 
   /**
    * Tries to load all importerClasses and creates a GraphicFileImporter
@@ -85,14 +101,42 @@ public class GraphicFileImporter implements Importer
       {
         if (i.getFileFilter().accept(inputFile))
         {
-          PlfPart gs = i.importFile(inputFile, warnings);
-          return gs;
+          return importFile(i, inputFile, warnings);
         }
       }
       throw new ImportException("Unsupported File Format");
     }
   }
 
+  private PlfPart importFile(Importer i, File inputFile, List<String> warnings) throws ImportException
+  {
+    String key = null;
+    if (importCache != null)
+    {
+      try
+      {
+        key = importCache.getKey(inputFile, i);
+        PlfPart cached = importCache.load(key, inputFile, warnings);
+        if (cached != null)
+        {
+          return cached;
+        }
+      }
+      catch (IOException ex)
+      {
+        Logger.getLogger(GraphicFileImporter.class.getName()).log(Level.SEVERE, null, ex);
+      }
+    }
+    List<String> importWarnings = new LinkedList<String>();
+    PlfPart gs = i.importFile(inputFile, importWarnings);
+    warnings.addAll(importWarnings);
+    if (key != null)
+    {
+      importCache.store(key, gs, importWarnings);
+    }
+    return gs;
+  }
+
   public FileFilter[] getFileFilters()
   {
     List<FileFilter> result = new LinkedList<FileFilter>();
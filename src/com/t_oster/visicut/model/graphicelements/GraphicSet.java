@@ -19,6 +19,7 @@
 package com.t_oster.visicut.model.graphicelements;
 
 import com.t_oster.visicut.misc.Helper;
+import com.t_oster.visicut.misc.ShapeBounds;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.beans.PropertyChangeEvent;
@@ -121,20 +122,14 @@ public class GraphicSet extends LinkedList<GraphicObject>
    */
   public Rectangle2D getOriginalBoundingBox()
   {
-    if (originalBoundingBoxCache == null)
+    if (originalBoundingBoxCache == null && !this.isEmpty())
     {
+      ShapeBounds bounds = new ShapeBounds();
       for (GraphicObject o : this)
       {
-        Rectangle2D current = o.getBoundingBox();
-        if (originalBoundingBoxCache == null)
-        {
-          originalBoundingBoxCache = current;
-        }
-        else
-        {
-          Rectangle2D.union(originalBoundingBoxCache, current, originalBoundingBoxCache);
-        }
+        bounds.add(o.getBoundingBox(), null);
       }
+      originalBoundingBoxCache = bounds.getBounds();
     }
     return originalBoundingBoxCache;
   }
@@ -149,29 +144,20 @@ public class GraphicSet extends LinkedList<GraphicObject>
   {
     if (boundingBoxCache == null)
     {
+      ShapeBounds bounds = new ShapeBounds();
       for (GraphicObject o : this)
       {
         Rectangle2D current = o.getBoundingBox();
         if (current != null)
         {
-          if (this.transform != null)
-          {
-            current = Helper.transform(current, this.transform);
-          }
-          if (boundingBoxCache == null)
-          {
-            boundingBoxCache = current;
-          }
-          else
-          {
-            Rectangle2D.union(boundingBoxCache, current, boundingBoxCache);
-          }
+          bounds.add(current, this.transform);
         }
       }
-      if (boundingBoxCache == null)
+      if (bounds.isEmpty())
       {
         return new Rectangle2D.Double();
       }
+      boundingBoxCache = bounds.getBounds();
     }
     return boundingBoxCache;
   }
@@ -0,0 +1,594 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements;
+
+import com.t_oster.visicut.model.PlfPart;
+import com.t_oster.visicut.model.graphicelements.svgsupport.SVGShape;
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.IllegalPathStateException;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RectangularShape;
+import java.awt.geom.RoundRectangle2D;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores imported geometry on disk, so files which have been imported
+ * before do not have to be parsed again. Entries are named after a hash
+ * of the file's content and the importer, so changed files are not served
+ * from the cache, but the same content is found again under another path
+ * (e.g. the sources extracted from a PLF file). The total size of the
+ * entries is limited, the least recently used ones are removed first.
+ *
+ * Only parts consisting of shapes which can be represented by a
+ * CachedShape are stored, i.e. parts imported by the SVG and EPS
+ * importers. Everything else (e.g. DXF, whose shapes are drawn as
+ * hairlines) is imported as usual.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class ImportCache
+{
+
+  /**
+   * Has to be increased whenever the file format or the output
+   * of one of the importers changes
+   */
+  public static final int VERSION = 2;
+  private static final int MAGIC = 0x56434943;
+  private static final byte VALUE_STRING = 'S';
+  private static final byte VALUE_DOUBLE = 'D';
+  private static final byte VALUE_COLOR = 'C';
+  private static final byte SHAPE_PATH = 'P';
+  private static final byte SHAPE_RECTANGLE = 'R';
+  private static final byte SHAPE_ROUND_RECTANGLE = 'O';
+  private static final byte SHAPE_ELLIPSE = 'E';
+  public static final long DEFAULT_MAX_SIZE = 64*1024*1024;
+  private File directory;
+  private long maxSize;
+
+  public ImportCache(File directory)
+  {
+    this(directory, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param directory
+   * @param maxSize the maximum total size of all entries in bytes
+   */
+  public ImportCache(File directory, long maxSize)
+  {
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  public File getDirectory()
+  {
+    return directory;
+  }
+
+  /**
+   * Returns the key of the given file when imported with the given importer.
+   * The key only depends on the content, not on the path or modification
+   * time, because PLF files are extracted to a new location on every load.
+   */
+  public String getKey(File f, Importer importer) throws IOException
+  {
+    try
+    {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      md.update((importer.getClass().getName()+":"+VERSION+":"+f.length()+":").getBytes("UTF-8"));
+      FileInputStream in = new FileInputStream(f);
+      try
+      {
+        byte[] buffer = new byte[64*1024];
+        int n;
+        while ((n = in.read(buffer)) != -1)
+        {
+          md.update(buffer, 0, n);
+        }
+      }
+      finally
+      {
+        in.close();
+      }
+      StringBuilder result = new StringBuilder();
+      for (byte b : md.digest())
+      {
+        result.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+      }
+      return result.toString();
+    }
+    catch (NoSuchAlgorithmException ex)
+    {
+      throw new IOException(ex.getMessage());
+    }
+  }
+
+  private File getFile(String key)
+  {
+    return new File(directory, key+".cache");
+  }
+
+  /**
+   * Loads the part stored under the given key and adds the
+   * warnings of the original import.
+   * @return the part or null if there is no (valid) entry
+   */
+  public PlfPart load(String key, File sourceFile, List<String> warnings)
+  {
+    File f = getFile(key);
+    if (!f.isFile())
+    {
+      return null;
+    }
+    try
+    {
+      FileInputStream in = new FileInputStream(f);
+      try
+      {
+        FileChannel channel = in.getChannel();
+        ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buf.getInt() != MAGIC || buf.getInt() != VERSION)
+        {
+          return null;
+        }
+        List<String> storedWarnings = new LinkedList<String>();
+        for (int i = buf.getInt(); i > 0; i--)
+        {
+          storedWarnings.add(readString(buf));
+        }
+        GraphicSet set = new GraphicSet();
+        set.setBasicTransform(new AffineTransform(buf.getDouble(), buf.getDouble(), buf.getDouble(), buf.getDouble(), buf.getDouble(), buf.getDouble()));
+        for (int i = buf.getInt(); i > 0; i--)
+        {
+          set.add(readShape(buf));
+        }
+        warnings.addAll(storedWarnings);
+        //keep recently used entries when trimming the cache
+        f.setLastModified(System.currentTimeMillis());
+        PlfPart result = new PlfPart();
+        result.setSourceFile(sourceFile);
+        result.setGraphicObjects(set);
+        return result;
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch (BufferUnderflowException ex)
+    {
+      Logger.getLogger(ImportCache.class.getName()).log(Level.WARNING, "Corrupted cache entry "+f, ex);
+    }
+    catch (IllegalPathStateException ex)
+    {
+      Logger.getLogger(ImportCache.class.getName()).log(Level.WARNING, "Corrupted cache entry "+f, ex);
+    }
+    catch (IOException ex)
+    {
+      Logger.getLogger(ImportCache.class.getName()).log(Level.SEVERE, null, ex);
+    }
+    return null;
+  }
+
+  /**
+   * Stores the given part under the given key, if all of its objects
+   * can be represented as CachedShapes.
+   * @return true if the part has been stored
+   */
+  public boolean store(String key, PlfPart part, List<String> warnings)
+  {
+    if (part.getClass() != PlfPart.class || part.getGraphicObjects() == null)
+    {
+      return false;
+    }
+    List<CachedShape> shapes = new LinkedList<CachedShape>();
+    for (GraphicObject o : part.getGraphicObjects())
+    {
+      //subclasses of CachedShape may render more than the stored properties
+      CachedShape s = o.getClass() == CachedShape.class ? (CachedShape) o : o instanceof SVGShape ? ((SVGShape) o).toCachedShape() : null;
+      if (s == null || !isSupported(s))
+      {
+        return false;
+      }
+      shapes.add(s);
+    }
+    File tmp = null;
+    try
+    {
+      if (!directory.isDirectory() && !directory.mkdirs())
+      {
+        return false;
+      }
+      tmp = File.createTempFile(key, ".tmp", directory);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try
+      {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(warnings.size());
+        for (String w : warnings)
+        {
+          writeString(out, w);
+        }
+        double[] m = new double[6];
+        part.getGraphicObjects().getBasicTransform().getMatrix(m);
+        for (double d : m)
+        {
+          out.writeDouble(d);
+        }
+        out.writeInt(shapes.size());
+        for (CachedShape s : shapes)
+        {
+          writeShape(out, s);
+        }
+      }
+      finally
+      {
+        out.close();
+      }
+      //an entry written by another thread in the meantime is equally good
+      if (!tmp.renameTo(getFile(key)))
+      {
+        tmp.delete();
+      }
+      trim();
+      return true;
+    }
+    catch (IOException ex)
+    {
+      Logger.getLogger(ImportCache.class.getName()).log(Level.SEVERE, null, ex);
+      if (tmp != null)
+      {
+        tmp.delete();
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Removes the least recently used entries until the total size
+   * is below the limit
+   */
+  private synchronized void trim()
+  {
+    File[] files = directory.listFiles(new FilenameFilter()
+    {
+      public boolean accept(File dir, String name)
+      {
+        return name.endsWith(".cache");
+      }
+    });
+    if (files == null)
+    {
+      return;
+    }
+    long total = 0;
+    final Map<File, Long> lastModified = new HashMap<File, Long>();
+    for (File f : files)
+    {
+      total += f.length();
+      lastModified.put(f, f.lastModified());
+    }
+    if (total <= maxSize)
+    {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>()
+    {
+      public int compare(File a, File b)
+      {
+        return lastModified.get(a).compareTo(lastModified.get(b));
+      }
+    });
+    for (File f : files)
+    {
+      if (total <= maxSize)
+      {
+        break;
+      }
+      long length = f.length();
+      if (f.delete())
+      {
+        total -= length;
+      }
+    }
+  }
+
+  /**
+   * Removes all entries
+   */
+  public void clear()
+  {
+    File[] files = directory.listFiles();
+    if (files != null)
+    {
+      for (File f : files)
+      {
+        if (f.getName().endsWith(".cache"))
+        {
+          f.delete();
+        }
+      }
+    }
+  }
+
+  private boolean isSupported(CachedShape s)
+  {
+    for (String a : s.getAttributes())
+    {
+      for (Object v : s.getAttributeValues(a))
+      {
+        if (!(v instanceof String || v instanceof Double || v instanceof Color))
+        {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void writeString(DataOutputStream out, String s) throws IOException
+  {
+    out.writeInt(s.length());
+    out.writeChars(s);
+  }
+
+  private String readString(ByteBuffer buf)
+  {
+    char[] result = new char[buf.getInt()];
+    for (int i = 0; i < result.length; i++)
+    {
+      result[i] = buf.getChar();
+    }
+    return new String(result);
+  }
+
+  private void writeColor(DataOutputStream out, Color c) throws IOException
+  {
+    out.writeBoolean(c != null);
+    if (c != null)
+    {
+      out.writeInt(c.getRGB());
+    }
+  }
+
+  private Color readColor(ByteBuffer buf)
+  {
+    return buf.get() != 0 ? new Color(buf.getInt(), true) : null;
+  }
+
+  private void writeShape(DataOutputStream out, CachedShape s) throws IOException
+  {
+    Rectangle2D bb = s.getBoundingBox();
+    out.writeDouble(bb.getX());
+    out.writeDouble(bb.getY());
+    out.writeDouble(bb.getWidth());
+    out.writeDouble(bb.getHeight());
+    writeColor(out, s.getFill());
+    writeColor(out, s.getStroke());
+    out.writeFloat(s.getStrokeWidth());
+    double[] m = new double[6];
+    s.getTransform().getMatrix(m);
+    for (double d : m)
+    {
+      out.writeDouble(d);
+    }
+    List<String> attributes = s.getAttributes();
+    out.writeInt(attributes.size());
+    for (String a : attributes)
+    {
+      writeString(out, a);
+      List<Object> values = s.getAttributeValues(a);
+      out.writeInt(values.size());
+      for (Object v : values)
+      {
+        if (v instanceof String)
+        {
+          out.writeByte(VALUE_STRING);
+          writeString(out, (String) v);
+        }
+        else if (v instanceof Double)
+        {
+          out.writeByte(VALUE_DOUBLE);
+          out.writeDouble((Double) v);
+        }
+        else
+        {
+          out.writeByte(VALUE_COLOR);
+          out.writeInt(((Color) v).getRGB());
+        }
+      }
+    }
+    writeGeometry(out, s.getElementShape());
+  }
+
+  private CachedShape readShape(ByteBuffer buf) throws IOException
+  {
+    Rectangle2D bb = new Rectangle2D.Double(buf.getDouble(), buf.getDouble(), buf.getDouble(), buf.getDouble());
+    Color fill = readColor(buf);
+    Color stroke = readColor(buf);
+    float strokeWidth = buf.getFloat();
+    AffineTransform transform = new AffineTransform(buf.getDouble(), buf.getDouble(), buf.getDouble(), buf.getDouble(), buf.getDouble(), buf.getDouble());
+    Map<String, List<Object>> attributes = new LinkedHashMap<String, List<Object>>();
+    for (int a = buf.getInt(); a > 0; a--)
+    {
+      String name = readString(buf);
+      List<Object> values = new LinkedList<Object>();
+      for (int v = buf.getInt(); v > 0; v--)
+      {
+        byte type = buf.get();
+        if (type == VALUE_STRING)
+        {
+          values.add(readString(buf));
+        }
+        else if (type == VALUE_DOUBLE)
+        {
+          values.add((Double) buf.getDouble());
+        }
+        else if (type == VALUE_COLOR)
+        {
+          values.add(new Color(buf.getInt(), true));
+        }
+        else
+        {
+          throw new IOException("Unknown attribute type "+type);
+        }
+      }
+      attributes.put(name, values);
+    }
+    Shape shape = readGeometry(buf);
+    return new CachedShape(shape, transform, bb, attributes, fill, stroke, strokeWidth);
+  }
+
+  /**
+   * Rectangles and ellipses are stored as such instead of as paths,
+   * because Java2D rasterizes them slightly different
+   */
+  private void writeGeometry(DataOutputStream out, Shape shape) throws IOException
+  {
+    if (shape instanceof RectangularShape && !(shape instanceof Arc2D))
+    {
+      RectangularShape r = (RectangularShape) shape;
+      if (r instanceof RoundRectangle2D)
+      {
+        out.writeByte(SHAPE_ROUND_RECTANGLE);
+      }
+      else
+      {
+        out.writeByte(r instanceof Ellipse2D ? SHAPE_ELLIPSE : SHAPE_RECTANGLE);
+      }
+      out.writeFloat((float) r.getX());
+      out.writeFloat((float) r.getY());
+      out.writeFloat((float) r.getWidth());
+      out.writeFloat((float) r.getHeight());
+      if (r instanceof RoundRectangle2D)
+      {
+        out.writeFloat((float) ((RoundRectangle2D) r).getArcWidth());
+        out.writeFloat((float) ((RoundRectangle2D) r).getArcHeight());
+      }
+      return;
+    }
+    out.writeByte(SHAPE_PATH);
+    //count the segments first, so they can be read without a terminator
+    int segments = 0;
+    for (PathIterator i = shape.getPathIterator(null); !i.isDone(); i.next())
+    {
+      segments++;
+    }
+    PathIterator i = shape.getPathIterator(null);
+    out.writeByte(i.getWindingRule());
+    out.writeInt(segments);
+    float[] coords = new float[6];
+    for (; !i.isDone(); i.next())
+    {
+      int type = i.currentSegment(coords);
+      out.writeByte(type);
+      for (int k = 0; k < getCoordinateCount(type); k++)
+      {
+        out.writeFloat(coords[k]);
+      }
+    }
+  }
+
+  private Shape readGeometry(ByteBuffer buf) throws IOException
+  {
+    byte type = buf.get();
+    switch (type)
+    {
+      case SHAPE_RECTANGLE:
+        return new Rectangle2D.Float(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+      case SHAPE_ELLIPSE:
+        return new Ellipse2D.Float(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+      case SHAPE_ROUND_RECTANGLE:
+        return new RoundRectangle2D.Float(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+      case SHAPE_PATH:
+        break;
+      default:
+        throw new IOException("Unknown shape type "+type);
+    }
+    Path2D.Float shape = new Path2D.Float(buf.get());
+    for (int segments = buf.getInt(); segments > 0; segments--)
+    {
+      switch (buf.get())
+      {
+        case PathIterator.SEG_MOVETO:
+          shape.moveTo(buf.getFloat(), buf.getFloat());
+          break;
+        case PathIterator.SEG_LINETO:
+          shape.lineTo(buf.getFloat(), buf.getFloat());
+          break;
+        case PathIterator.SEG_QUADTO:
+          shape.quadTo(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+          break;
+        case PathIterator.SEG_CUBICTO:
+          shape.curveTo(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+          break;
+        case PathIterator.SEG_CLOSE:
+          shape.closePath();
+          break;
+        default:
+          throw new IOException("Unknown segment type");
+      }
+    }
+    return shape;
+  }
+
+  private static int getCoordinateCount(int segmentType)
+  {
+    switch (segmentType)
+    {
+      case PathIterator.SEG_MOVETO:
+      case PathIterator.SEG_LINETO:
+        return 2;
+      case PathIterator.SEG_QUADTO:
+        return 4;
+      case PathIterator.SEG_CUBICTO:
+        return 6;
+      default:
+        return 0;
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements;
+
+import com.t_oster.visicut.model.PlfPart;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Imports graphic files on a bounded pool of worker threads.
+ * The importers (and thus their SVG universes and parser state)
+ * are not thread safe, so every worker gets its own GraphicFileImporter
+ * instead of sharing one.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class ImportService
+{
+
+  /**
+   * The result of one import. Warnings are collected per file,
+   * so they can be merged in a deterministic order afterwards.
+   */
+  public static class Result
+  {
+    private final File file;
+    private final PlfPart part;
+    private final ImportException error;
+    private final List<String> warnings;
+
+    private Result(File file, PlfPart part, ImportException error, List<String> warnings)
+    {
+      this.file = file;
+      this.part = part;
+      this.error = error;
+      this.warnings = warnings;
+    }
+
+    public File getFile()
+    {
+      return file;
+    }
+
+    /**
+     * @return the imported part or null if the import failed
+     */
+    public PlfPart getPart()
+    {
+      return part;
+    }
+
+    /**
+     * @return the exception the import failed with or null
+     */
+    public ImportException getError()
+    {
+      return error;
+    }
+
+    public List<String> getWarnings()
+    {
+      return warnings;
+    }
+  }
+
+  private class ImportThread extends Thread
+  {
+    private GraphicFileImporter importer = null;
+
+    ImportThread(Runnable r, int number)
+    {
+      super(r, "Import-"+number);
+      this.setDaemon(true);
+    }
+
+    GraphicFileImporter getImporter()
+    {
+      if (importer == null)
+      {
+        importer = new GraphicFileImporter(importerClasses);
+        importer.setImportCache(importCache);
+      }
+      return importer;
+    }
+
+    ImportService getService()
+    {
+      return ImportService.this;
+    }
+  }
+
+  private final String[] importerClasses;
+  private final ImportCache importCache;
+  private final ExecutorService executor;
+
+  public ImportService(String[] importerClasses)
+  {
+    this(importerClasses, null, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param importerClasses
+   * @param importCache the cache to use for all imports or null
+   * @param threads the number of worker threads
+   */
+  public ImportService(String[] importerClasses, ImportCache importCache, int threads)
+  {
+    this.importerClasses = importerClasses;
+    this.importCache = importCache;
+    this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory()
+    {
+      private int count = 0;
+
+      public synchronized Thread newThread(Runnable r)
+      {
+        return new ImportThread(r, ++count);
+      }
+    });
+  }
+
+  private PlfPart importOnWorker(File f, List<String> warnings) throws ImportException
+  {
+    return ((ImportThread) Thread.currentThread()).getImporter().importFile(f, warnings);
+  }
+
+  private boolean isOwnWorker()
+  {
+    Thread t = Thread.currentThread();
+    return t instanceof ImportThread && ((ImportThread) t).getService() == this;
+  }
+
+  /**
+   * Queues the import of the given file.
+   * The warnings list must not be touched until the future is done.
+   */
+  public Future<PlfPart> submit(final File f, final List<String> warnings)
+  {
+    return executor.submit(new Callable<PlfPart>()
+    {
+      public PlfPart call() throws Exception
+      {
+        return importOnWorker(f, warnings);
+      }
+    });
+  }
+
+  /**
+   * Imports a single file and waits for the result.
+   * If called from one of the workers (e.g. a file which imports
+   * other files), the import runs directly on the calling thread,
+   * so the pool can not deadlock on itself.
+   */
+  public PlfPart importFile(File f, List<String> warnings) throws ImportException
+  {
+    if (isOwnWorker())
+    {
+      return importOnWorker(f, warnings);
+    }
+    return get(submit(f, warnings));
+  }
+
+  /**
+   * Imports all given files concurrently and waits until all are done.
+   * The results are in the same order as the given files, independent
+   * of the order in which the imports finished. Any exception thrown
+   * while importing a file only ends up in the result of that file.
+   */
+  public List<Result> importFiles(List<File> files)
+  {
+    List<Future<PlfPart>> futures = new ArrayList<Future<PlfPart>>(files.size());
+    List<List<String>> warnings = new ArrayList<List<String>>(files.size());
+    for (File f : files)
+    {
+      List<String> w = new LinkedList<String>();
+      warnings.add(w);
+      futures.add(isOwnWorker() ? null : submit(f, w));
+    }
+    List<Result> result = new LinkedList<Result>();
+    int i = 0;
+    for (File f : files)
+    {
+      Future<PlfPart> future = futures.get(i);
+      List<String> w = warnings.get(i++);
+      try
+      {
+        PlfPart p = future != null ? get(future) : importOnWorker(f, w);
+        result.add(new Result(f, p, null, w));
+      }
+      catch (ImportException e)
+      {
+        result.add(new Result(f, null, e, w));
+      }
+      catch (Throwable e)
+      {
+        //a bug in one importer must not discard the other files
+        result.add(new Result(f, null, new ImportException(e), w));
+      }
+    }
+    return result;
+  }
+
+  private PlfPart get(Future<PlfPart> future) throws ImportException
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (InterruptedException ex)
+    {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new ImportException(ex);
+    }
+    catch (ExecutionException ex)
+    {
+      Throwable cause = ex.getCause();
+      if (cause instanceof ImportException)
+      {
+        throw (ImportException) cause;
+      }
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error)
+      {
+        throw (Error) cause;
+      }
+      throw new ImportException(cause);
+    }
+  }
+
+  public void shutdown()
+  {
+    executor.shutdown();
+  }
+}
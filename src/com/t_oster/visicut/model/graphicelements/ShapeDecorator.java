@@ -21,6 +21,7 @@ package com.t_oster.visicut.model.graphicelements;
 import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -32,6 +33,7 @@ public class ShapeDecorator implements ShapeObject
 {
 
   private Shape decoratee;
+  private FlattenedShapeCache flattenedShape = new FlattenedShapeCache();
 
   public ShapeDecorator(Shape s)
   {
@@ -43,19 +45,21 @@ public class ShapeDecorator implements ShapeObject
     return decoratee;
   }
 
+  public Shape getFlattenedShape(double flatness)
+  {
+    return flattenedShape.get(decoratee, flatness);
+  }
+
   public Rectangle2D getBoundingBox()
   {
     return decoratee.getBounds2D();
   }
 
+  private static final List<Object> TYPE = Collections.<Object>singletonList("Shape");
+
   public List<Object> getAttributeValues(String name)
   {
-    List<Object> result = new LinkedList<Object>();
-    if ("Type".equals(name))
-    {
-      result.add("Shape");
-    }
-    return result;
+    return "Type".equals(name) ? TYPE : Collections.<Object>emptyList();
   }
 
   public List<String> getAttributes()
@@ -27,5 +27,14 @@ import java.awt.Shape;
 public interface ShapeObject extends GraphicObject
 {
   public abstract Shape getShape();
+
+  /**
+   * Returns getShape() approximated by straight line segments
+   * with the given flatness. Implementations may cache the result,
+   * so it must not be modified.
+   * @param flatness
+   * @return 
+   */
+  public abstract Shape getFlattenedShape(double flatness);
   
 }
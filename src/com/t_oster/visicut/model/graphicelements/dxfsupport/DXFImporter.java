@@ -18,87 +18,605 @@
  **/
 package com.t_oster.visicut.model.graphicelements.dxfsupport;
 
-import com.t_oster.liblasercut.platform.Util;
 import com.t_oster.visicut.misc.ExtensionFilter;
 import com.t_oster.visicut.model.graphicelements.AbstractImporter;
 import com.t_oster.visicut.model.graphicelements.GraphicSet;
 import com.t_oster.visicut.model.graphicelements.ImportException;
-import com.t_oster.visicut.model.graphicelements.svgsupport.SVGImporter;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Set;
+import java.util.TreeSet;
 import javax.swing.filechooser.FileFilter;
 
+import org.kabeja.dxf.DXFArc;
+import org.kabeja.dxf.DXFBlock;
+import org.kabeja.dxf.DXFCircle;
+import org.kabeja.dxf.DXFDimension;
 import org.kabeja.dxf.DXFDocument;
-import org.kabeja.parser.Parser;
+import org.kabeja.dxf.DXFEllipse;
+import org.kabeja.dxf.DXFEntity;
+import org.kabeja.dxf.DXFHatch;
+import org.kabeja.dxf.DXFInsert;
+import org.kabeja.dxf.DXFLayer;
+import org.kabeja.dxf.DXFLine;
+import org.kabeja.dxf.DXFMText;
+import org.kabeja.dxf.DXFPolyline;
+import org.kabeja.dxf.DXFSolid;
+import org.kabeja.dxf.DXFSpline;
+import org.kabeja.dxf.DXFText;
+import org.kabeja.dxf.DXFVertex;
+import org.kabeja.dxf.helpers.DXFSplineConverter;
+import org.kabeja.dxf.helpers.HatchBoundaryLoop;
+import org.kabeja.dxf.helpers.Point;
+import org.kabeja.dxf.helpers.StyledTextParagraph;
 import org.kabeja.parser.DXFParser;
+import org.kabeja.parser.Parser;
 import org.kabeja.parser.ParserBuilder;
-import org.kabeja.svg.SVGGenerator;
-import org.kabeja.xml.SAXGenerator;
-import org.kabeja.xml.SAXPrettyOutputter;
-import org.xml.sax.ContentHandler;
-import org.xml.sax.SAXException;
 
 /**
+ * Imports DXF files by converting the entities parsed by kabeja
+ * directly into DXFShapes. DXF units are interpreted as mm.
  *
  * @author Thomas Oster <thomas.oster@rwth-aachen.de>
  */
 public class DXFImporter extends AbstractImporter
 {
 
+  //protects against blocks which (indirectly) insert themselves
+  private static final int MAX_BLOCK_DEPTH = 32;
+  private static final Color[] COLORS = new Color[256];
+
+  private static Color getColor(int index)
+  {
+    if (index < 1 || index > 255)
+    {
+      //the default color, kabeja maps it to black
+      index = 7;
+    }
+    synchronized (COLORS)
+    {
+      if (COLORS[index] == null)
+      {
+        String[] rgb = org.kabeja.dxf.DXFColor.getRGBString(index).split(",");
+        COLORS[index] = new Color(Integer.parseInt(rgb[0].trim()), Integer.parseInt(rgb[1].trim()), Integer.parseInt(rgb[2].trim()));
+      }
+      return COLORS[index];
+    }
+  }
+
+  /**
+   * Describes where the entities of a block are inserted
+   */
+  private static class Context
+  {
+    //transforms the entity coordinates into VisiCut coordinates
+    AffineTransform transform;
+    //layer and color of the inserting entity, null at top level
+    String layer;
+    Color color;
+    int depth;
+
+    Context(AffineTransform transform, String layer, Color color, int depth)
+    {
+      this.transform = transform;
+      this.layer = layer;
+      this.color = color;
+      this.depth = depth;
+    }
+  }
+
+  private DXFDocument doc;
+  private GraphicSet result;
+  private Set<String> ignoredTypes;
+
   public GraphicSet importSetFromFile(File inputFile, List<String> warnings) throws ImportException
   {
-    GraphicSet result = new GraphicSet();
     try
     {
       Parser parser = ParserBuilder.createDefaultParser();
-      parser.parse(new FileInputStream(inputFile), DXFParser.DEFAULT_ENCODING);
-      final DXFDocument doc = parser.getDocument();
+      InputStream in = new BufferedInputStream(new FileInputStream(inputFile));
+      try
+      {
+        parser.parse(in, DXFParser.DEFAULT_ENCODING);
+      }
+      finally
+      {
+        in.close();
+      }
+      doc = parser.getDocument();
+      result = new GraphicSet();
+      ignoredTypes = new TreeSet<String>();
+      //DXF uses a y-axis pointing upwards
+      Context root = new Context(AffineTransform.getScaleInstance(1, -1), null, null, 0);
+      for (Iterator li = doc.getDXFLayerIterator(); li.hasNext();)
+      {
+        DXFLayer layer = (DXFLayer) li.next();
+        if (!layer.isVisible() || layer.isFrozen())
+        {
+          continue;
+        }
+        for (Iterator ti = layer.getDXFEntityTypeIterator(); ti.hasNext();)
+        {
+          for (Object e : layer.getDXFEntities((String) ti.next()))
+          {
+            if (((DXFEntity) e).isModelSpace())
+            {
+              addEntity((DXFEntity) e, root);
+            }
+          }
+        }
+      }
+      if (!ignoredTypes.isEmpty())
+      {
+        warnings.add("Ignored unsupported DXF entities: "+ignoredTypes);
+      }
+      result.setBasicTransform(new AffineTransform());
+      result.setTransform(result.getBasicTransform());
+      return result;
+    }
+    catch (Exception e)
+    {
+      throw new ImportException(e);
+    }
+    finally
+    {
+      doc = null;
+      result = null;
+      ignoredTypes = null;
+    }
+  }
 
-      PipedInputStream in = new PipedInputStream();
-      PipedOutputStream out = new PipedOutputStream(in);
+  private void addEntity(DXFEntity e, Context c)
+  {
+    if (!e.isVisibile())
+    {
+      return;
+    }
+    //entities on layer 0 inside of blocks inherit the layer of the insert
+    String layer = e.getLayerName();
+    if (c.layer != null && (layer == null || "0".equals(layer)))
+    {
+      layer = c.layer;
+    }
+    Color color;
+    if (e.getColorRGB() != null && e.getColorRGB().length == 3)
+    {
+      byte[] rgb = e.getColorRGB();
+      color = new Color(rgb[0] & 0xFF, rgb[1] & 0xFF, rgb[2] & 0xFF);
+    }
+    else if (e.getColor() > 0 && e.getColor() < 256)
+    {
+      color = getColor(e.getColor());
+    }
+    else if (e.getColor() == 0 && c.color != null)
+    {
+      //by block
+      color = c.color;
+    }
+    else
+    {
+      //by layer
+      DXFLayer l = layer != null ? doc.getDXFLayer(layer) : null;
+      color = getColor(l != null ? Math.abs(l.getColor()) : 7);
+    }
+    if (e instanceof DXFInsert)
+    {
+      addInsert((DXFInsert) e, layer, color, c);
+    }
+    else if (e instanceof DXFDimension)
+    {
+      //dimensions are drawn by an anonymous block in world coordinates
+      addBlock(((DXFDimension) e).getDimensionBlock(), new AffineTransform(), layer, color, c);
+    }
+    else if (e instanceof DXFText)
+    {
+      Shape s = createText((DXFText) e);
+      if (s != null)
+      {
+        result.add(new DXFShape(c.transform.createTransformedShape(s), layer, color, e.getType(), true));
+      }
+    }
+    else
+    {
+      Shape s = e instanceof DXFHatch ? createHatch((DXFHatch) e) : createShape(e);
+      if (s == null)
+      {
+        ignoredTypes.add(e.getType());
+      }
+      else
+      {
+        result.add(new DXFShape(c.transform.createTransformedShape(s), layer, color, e.getType()));
+      }
+    }
+  }
 
+  private void addInsert(DXFInsert insert, String layer, Color color, Context c)
+  {
+    DXFBlock block = doc.getDXFBlock(insert.getBlockID());
+    if (block == null)
+    {
+      return;
+    }
+    Point base = block.getReferencePoint();
+    Point p = insert.getPoint();
+    int rows = Math.max(1, insert.getRows());
+    int columns = Math.max(1, insert.getColumns());
+    for (int row = 0; row < rows; row++)
+    {
+      for (int column = 0; column < columns; column++)
+      {
+        AffineTransform at = new AffineTransform();
+        if (isMirrored(insert))
+        {
+          at.scale(-1, 1);
+        }
+        at.translate(p.getX(), p.getY());
+        at.rotate(Math.toRadians(insert.getRotate()));
+        at.translate(column*insert.getColumnSpacing(), row*insert.getRowSpacing());
+        at.scale(insert.getScaleX() == 0 ? 1 : insert.getScaleX(), insert.getScaleY() == 0 ? 1 : insert.getScaleY());
+        if (base != null)
+        {
+          at.translate(-base.getX(), -base.getY());
+        }
+        addBlock(block, at, layer, color, c);
+      }
+    }
+  }
 
-      //the SVG will be emitted as SAX-Events
-      //see org.xml.sax.ContentHandler for more information
-      final ContentHandler myhandler = new SAXPrettyOutputter(out);
+  private void addBlock(String name, AffineTransform at, String layer, Color color, Context c)
+  {
+    DXFBlock block = name != null ? doc.getDXFBlock(name) : null;
+    if (block != null)
+    {
+      addBlock(block, at, layer, color, c);
+    }
+  }
 
-      //the output - create first a SAXGenerator (SVG here)
-      final SAXGenerator generator = new SVGGenerator();
+  private void addBlock(DXFBlock block, AffineTransform at, String layer, Color color, Context c)
+  {
+    if (c.depth >= MAX_BLOCK_DEPTH)
+    {
+      ignoredTypes.add("recursive block "+block.getName());
+      return;
+    }
+    AffineTransform transform = new AffineTransform(c.transform);
+    transform.concatenate(at);
+    Context inner = new Context(transform, layer, color, c.depth+1);
+    for (Iterator i = block.getDXFEntitiesIterator(); i.hasNext();)
+    {
+      addEntity((DXFEntity) i.next(), inner);
+    }
+  }
 
-      //setup properties
-      generator.setProperties(new HashMap());
+  /**
+   * Entities which are defined in their own coordinate system
+   * are mirrored if their extrusion direction points down
+   */
+  private boolean isMirrored(DXFEntity e)
+  {
+    return e.getExtrusion() != null && e.getExtrusion().getZ() < 0;
+  }
 
-      new Thread(
-        new Runnable()
+  /**
+   * Returns the outline of the entity in DXF coordinates
+   * or null if the entity type is not supported
+   */
+  private Shape createShape(DXFEntity e)
+  {
+    Shape s = null;
+    if (e instanceof DXFLine)
+    {
+      DXFLine l = (DXFLine) e;
+      return new Line2D.Double(l.getStartPoint().getX(), l.getStartPoint().getY(), l.getEndPoint().getX(), l.getEndPoint().getY());
+    }
+    else if (e instanceof DXFArc)
+    {
+      DXFArc a = (DXFArc) e;
+      double extent = a.getEndAngle() - a.getStartAngle();
+      if (extent <= 0)
+      {
+        extent += 360;
+      }
+      //Arc2D angles run clockwise in DXF coordinates
+      Arc2D arc = new Arc2D.Double(Arc2D.OPEN);
+      arc.setArcByCenter(a.getCenterPoint().getX(), a.getCenterPoint().getY(), a.getRadius(), -a.getStartAngle(), -extent, Arc2D.OPEN);
+      s = arc;
+    }
+    else if (e instanceof DXFCircle)
+    {
+      DXFCircle circle = (DXFCircle) e;
+      double r = circle.getRadius();
+      s = new Ellipse2D.Double(circle.getCenterPoint().getX()-r, circle.getCenterPoint().getY()-r, 2*r, 2*r);
+    }
+    else if (e instanceof DXFEllipse)
+    {
+      return createEllipse((DXFEllipse) e);
+    }
+    else if (e instanceof DXFPolyline)
+    {
+      DXFPolyline p = (DXFPolyline) e;
+      if (p.isPolyfaceMesh() || p.is3DPolygonMesh())
+      {
+        return null;
+      }
+      s = createPolyline(p);
+      if (p.is3DPolygon())
+      {
+        //3D polylines are defined in world coordinates
+        return s;
+      }
+    }
+    else if (e instanceof DXFSpline)
+    {
+      DXFPolyline p = DXFSplineConverter.toDXFPolyline((DXFSpline) e);
+      return p != null ? createPolyline(p) : null;
+    }
+    else if (e instanceof DXFSolid)
+    {
+      //the corners of solids are given in zig-zag order
+      DXFSolid solid = (DXFSolid) e;
+      Path2D.Double path = new Path2D.Double();
+      path.moveTo(solid.getPoint1().getX(), solid.getPoint1().getY());
+      path.lineTo(solid.getPoint2().getX(), solid.getPoint2().getY());
+      path.lineTo(solid.getPoint4().getX(), solid.getPoint4().getY());
+      path.lineTo(solid.getPoint3().getX(), solid.getPoint3().getY());
+      path.closePath();
+      s = path;
+    }
+    if (s != null && isMirrored(e))
+    {
+      s = AffineTransform.getScaleInstance(-1, 1).createTransformedShape(s);
+    }
+    return s;
+  }
+
+  /**
+   * Returns the boundary of the hatch. The hatch pattern itself
+   * is not imported.
+   */
+  private Shape createHatch(DXFHatch h)
+  {
+    Path2D.Double path = new Path2D.Double();
+    for (Iterator li = h.getBoundaryLoops(); li.hasNext();)
+    {
+      HatchBoundaryLoop loop = (HatchBoundaryLoop) li.next();
+      for (Iterator ei = loop.getBoundaryEdgesIterator(); ei.hasNext();)
+      {
+        Shape edge = createShape((DXFEntity) ei.next());
+        if (edge != null)
         {
+          path.append(edge, false);
+        }
+      }
+    }
+    if (path.getCurrentPoint() == null)
+    {
+      return null;
+    }
+    return isMirrored(h) ? AffineTransform.getScaleInstance(-1, 1).createTransformedShape(path) : path;
+  }
 
-          public void run()
-          {
-          try
-          {
-            generator.generate(doc, myhandler, new HashMap());
-          }
-          catch (SAXException ex)
-          {
-            Logger.getLogger(DXFImporter.class.getName()).log(Level.SEVERE, null, ex);
-          }
-          }
-        }).start();
-      SVGImporter svgimp = new SVGImporter();
-      //TODO Check which resolution it exports and adapt it to mm
-      result = svgimp.importSetFromFile(in, inputFile.getName(), 1/Util.mm2inch(1), warnings);
+  private static Font textFont = null;
+  private static double textCapHeight;
+  private static final FontRenderContext TEXT_FRC = new FontRenderContext(null, true, true);
+
+  /**
+   * Returns the font used for all DXF text (the SHX fonts of DXF
+   * files are not available) and initializes the cap height, which
+   * DXF uses as the text height.
+   */
+  private static synchronized Font getTextFont()
+  {
+    if (textFont == null)
+    {
+      textFont = new Font("SansSerif", Font.PLAIN, 100);
+      textCapHeight = textFont.createGlyphVector(TEXT_FRC, "H").getVisualBounds().getHeight();
     }
-    catch (Exception ex)
+    return textFont;
+  }
+
+  /**
+   * Returns the outlines of the characters of a TEXT or MTEXT entity.
+   * The text is rendered with a sans serif font scaled to the text height.
+   */
+  private Shape createText(DXFText t)
+  {
+    String[] lines;
+    double height;
+    int halign;
+    int valign;
+    Point anchor;
+    if (t instanceof DXFMText)
+    {
+      List<String> list = new LinkedList<String>();
+      StringBuilder line = new StringBuilder();
+      height = t.getHeight();
+      for (Iterator i = t.getTextDocument().getStyledParagraphIterator(); i.hasNext();)
+      {
+        StyledTextParagraph p = (StyledTextParagraph) i.next();
+        if (p.isNewline() && line.length() > 0)
+        {
+          list.add(line.toString());
+          line.setLength(0);
+        }
+        line.append(p.getText());
+        if (p.getFontHeight() > 0)
+        {
+          height = p.getFontHeight();
+        }
+      }
+      list.add(line.toString());
+      lines = list.toArray(new String[0]);
+      //attachment points are numbered row by row, starting top left
+      int attachment = Math.max(1, Math.min(9, ((DXFMText) t).getAlignment()));
+      halign = (attachment-1) % 3;
+      valign = 3 - (attachment-1) / 3;
+      anchor = t.getInsertPoint();
+    }
+    else
+    {
+      lines = new String[]{t.getTextDocument().getText()};
+      height = t.getHeight();
+      switch (t.getAlign())
+      {
+        case DXFText.ALIGN_CENTER:
+        case DXFText.ALIGN_MIDDLE:
+          halign = 1;
+          break;
+        case DXFText.ALIGN_RIGHT:
+          halign = 2;
+          break;
+        default:
+          halign = 0;
+      }
+      valign = t.getAlign() == DXFText.ALIGN_MIDDLE ? DXFText.VALIGN_CENTER : t.getValign();
+      anchor = t.isAlignmentPointSet() && (halign != 0 || valign != DXFText.VALIGN_BASELINE) ? t.getAlignmentPoint() : t.getInsertPoint();
+    }
+    if (height <= 0)
+    {
+      height = DXFText.DEFAULT_FONT_SIZE;
+    }
+    Font font = getTextFont();
+    double scale = height / textCapHeight;
+    //AutoCAD's default line spacing
+    double lineHeight = 5d/3*height;
+    double blockHeight = (lines.length-1)*lineHeight + height;
+    double top;
+    switch (valign)
+    {
+      case DXFText.VALIGN_TOP:
+        top = 0;
+        break;
+      case DXFText.VALIGN_CENTER:
+        top = blockHeight/2;
+        break;
+      default:
+        //bottom and baseline, the descent is not taken into account
+        top = blockHeight;
+    }
+    Path2D.Double result = new Path2D.Double();
+    for (int i = 0; i < lines.length; i++)
+    {
+      if (lines[i].trim().length() == 0)
+      {
+        continue;
+      }
+      GlyphVector gv = font.createGlyphVector(TEXT_FRC, lines[i]);
+      double width = gv.getLogicalBounds().getWidth()*scale*(t.getScaleX() > 0 ? t.getScaleX() : 1);
+      AffineTransform at = AffineTransform.getTranslateInstance(anchor.getX(), anchor.getY());
+      at.rotate(Math.toRadians(t.getRotation()));
+      //DXF uses a y-axis pointing upwards, glyphs one pointing down
+      at.translate(-halign*width/2, top - height - i*lineHeight);
+      if (t.getObliqueAngle() != 0)
+      {
+        at.shear(Math.tan(Math.toRadians(t.getObliqueAngle())), 0);
+      }
+      at.scale(scale*(t.getScaleX() > 0 ? t.getScaleX() : 1), -scale);
+      result.append(at.createTransformedShape(gv.getOutline()), false);
+    }
+    if (result.getCurrentPoint() == null)
+    {
+      return null;
+    }
+    return isMirrored(t) ? AffineTransform.getScaleInstance(-1, 1).createTransformedShape(result) : result;
+  }
+
+  private Shape createEllipse(DXFEllipse e)
+  {
+    double mx = e.getMajorAxisDirection().getX();
+    double my = e.getMajorAxisDirection().getY();
+    double rx = Math.sqrt(mx*mx+my*my);
+    double ry = rx*e.getRatio();
+    double start = Math.toDegrees(e.getStartParameter());
+    double extent = Math.toDegrees(e.getEndParameter()) - start;
+    if (extent <= 0)
+    {
+      extent += 360;
+    }
+    //Arc2D angles are parametric angles of the ellipse
+    Arc2D arc = new Arc2D.Double(-rx, -ry, 2*rx, 2*ry, -start, -extent, Arc2D.OPEN);
+    AffineTransform at = AffineTransform.getTranslateInstance(e.getCenterPoint().getX(), e.getCenterPoint().getY());
+    at.rotate(Math.atan2(my, mx));
+    return at.createTransformedShape(arc);
+  }
+
+  /**
+   * Converts a (lightweight) polyline, where the bulge of a vertex
+   * describes an arc to the next vertex
+   */
+  private Shape createPolyline(DXFPolyline p)
+  {
+    Path2D.Double path = new Path2D.Double();
+    DXFVertex first = null;
+    DXFVertex last = null;
+    for (Iterator i = p.getVertexIterator(); i.hasNext();)
+    {
+      DXFVertex v = (DXFVertex) i.next();
+      if (v.is2DSplineControlVertex())
+      {
+        continue;
+      }
+      if (last == null)
+      {
+        first = v;
+        path.moveTo(v.getX(), v.getY());
+      }
+      else
+      {
+        appendSegment(path, last, v);
+      }
+      last = v;
+    }
+    if (first == null)
+    {
+      return null;
+    }
+    if (p.isClosed())
+    {
+      appendSegment(path, last, first);
+      path.closePath();
+    }
+    return path;
+  }
+
+  private void appendSegment(Path2D path, DXFVertex from, DXFVertex to)
+  {
+    double b = from.getBulge();
+    double dx = to.getX()-from.getX();
+    double dy = to.getY()-from.getY();
+    double d = Math.sqrt(dx*dx+dy*dy);
+    if (b == 0 || d == 0)
     {
-      Logger.getLogger(DXFImporter.class.getName()).log(Level.SEVERE, null, ex);
+      path.lineTo(to.getX(), to.getY());
+      return;
     }
-    return result;
+    //the bulge is the tangent of a quarter of the included angle,
+    //positive values mean counter clockwise arcs
+    double angle = 4*Math.atan(b);
+    double radius = d*(1+b*b)/(4*Math.abs(b));
+    //distance of the center from the middle of the chord, along the left normal
+    double h = d*(1-b*b)/(4*b);
+    double cx = (from.getX()+to.getX())/2 - dy/d*h;
+    double cy = (from.getY()+to.getY())/2 + dx/d*h;
+    double start = Math.toDegrees(Math.atan2(from.getY()-cy, from.getX()-cx));
+    Arc2D arc = new Arc2D.Double(Arc2D.OPEN);
+    arc.setArcByCenter(cx, cy, radius, -start, -Math.toDegrees(angle), Arc2D.OPEN);
+    path.append(arc, true);
   }
 
   public FileFilter getFileFilter()
@@ -0,0 +1,171 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements.dxfsupport;
+
+import com.t_oster.visicut.misc.ShapeBounds;
+import com.t_oster.visicut.model.graphicelements.FlattenedShapeCache;
+import com.t_oster.visicut.model.graphicelements.ShapeObject;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single entity of a DXF file, converted to a Java2D shape
+ * in VisiCut coordinates (mm, y-axis pointing down).
+ * The layer is available as "Group" (like the layers of
+ * other formats) and as "Layer".
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class DXFShape implements ShapeObject
+{
+
+  public enum Attribute
+  {
+    Group,
+    Layer,
+    Color,
+    Stroke_Color,
+    Type,
+  }
+
+  private static final List<String> ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(new String[]{"Group", "Layer", "Color", "Stroke Color", "Type"}));
+
+  private Shape shape;
+  private String layer;
+  private Color color;
+  private String type;
+  private boolean filled;
+  private List<Object> layerValues;
+  private List<Object> colorValues;
+  private List<Object> typeValues;
+  private FlattenedShapeCache flattenedShape = new FlattenedShapeCache();
+  private Rectangle2D bbCache;
+
+  public DXFShape(Shape shape, String layer, Color color, String type)
+  {
+    this(shape, layer, color, type, false);
+  }
+
+  /**
+   * @param shape
+   * @param layer
+   * @param color
+   * @param type
+   * @param filled if true, the shape is filled instead of outlined
+   * when rendered (e.g. for text)
+   */
+  public DXFShape(Shape shape, String layer, Color color, String type, boolean filled)
+  {
+    this.shape = shape;
+    this.layer = layer;
+    this.color = color;
+    this.type = type;
+    this.filled = filled;
+    this.layerValues = layer != null ? Collections.<Object>singletonList(layer) : Collections.<Object>emptyList();
+    this.colorValues = Collections.<Object>singletonList(color);
+    this.typeValues = Collections.<Object>singletonList(type);
+  }
+
+  public String getLayer()
+  {
+    return layer;
+  }
+
+  public Color getColor()
+  {
+    return color;
+  }
+
+  public String getType()
+  {
+    return type;
+  }
+
+  public boolean isFilled()
+  {
+    return filled;
+  }
+
+  public Shape getShape()
+  {
+    return shape;
+  }
+
+  public Shape getFlattenedShape(double flatness)
+  {
+    return flattenedShape.get(this.shape, flatness);
+  }
+
+  public Rectangle2D getBoundingBox()
+  {
+    if (bbCache == null)
+    {
+      bbCache = ShapeBounds.getBounds(shape, null);
+    }
+    return (Rectangle2D) bbCache.clone();
+  }
+
+  public List<Object> getAttributeValues(String name)
+  {
+    try
+    {
+      switch (Attribute.valueOf(name.replace(" ", "_")))
+      {
+        case Group:
+        case Layer:
+          return layerValues;
+        case Color:
+        case Stroke_Color:
+          return colorValues;
+        case Type:
+          return typeValues;
+      }
+    }
+    catch (IllegalArgumentException e)
+    {
+      //not one of our attributes
+    }
+    return Collections.emptyList();
+  }
+
+  public List<String> getAttributes()
+  {
+    return ATTRIBUTES;
+  }
+
+  public void render(Graphics2D g)
+  {
+    g.setColor(color);
+    if (filled)
+    {
+      g.fill(shape);
+      return;
+    }
+    //hairline, the width of DXF lines is not used for cutting
+    g.setStroke(new BasicStroke(0));
+    g.draw(shape);
+  }
+
+}
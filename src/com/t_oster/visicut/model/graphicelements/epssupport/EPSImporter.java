@@ -21,28 +21,21 @@ package com.t_oster.visicut.model.graphicelements.epssupport;
 import com.t_oster.liblasercut.platform.Util;
 import com.t_oster.visicut.misc.ExtensionFilter;
 import com.t_oster.visicut.model.graphicelements.AbstractImporter;
+import com.t_oster.visicut.model.graphicelements.GraphicObject;
 import com.t_oster.visicut.model.graphicelements.GraphicSet;
 import com.t_oster.visicut.model.graphicelements.ImportException;
-import com.t_oster.visicut.model.graphicelements.svgsupport.SVGImporter;
 import java.awt.Dimension;
-import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.Writer;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.filechooser.FileFilter;
-import org.apache.batik.dom.GenericDOMImplementation;
-import org.apache.batik.svggen.SVGGraphics2D;
 import org.freehep.postscript.PSInputFile;
 import org.freehep.postscript.Processor;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
 
 /**
  *
@@ -56,37 +49,52 @@ public class EPSImporter extends AbstractImporter
     return new ExtensionFilter(".eps", "Encapsulated PostScript (*.eps)");
   }
 
+  private static Rectangle2D parseBoundingBox(String line)
+  {
+    try
+    {
+      String[] elements = line.substring(line.indexOf(':')+1).trim().split("\\s+");
+      double llx = Double.parseDouble(elements[0]);
+      double lly = Double.parseDouble(elements[1]);
+      double urx = Double.parseDouble(elements[2]);
+      double ury = Double.parseDouble(elements[3]);
+      return new Rectangle2D.Double(llx, lly, urx-llx, ury-lly);
+    }
+    catch (NumberFormatException e)
+    {
+    }
+    catch (ArrayIndexOutOfBoundsException e)
+    {
+    }
+    return null;
+  }
+
   /**
-   * Tries to read the BoundingBox out of the EPS file.
-   * If not successful, it returns a default BoundingBox
+   * Tries to read the BoundingBox and the HiResBoundingBox
+   * out of the EPS file. Missing values are null.
    * @param epsfile
    * @return
    */
-  private Rectangle2D getBoundingBox(File epsfile)
+  private Rectangle2D[] getBoundingBoxes(File epsfile)
   {
-    Rectangle.Double result = new Rectangle.Double(0, 0, 800, 600);
+    Rectangle2D[] result = new Rectangle2D[2];
     try
     {
       BufferedReader r = new BufferedReader(new FileReader(epsfile));
       String line = null;
       while ((line = r.readLine()) != null)
       {
-        //TODO: Get HighRes BoundingBox
-        if (line.startsWith("%%BoundingBox:") || line.startsWith("%%PageBoundingBox:"))
+        if (result[0] == null && (line.startsWith("%%BoundingBox:") || line.startsWith("%%PageBoundingBox:")))
+        {
+          result[0] = parseBoundingBox(line);
+        }
+        else if (result[1] == null && line.startsWith("%%HiResBoundingBox:"))
         {
-          try
-          {
-            String[] elements = line.split(" ");
-            result = new Rectangle.Double(
-              Integer.parseInt(elements[1]),
-              Integer.parseInt(elements[2]),
-              Integer.parseInt(elements[3]),
-              Integer.parseInt(elements[4]));
-            break;
-          }
-          catch (NumberFormatException e)
-          {
-          }
+          result[1] = parseBoundingBox(line);
+        }
+        if ((result[0] != null && result[1] != null) || (result[0] != null && line.startsWith("%%EndComments")))
+        {
+          break;
         }
       }
       r.close();
@@ -100,35 +108,41 @@ public class EPSImporter extends AbstractImporter
 
   public GraphicSet importSetFromFile(File inputFile, List<String> warnings) throws ImportException
   {
-    Writer out = null;
     try
     {
-      // Get a DOMImplementation
-      DOMImplementation domImpl =
-        GenericDOMImplementation.getDOMImplementation();
-      // Create an instance of org.w3c.dom.Document
-      Document document = domImpl.createDocument(null, "svg", null);
-      // Create an instance of the SVG Generator
-      final SVGGraphics2D svgGenerator = new SVGGraphics2D(document);
-      svgGenerator.setTransform(new AffineTransform());
+      //Assume the EPS has been created with 72DPI (from Inkscape)
+      double px2mm = Util.inch2mm(1d/72d);
+      Rectangle2D[] boxes = this.getBoundingBoxes(inputFile);
+      Rectangle2D bb = boxes[0] != null ? boxes[0] : new Rectangle2D.Double(0, 0, 800, 600);
+      AffineTransform origin = new AffineTransform();
+      if (boxes[0] != null && boxes[1] != null)
+      {
+        //freehep moves the (integer) BoundingBox to the origin,
+        //the HiResBoundingBox is the exact area of the drawing
+        origin.translate(bb.getX()-boxes[1].getX(), boxes[1].getMaxY()-bb.getMaxY());
+      }
+      ShapeRecorder recorder = new ShapeRecorder(origin, px2mm);
       // Open input file
       PSInputFile in = new PSInputFile(inputFile.getAbsolutePath());
-      Rectangle2D bb = this.getBoundingBox(inputFile);
-      svgGenerator.setTransform(AffineTransform.getTranslateInstance(-bb.getX(), -bb.getY()));
+      //same size as the BoundingBox, so freehep does not scale
       Dimension d = new Dimension((int) bb.getWidth(), (int) bb.getHeight());
       // Create processor and associate to input and output file
-      Processor processor = new Processor(svgGenerator, d, false);
+      Processor processor = new Processor(recorder, d, false);
       processor.setData(in);
 
       // Process
       processor.process();
-      File tmp = File.createTempFile("temp", "svg");
-      tmp.deleteOnExit();
-      svgGenerator.stream(new FileWriter(tmp));
-      GraphicSet result = new SVGImporter().importSetFromFile(tmp, warnings);
-      //Assume the EPS has been created with 72DPI (from Inkscape)
-      double px2mm = Util.inch2mm(1d/72d);
+      GraphicSet result = new GraphicSet();
+      for (GraphicObject o : recorder.getShapes())
+      {
+        result.add(o);
+      }
+      if (recorder.getSkippedImages() > 0)
+      {
+        warnings.add(recorder.getSkippedImages()+" images in the EPS file could not be read");
+      }
       result.setBasicTransform(AffineTransform.getScaleInstance(px2mm, px2mm));
+      result.setTransform(result.getBasicTransform());
       return result;
     }
     catch (Exception ex)
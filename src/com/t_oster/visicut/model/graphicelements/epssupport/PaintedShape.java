@@ -0,0 +1,76 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements.epssupport;
+
+import com.t_oster.visicut.model.graphicelements.CachedShape;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A recorded shape which is filled or stroked with a Paint other
+ * than a plain color, e.g. a gradient. The attributes report the
+ * color of the paint in the middle of the shape.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+class PaintedShape extends CachedShape
+{
+
+  private Paint paint;
+  private boolean stroked;
+
+  /**
+   * @param paint the paint in the coordinates of the element
+   * @param stroked if true, the outline of the stroke is painted
+   * instead of the shape
+   */
+  PaintedShape(Shape elementShape, AffineTransform transform, Rectangle2D boundingBox, Map<String, List<Object>> attributeValues, Color fill, Color stroke, float strokeWidth, Paint paint, boolean stroked)
+  {
+    super(elementShape, transform, boundingBox, attributeValues, fill, stroke, strokeWidth);
+    this.paint = paint;
+    this.stroked = stroked;
+  }
+
+  @Override
+  public void render(Graphics2D g)
+  {
+    AffineTransform bak = g.getTransform();
+    Paint bakPaint = g.getPaint();
+    g.transform(this.getTransform());
+    g.setPaint(paint);
+    if (stroked)
+    {
+      BasicStroke s = new BasicStroke(this.getStrokeWidth(), BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 4);
+      g.fill(s.createStrokedShape(this.getElementShape()));
+    }
+    else
+    {
+      g.fill(this.getElementShape());
+    }
+    g.setPaint(bakPaint);
+    g.setTransform(bak);
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements.epssupport;
+
+import com.t_oster.visicut.misc.Helper;
+import com.t_oster.visicut.model.graphicelements.GraphicObject;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A raster image embedded in an EPS file, kept in memory
+ * together with its placement and clip.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+class RecordedImage implements GraphicObject
+{
+
+  private static final List<Object> TYPE = Collections.<Object>singletonList("Image");
+  private static final List<Object> COLOR = Collections.<Object>singletonList("Bitmap");
+  private static final List<String> ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(new String[]{"Type", "Color"}));
+
+  private BufferedImage image;
+  private AffineTransform transform;
+  private Shape clip;
+  private Rectangle2D boundingBox;
+
+  /**
+   * @param image
+   * @param transform transforms image pixels into absolute coordinates
+   * @param clip the clip in absolute coordinates or null
+   */
+  RecordedImage(BufferedImage image, AffineTransform transform, Shape clip)
+  {
+    this.image = image;
+    this.transform = new AffineTransform(transform);
+    this.clip = clip;
+    this.boundingBox = Helper.transform(new Rectangle2D.Double(0, 0, image.getWidth(), image.getHeight()), transform);
+    if (clip != null)
+    {
+      Rectangle2D.intersect(boundingBox, clip.getBounds2D(), boundingBox);
+    }
+  }
+
+  public Rectangle2D getBoundingBox()
+  {
+    return (Rectangle2D) boundingBox.clone();
+  }
+
+  public List<Object> getAttributeValues(String name)
+  {
+    if ("Type".equals(name))
+    {
+      return TYPE;
+    }
+    if ("Color".equals(name))
+    {
+      return COLOR;
+    }
+    return Collections.emptyList();
+  }
+
+  public List<String> getAttributes()
+  {
+    return ATTRIBUTES;
+  }
+
+  public void render(Graphics2D g)
+  {
+    Shape bakClip = g.getClip();
+    if (clip != null)
+    {
+      g.clip(clip);
+    }
+    g.drawImage(image, transform, null);
+    g.setClip(bakClip);
+  }
+}
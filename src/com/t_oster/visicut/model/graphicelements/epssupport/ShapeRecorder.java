@@ -0,0 +1,495 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements.epssupport;
+
+import com.t_oster.visicut.misc.FlatPaths;
+import com.t_oster.visicut.misc.Helper;
+import com.t_oster.visicut.misc.ShapeBounds;
+import com.t_oster.visicut.model.graphicelements.CachedShape;
+import com.t_oster.visicut.model.graphicelements.GraphicObject;
+import com.t_oster.visicut.model.graphicelements.svgsupport.DashedShape;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.PaintContext;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ImageObserver;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.apache.batik.ext.awt.g2d.AbstractGraphics2D;
+import org.apache.batik.ext.awt.g2d.GraphicContext;
+
+/**
+ * A Graphics2D which does not paint anything, but records every
+ * filled or stroked shape together with its paint and transformation.
+ * Text is recorded as outlines, images are kept in memory. The clip
+ * is applied to shapes which are not completely inside of it. Strokes
+ * stay strokes, only their center line is clipped.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+class ShapeRecorder extends AbstractGraphics2D
+{
+
+  /**
+   * State which is shared by all Graphics created from
+   * the same ShapeRecorder
+   */
+  private static class Recording
+  {
+    List<GraphicObject> shapes = new LinkedList<GraphicObject>();
+    int skippedImages = 0;
+    AffineTransform origin;
+    double unit2mm;
+  }
+
+  private Recording recording;
+  private BufferedImage fontImage;
+
+  /**
+   * @param origin transformation which is applied to all shapes
+   * after the transformation of the graphics
+   * @param unit2mm size of one device unit in mm. It is only
+   * used for the Stroke Width attribute
+   */
+  public ShapeRecorder(AffineTransform origin, double unit2mm)
+  {
+    super(true);
+    this.gc = new GraphicContext();
+    this.recording = new Recording();
+    this.recording.origin = new AffineTransform(origin);
+    this.recording.unit2mm = unit2mm;
+  }
+
+  private ShapeRecorder(ShapeRecorder g)
+  {
+    super(g);
+    this.recording = g.recording;
+  }
+
+  public List<GraphicObject> getShapes()
+  {
+    return recording.shapes;
+  }
+
+  public int getSkippedImages()
+  {
+    return recording.skippedImages;
+  }
+
+  /**
+   * Returns the color of the paint in the middle of the given shape.
+   * The paint is evaluated in the coordinates of the shape.
+   */
+  private Color toColor(Paint p, Shape s)
+  {
+    if (p instanceof Color)
+    {
+      return (Color) p;
+    }
+    if (p != null)
+    {
+      try
+      {
+        Rectangle2D b = s.getBounds2D();
+        int x = (int) Math.floor(b.getCenterX());
+        int y = (int) Math.floor(b.getCenterY());
+        PaintContext pc = p.createContext(ColorModel.getRGBdefault(), new Rectangle(x, y, 1, 1), b, new AffineTransform(), getRenderingHints());
+        try
+        {
+          Raster r = pc.getRaster(x, y, 1, 1);
+          return new Color(pc.getColorModel().getRGB(r.getDataElements(r.getMinX(), r.getMinY(), null)));
+        }
+        finally
+        {
+          pc.dispose();
+        }
+      }
+      catch (RuntimeException e)
+      {
+        //paint can not be evaluated, use the default
+      }
+    }
+    return Color.BLACK;
+  }
+
+  private AffineTransform getAbsoluteTransform()
+  {
+    AffineTransform at = new AffineTransform(recording.origin);
+    at.concatenate(gc.getTransform());
+    return at;
+  }
+
+  /**
+   * Returns the clip, if it does not contain the given bounds,
+   * otherwise null. Both are in user space.
+   */
+  private Shape getClipFor(Rectangle2D bounds)
+  {
+    Shape clip = gc.getClip();
+    return clip == null || clip.contains(bounds) ? null : clip;
+  }
+
+  private void record(Shape s, Paint paint, boolean stroked, float strokeWidth)
+  {
+    Color color = toColor(paint, s);
+    Color fill = stroked ? null : color;
+    Color stroke = stroked ? color : null;
+    AffineTransform at = getAbsoluteTransform();
+    Rectangle2D bb = ShapeBounds.getBounds(s, at);
+    double scale = (Math.abs(at.getScaleX())+Math.abs(at.getScaleY()))/2;
+    if (stroke != null)
+    {
+      double w = strokeWidth*scale;
+      bb.setRect(bb.getX()-w/2, bb.getY()-w/2, bb.getWidth()+w, bb.getHeight()+w);
+    }
+    Map<String, List<Object>> values = new LinkedHashMap<String, List<Object>>();
+    values.put("Stroke Color", Arrays.asList(new Object[]{stroke != null ? stroke : "none"}));
+    values.put("Fill Color", Arrays.asList(new Object[]{fill != null ? fill : "none"}));
+    values.put("Stroke Width", Arrays.asList(new Object[]{(Double) (stroke != null ? strokeWidth*scale*recording.unit2mm : 0)}));
+    values.put("Color", Arrays.asList(new Object[]{stroke != null ? stroke : "none", fill != null ? fill : Color.BLACK}));
+    values.put("Type", Arrays.asList(new Object[]{"Path", "Shape"}));
+    if (paint instanceof Color || paint == null)
+    {
+      recording.shapes.add(new CachedShape(s, at, bb, values, fill, stroke, strokeWidth));
+    }
+    else
+    {
+      recording.shapes.add(new PaintedShape(s, at, bb, values, fill, stroke, strokeWidth, paint, stroked));
+    }
+  }
+
+  @Override
+  public void fill(Shape s)
+  {
+    Shape clip = getClipFor(s.getBounds2D());
+    if (clip != null)
+    {
+      Area a = new Area(s);
+      a.intersect(new Area(clip));
+      if (a.isEmpty())
+      {
+        return;
+      }
+      s = a;
+    }
+    record(s, gc.getPaint(), false, 0);
+  }
+
+  @Override
+  public void draw(Shape s)
+  {
+    Stroke stroke = gc.getStroke();
+    if (stroke instanceof BasicStroke)
+    {
+      BasicStroke bs = (BasicStroke) stroke;
+      if (bs.getDashArray() != null && bs.getDashArray().length > 0)
+      {
+        s = new Path2D.Double(new DashedShape(s, bs.getDashArray(), bs.getDashPhase()));
+      }
+      if (gc.getClip() != null)
+      {
+        Shape clip = getClipFor(bs.createStrokedShape(s).getBounds2D());
+        if (clip != null)
+        {
+          //flatten curves to 0.01mm
+          double flatness = FlatPaths.getFlatnessFor(getAbsoluteTransform()) * 0.01 / recording.unit2mm;
+          Path2D clipped = clipLine(s, clip, flatness);
+          if (clipped.getCurrentPoint() == null)
+          {
+            return;
+          }
+          s = clipped;
+        }
+      }
+      record(s, gc.getPaint(), true, bs.getLineWidth());
+    }
+    else
+    {
+      fill(stroke.createStrokedShape(s));
+    }
+  }
+
+  /**
+   * Returns the parts of the (flattened) line s, which are inside of
+   * the clip. The result is a line again, not an outline.
+   */
+  static Path2D clipLine(Shape s, final Shape clip, double flatness)
+  {
+    //edges of the clip as x0, y0, x1, y1
+    final List<double[]> edges = new ArrayList<double[]>();
+    FlatPaths.visit(clip, null, flatness, new FlatPaths.Visitor()
+    {
+      private double sx, sy, lx, ly;
+
+      public void moveTo(double x, double y)
+      {
+        sx = lx = x;
+        sy = ly = y;
+      }
+
+      public void lineTo(double x, double y)
+      {
+        edges.add(new double[]{lx, ly, x, y});
+        lx = x;
+        ly = y;
+      }
+
+      public void closePath()
+      {
+        lineTo(sx, sy);
+      }
+    });
+    final Path2D.Double result = new Path2D.Double();
+    FlatPaths.visit(s, null, flatness, new FlatPaths.Visitor()
+    {
+      private double sx, sy, lx, ly;
+      //end of the last segment added to the result
+      private double px = Double.NaN, py = Double.NaN;
+
+      public void moveTo(double x, double y)
+      {
+        sx = lx = x;
+        sy = ly = y;
+      }
+
+      public void lineTo(double x, double y)
+      {
+        if (x == lx && y == ly)
+        {
+          return;
+        }
+        List<Double> ts = new ArrayList<Double>();
+        ts.add(0d);
+        ts.add(1d);
+        double dx = x - lx;
+        double dy = y - ly;
+        for (double[] e : edges)
+        {
+          double ex = e[2] - e[0];
+          double ey = e[3] - e[1];
+          double denom = dx * ey - dy * ex;
+          if (denom == 0)
+          {
+            //parallel, the inside test of the pieces decides
+            continue;
+          }
+          double qx = e[0] - lx;
+          double qy = e[1] - ly;
+          double t = (qx * ey - qy * ex) / denom;
+          double u = (qx * dy - qy * dx) / denom;
+          if (t > 0 && t < 1 && u >= 0 && u <= 1)
+          {
+            ts.add(t);
+          }
+        }
+        Collections.sort(ts);
+        for (int i = 1; i < ts.size(); i++)
+        {
+          double t0 = ts.get(i - 1);
+          double t1 = ts.get(i);
+          double tm = (t0 + t1) / 2;
+          if (t1 > t0 && clip.contains(lx + tm * dx, ly + tm * dy))
+          {
+            double x0 = lx + t0 * dx;
+            double y0 = ly + t0 * dy;
+            if (x0 != px || y0 != py)
+            {
+              result.moveTo(x0, y0);
+            }
+            px = lx + t1 * dx;
+            py = ly + t1 * dy;
+            result.lineTo(px, py);
+          }
+        }
+        lx = x;
+        ly = y;
+      }
+
+      public void closePath()
+      {
+        lineTo(sx, sy);
+      }
+    });
+    return result;
+  }
+
+  @Override
+  public void clearRect(int x, int y, int width, int height)
+  {
+    //erasing the page is not part of the drawing
+  }
+
+  private static BufferedImage toBufferedImage(Image img)
+  {
+    if (img instanceof BufferedImage)
+    {
+      return (BufferedImage) img;
+    }
+    int w = img.getWidth(null);
+    int h = img.getHeight(null);
+    if (w <= 0 || h <= 0)
+    {
+      return null;
+    }
+    BufferedImage result = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = result.createGraphics();
+    g.drawImage(img, 0, 0, null);
+    g.dispose();
+    return result;
+  }
+
+  private static BufferedImage toBufferedImage(RenderedImage img)
+  {
+    if (img instanceof BufferedImage)
+    {
+      return (BufferedImage) img;
+    }
+    ColorModel cm = img.getColorModel();
+    WritableRaster r = img.copyData(null).createWritableTranslatedChild(0, 0);
+    return new BufferedImage(cm, r, cm.isAlphaPremultiplied(), null);
+  }
+
+  /**
+   * @param img the image or null if it could not be read
+   * @param placement transforms image pixels into user space
+   */
+  private void recordImage(BufferedImage img, AffineTransform placement)
+  {
+    if (img == null)
+    {
+      recording.skippedImages++;
+      return;
+    }
+    AffineTransform at = getAbsoluteTransform();
+    Shape clip = getClipFor(Helper.transform(new Rectangle2D.Double(0, 0, img.getWidth(), img.getHeight()), placement));
+    if (clip != null)
+    {
+      clip = at.createTransformedShape(clip);
+    }
+    at.concatenate(placement);
+    recording.shapes.add(new RecordedImage(img, at, clip));
+  }
+
+  @Override
+  public boolean drawImage(Image img, int x, int y, ImageObserver observer)
+  {
+    recordImage(toBufferedImage(img), AffineTransform.getTranslateInstance(x, y));
+    return true;
+  }
+
+  @Override
+  public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer)
+  {
+    BufferedImage bi = toBufferedImage(img);
+    AffineTransform placement = AffineTransform.getTranslateInstance(x, y);
+    if (bi != null)
+    {
+      placement.scale((double) width/bi.getWidth(), (double) height/bi.getHeight());
+    }
+    recordImage(bi, placement);
+    return true;
+  }
+
+  public void drawRenderedImage(RenderedImage img, AffineTransform xform)
+  {
+    recordImage(toBufferedImage(img), xform);
+  }
+
+  public void drawRenderableImage(RenderableImage img, AffineTransform xform)
+  {
+    drawRenderedImage(img.createDefaultRendering(), xform);
+  }
+
+  @Override
+  public void drawString(String str, float x, float y)
+  {
+    if (str.length() > 0)
+    {
+      fill(getFont().createGlyphVector(getFontRenderContext(), str).getOutline(x, y));
+    }
+  }
+
+  @Override
+  public void drawString(AttributedCharacterIterator iterator, float x, float y)
+  {
+    StringBuilder str = new StringBuilder();
+    for (char c = iterator.first(); c != AttributedCharacterIterator.DONE; c = iterator.next())
+    {
+      str.append(c);
+    }
+    drawString(str.toString(), x, y);
+  }
+
+  public Graphics create()
+  {
+    return new ShapeRecorder(this);
+  }
+
+  public GraphicsConfiguration getDeviceConfiguration()
+  {
+    return GraphicsEnvironment.isHeadless() ? null : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+  }
+
+  public FontMetrics getFontMetrics(Font f)
+  {
+    if (fontImage == null)
+    {
+      fontImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+    }
+    return fontImage.getGraphics().getFontMetrics(f);
+  }
+
+  public void setXORMode(Color c)
+  {
+  }
+
+  public void copyArea(int x, int y, int width, int height, int dx, int dy)
+  {
+  }
+
+  public void dispose()
+  {
+  }
+}
@@ -25,14 +25,13 @@ import com.t_oster.visicut.model.graphicelements.ImportException;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.GeneralPath;
-import java.io.BufferedReader;
+import java.awt.geom.Point2D;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.swing.filechooser.FileFilter;
 
 /**
@@ -60,6 +59,31 @@ public class GCodeImporter extends AbstractImporter
 
   };
   
+  /**
+   * maximum number of path segments per GCodeShape. Large files are
+   * split into several shapes, so bounding boxes stay meaningful
+   * and the preview only needs to draw the visible parts
+   */
+  private static final int SEGMENTS_PER_SHAPE = 10000;
+  //largest mantissa which can be multiplied by 10 and still be exact as double
+  private static final long MAX_EXACT_MANTISSA = 900719925474099L;
+  private static final double[] POWERS_OF_TEN = new double[23];
+  static
+  {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++)
+    {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1]*10;
+    }
+  }
+
+  //tokenizer states, a command looks like [A-Z]-?[0-9]+[,.]?[0-9]*
+  private static final int IDLE = 0;
+  private static final int LETTER = 1;
+  private static final int MINUS = 2;
+  private static final int INTEGER = 3;
+  private static final int FRACTION = 4;
+
   //current mode 0=move, 1=line, 2=arc cw, 3=arc ccw
   private int g_mode = 0;
   //if using absolute coordinates
@@ -75,207 +99,351 @@ public class GCodeImporter extends AbstractImporter
   private Double r = null;
   //factor for converting coordinates to mm
   private double unit2mm = 1;
-  
-  private Pattern command_pattern = Pattern.compile("[A-Z]-?[0-9]+[,.]?[0-9]*");
-  
+  //is set if the current line issues a move event
+  private boolean actionTriggered = false;
+
+  //the command which is currently parsed
+  private char[] cmd = new char[32];
+  private int cmdLength = 0;
+  private boolean cmdNegative = false;
+  private long cmdMantissa = 0;
+  private int cmdFractionDigits = 0;
+  private boolean cmdExact = true;
+
+  private GraphicSet result;
+  private GeneralPath resultingShape;
+  private int segments = 0;
+  private File inputFile;
+  private List<String> warnings;
+
+  private void appendToCommand(char c)
+  {
+    if (cmdLength == cmd.length)
+    {
+      char[] bigger = new char[cmd.length*2];
+      System.arraycopy(cmd, 0, bigger, 0, cmdLength);
+      cmd = bigger;
+    }
+    cmd[cmdLength++] = c;
+  }
+
+  private void appendDigit(int digit)
+  {
+    if (cmdMantissa < MAX_EXACT_MANTISSA)
+    {
+      cmdMantissa = cmdMantissa*10+digit;
+    }
+    else
+    {
+      cmdExact = false;
+    }
+  }
+
   /**
    * returns the coordinate e.g. from X or Y commands
    * assumes the first character to be the control
    * character
-   * @param command
-   * @return 
+   * @return
    */
-  private double getCoordinate(String cmd)
+  private double getCoordinate()
   {
-    cmd = cmd.substring(1).replace(",",".");
-    if (cmd.endsWith("."))
+    if (cmdExact && cmdFractionDigits < POWERS_OF_TEN.length)
+    {
+      //both values are exact, so the division is rounded
+      //exactly like Double.parseDouble
+      double value = cmdMantissa / POWERS_OF_TEN[cmdFractionDigits];
+      return unit2mm*(cmdNegative ? -value : value);
+    }
+    String number = new String(cmd, 1, cmdLength-1).replace(",",".");
+    if (number.endsWith("."))
     {
-      cmd = cmd.substring(0, cmd.length()-1);
+      number = number.substring(0, number.length()-1);
     }
-    return unit2mm*Double.parseDouble(cmd);
+    return unit2mm*Double.parseDouble(number);
   }
-  
-  @Override
-  public GraphicSet importSetFromFile(File inputFile, List<String> warnings) throws ImportException
+
+  private void executeCommand()
   {
-    try
+    char c = cmd[0];
+    if (c == 'G' && cmdLength == 3 && cmd[1] == '0')
+    {
+      if (cmd[2] >= '0' && cmd[2] <= '9')
+      {
+        g_mode = cmd[2] - '0';
+      }
+      else
+      {
+        warnings.add("Illegal G-Code: "+new String(cmd, 0, cmdLength));
+      }
+    }
+    else if (c == 'G' && cmdLength == 3 && cmd[1] == '2' && cmd[2] == '0')
+    {
+      //switch to inch-mode
+      unit2mm = Util.inch2mm(1);
+    }
+    else if (c == 'G' && cmdLength == 3 && cmd[1] == '2' && cmd[2] == '1')
+    {
+      //mm-mode
+      unit2mm = 1;
+    }
+    else if (c == 'X')
+    {
+      x = getCoordinate();
+      actionTriggered = true;
+    }
+    else if (c == 'Y')
+    {
+      y = getCoordinate();
+      actionTriggered = true;
+    }
+    else if (c == 'I')
+    {
+      cx = getCoordinate();
+    }
+    else if (c == 'J')
+    {
+      cy = getCoordinate();
+    }
+    else if (c == 'R')
+    {
+      r = getCoordinate();
+    }
+  }
+
+  private void addSegment()
+  {
+    if (++segments >= SEGMENTS_PER_SHAPE)
+    {
+      Point2D current = resultingShape.getCurrentPoint();
+      result.add(new GCodeShape(resultingShape, inputFile));
+      resultingShape = new GeneralPath(GeneralPath.WIND_NON_ZERO, SEGMENTS_PER_SHAPE+1);
+      resultingShape.moveTo((float) current.getX(), (float) current.getY());
+      segments = 0;
+    }
+  }
+
+  private void appendArc(boolean clockwise)
+  {
+    double start,end,extend,radius;
+    if (r != null)
+    {
+      radius = r;
+      //TODO: Circle cw from last_x/last_y to x/y with radius r
+    }
+    else
+    {
+      //TODO: Circle cw from last_x/last_y to x/y with center last_x+cx/last_y+cy
+      double mid_x = cx;
+      double mid_y = cy;
+      radius = Math.sqrt((last_x-cx)*(last_x-cx)+(last_y-cy)*(last_y-cy));
+      if (Math.abs(radius - Math.sqrt((x-cx)*(x-cx)+(y-cy)*(y-cy))) >= 0.1)
+      {
+        System.err.println("GCODE-WARNING: No real circle");
+      }
+      start = Math.atan2(last_y-mid_y, last_x-mid_x);
+      //convert to positive angle
+      if (start < 0) start += 2*Math.PI;
+      end = Math.atan2(y-mid_y, x-mid_x);
+      //convert to positive angle
+      if (end < 0) end += 2*Math.PI;
+      extend = start-end;
+      //convert to negative angle
+      if (extend > 0) extend-=2*Math.PI;
+      Arc2D arc = new Arc2D.Double();
+      if (clockwise)
+      {
+        //strange stuff with the angles, but it seems to work
+        arc.setArcByCenter(cx, cy, radius, -Math.toDegrees(start)-360, Math.toDegrees(extend)+360, Arc2D.OPEN);
+      }
+      else
+      {
+        //no idea why the start coordinate has to be negative, but seems to work
+        arc.setArcByCenter(cx, cy, radius, -Math.toDegrees(start), Math.toDegrees(extend), Arc2D.OPEN);
+      }
+      resultingShape.append(arc, true);
+      addSegment();
+    }
+  }
+
+  private void endOfLine()
+  {
+    if (actionTriggered)
     {
-      BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-      GraphicSet result = new GraphicSet();
-      GeneralPath resultingShape = new GeneralPath();
-      resultingShape.moveTo(0, 0);
-      String line = reader.readLine();
-      while (line != null)
+      if (g_mode == 0)
       {
-        //is set if this line issues a move event
-        boolean actionTriggered = false;
-        r = null;
-        Matcher matcher = command_pattern.matcher(line);
-        while (matcher.find()) 
+        if (absolute)
         {
-          String cmd = matcher.group();
-          try
-          {
-            if (cmd.startsWith("G0") && cmd.length() == 3)
-            {
-               g_mode = Integer.parseInt(cmd.substring(2));
-            }
-            else if ("G20".equals(cmd))
-            {
-              //switch to inch-mode
-              unit2mm = Util.inch2mm(1);
-            }
-            else if ("G21".equals(cmd))
-            {
-              //mm-mode
-              unit2mm = 1;
-            }
-            else if (cmd.startsWith("X"))
-            {
-              x = getCoordinate(cmd);
-              actionTriggered = true;
-            }
-            else if (cmd.startsWith("Y"))
-            {
-              y = getCoordinate(cmd);
-              actionTriggered = true;
-            }
-            else if (cmd.startsWith("I"))
-            {
-              cx = getCoordinate(cmd);
-            }
-            else if (cmd.startsWith("J"))
-            {
-              cy = getCoordinate(cmd);
-            }
-            else if (cmd.startsWith("R"))
-            {
-              r = getCoordinate(cmd);
-            }
-          }
-          catch (NumberFormatException e)
-          {
-            warnings.add("Illegal G-Code: "+cmd);
-          }
+          resultingShape.moveTo(x, y);
         }
-        if (actionTriggered)
+        else
         {
-          
-          if (g_mode == 0)
-          {
-            if (absolute)
-            {
-              resultingShape.moveTo(x, y);
-            }
-            else
-            {
-              resultingShape.moveTo(last_x+x, last_y+y);
-            }
-          }
-          else if (g_mode == 1)
-          {
-            if (absolute)
-            {
-              resultingShape.lineTo(x, y);
-            }
-            else
+          resultingShape.moveTo(last_x+x, last_y+y);
+        }
+        //only split after lines and arcs, because consecutive
+        //moves are merged by the path
+        segments++;
+      }
+      else if (g_mode == 1)
+      {
+        if (absolute)
+        {
+          resultingShape.lineTo(x, y);
+        }
+        else
+        {
+          resultingShape.lineTo(last_x+x, last_y+y);
+        }
+        addSegment();
+      }
+      else if (g_mode == 2 || g_mode == 3)
+      {
+        if (absolute)
+        {
+          appendArc(g_mode == 2);
+        }
+        else
+        {
+          //TODO
+        }
+      }
+      if (absolute)
+      {
+        last_x = x;
+        last_y = y;
+      }
+      else
+      {
+        last_x += x;
+        last_y += y;
+      }
+    }
+    actionTriggered = false;
+    r = null;
+  }
+
+  /**
+   * Parses the G-Code byte by byte without creating
+   * Strings for lines or commands. Every character
+   * which is not part of a command is ignored, like
+   * the former regular expression did.
+   */
+  private void parse(InputStream in) throws IOException
+  {
+    byte[] buffer = new byte[256*1024];
+    int state = IDLE;
+    int len;
+    while ((len = in.read(buffer)) != -1)
+    {
+      for (int i = 0; i < len; i++)
+      {
+        char c = (char) (buffer[i] & 0xFF);
+        boolean digit = c >= '0' && c <= '9';
+        switch (state)
+        {
+          case LETTER:
+            if (c == '-')
             {
-              resultingShape.lineTo(last_x+x, last_y+y);
+              cmdNegative = true;
+              appendToCommand(c);
+              state = MINUS;
+              continue;
             }
-          }
-          else if (g_mode == 2)
-          {
-            if (absolute)
+            //fall through
+          case MINUS:
+            if (digit)
             {
-              double ax,ay,aw,ah,start,end,extend,radius;
-              if (r != null)
-              {
-                radius = r;
-                //TODO: Circle cw from last_x/last_y to x/y with radius r
-              }
-              else
-              {
-                double mid_x = cx;
-                double mid_y = cy;
-                radius = Math.sqrt((last_x-cx)*(last_x-cx)+(last_y-cy)*(last_y-cy));
-                if (Math.abs(radius - Math.sqrt((x-cx)*(x-cx)+(y-cy)*(y-cy))) >= 0.1)
-                {
-                  System.err.println("GCODE-WARNING: No real circle");
-                }
-                start = Math.atan2(last_y-mid_y, last_x-mid_x);
-                //convert to positive angle
-                if (start < 0) start += 2*Math.PI;
-                end = Math.atan2(y-mid_y, x-mid_x);
-                //convert to positive angle
-                if (end < 0) end += 2*Math.PI;
-                extend = start-end;
-                //convert to negative angle
-                if (extend > 0) extend-=2*Math.PI;
-                //strange stuff with the angles, but it seems to work
-                Arc2D arc = new Arc2D.Double();
-                arc.setArcByCenter(cx, cy, radius, -Math.toDegrees(start)-360, Math.toDegrees(extend)+360, Arc2D.OPEN);
-                resultingShape.append(arc, true);
-              }         
+              appendToCommand(c);
+              appendDigit(c - '0');
+              state = INTEGER;
+              continue;
             }
-            else
+            break;
+          case INTEGER:
+            if (digit)
             {
-              //TODO
+              appendToCommand(c);
+              appendDigit(c - '0');
+              continue;
             }
-          }
-          else if (g_mode == 3)
-          {
-            if (absolute)
+            if (c == '.' || c == ',')
             {
-              double ax,ay,aw,ah,start,end,extend,radius;
-              if (r != null)
-              {
-                radius = r;
-                //TODO: Circle cw from last_x/last_y to x/y with radius r
-              }
-              else
-              {
-                //TODO: Circle cw from last_x/last_y to x/y with center last_x+cx/last_y+cy
-                double mid_x = cx;
-                double mid_y = cy;
-                radius = Math.sqrt((last_x-cx)*(last_x-cx)+(last_y-cy)*(last_y-cy));
-                if (Math.abs(radius - Math.sqrt((x-cx)*(x-cx)+(y-cy)*(y-cy))) >= 0.1)
-                {
-                  System.err.println("GCODE-WARNING: No real circle");
-                }
-                start = Math.atan2(last_y-mid_y, last_x-mid_x);
-                //convert to positive angle
-                if (start < 0) start += 2*Math.PI;
-                end = Math.atan2(y-mid_y, x-mid_x);
-                //convert to positive angle
-                if (end < 0) end += 2*Math.PI;
-                extend = start-end;
-                //convert to negative angle
-                if (extend > 0) extend-=2*Math.PI;
-                //no idea why the start coordinate has to be negative, but seems to work
-                Arc2D arc = new Arc2D.Double();
-                arc.setArcByCenter(cx, cy, radius, -Math.toDegrees(start), Math.toDegrees(extend), Arc2D.OPEN);
-                resultingShape.append(arc, true);
-              }         
+              appendToCommand(c);
+              state = FRACTION;
+              continue;
             }
-            else
+            executeCommand();
+            break;
+          case FRACTION:
+            if (digit)
             {
-              //TODO
+              appendToCommand(c);
+              appendDigit(c - '0');
+              cmdFractionDigits++;
+              continue;
             }
-          }
-          if (absolute)
-          {
-            last_x = x;
-            last_y = y;
-          }
-          else
-          {
-            last_x += x;
-            last_y += y;
-          }
+            executeCommand();
+            break;
+        }
+        //the current character does not belong to the last command
+        state = IDLE;
+        if (c >= 'A' && c <= 'Z')
+        {
+          cmd[0] = c;
+          cmdLength = 1;
+          cmdNegative = false;
+          cmdMantissa = 0;
+          cmdFractionDigits = 0;
+          cmdExact = true;
+          state = LETTER;
+        }
+        else if (c == '\n' || c == '\r')
+        {
+          endOfLine();
         }
-        line = reader.readLine();
       }
-      result.add(new GCodeShape(resultingShape, inputFile));
+    }
+    if (state == INTEGER || state == FRACTION)
+    {
+      executeCommand();
+    }
+    endOfLine();
+  }
+
+  @Override
+  public GraphicSet importSetFromFile(File inputFile, List<String> warnings) throws ImportException
+  {
+    g_mode = 0;
+    absolute = true;
+    last_x = 0;
+    last_y = 0;
+    x = 0;
+    y = 0;
+    cx = 0;
+    cy = 0;
+    r = null;
+    unit2mm = 1;
+    actionTriggered = false;
+    this.inputFile = inputFile;
+    this.warnings = warnings;
+    result = new GraphicSet();
+    resultingShape = new GeneralPath(GeneralPath.WIND_NON_ZERO, SEGMENTS_PER_SHAPE+1);
+    resultingShape.moveTo(0, 0);
+    segments = 0;
+    try
+    {
+      InputStream in = new FileInputStream(inputFile);
+      try
+      {
+        parse(in);
+      }
+      finally
+      {
+        in.close();
+      }
+      if (segments > 0 || result.isEmpty())
+      {
+        result.add(new GCodeShape(resultingShape, inputFile));
+      }
       result.setBasicTransform(new AffineTransform());
       result.setTransform(result.getBasicTransform());
       return result;
@@ -288,6 +456,13 @@ public class GCodeImporter extends AbstractImporter
     {
       throw new ImportException(ex);
     }
+    finally
+    {
+      this.result = null;
+      this.resultingShape = null;
+      this.inputFile = null;
+      this.warnings = null;
+    }
   }
 
   public FileFilter getFileFilter()
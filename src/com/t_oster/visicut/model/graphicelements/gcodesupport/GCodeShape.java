@@ -17,6 +17,7 @@
  *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
  **/
 package com.t_oster.visicut.model.graphicelements.gcodesupport;
+import com.t_oster.visicut.model.graphicelements.FlattenedShapeCache;
 import com.t_oster.visicut.model.graphicelements.ShapeObject;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -25,7 +26,7 @@ import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
 import java.io.File;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -37,6 +38,7 @@ public class GCodeShape implements ShapeObject
 
   private Shape shape;
   private File scriptSource;
+  private FlattenedShapeCache flattenedShape = new FlattenedShapeCache();
   
   public GCodeShape(Shape shape, File scriptSource)
   {
@@ -54,6 +56,11 @@ public class GCodeShape implements ShapeObject
     return this.shape;
   }
 
+  public Shape getFlattenedShape(double flatness)
+  {
+    return flattenedShape.get(this.shape, flatness);
+  }
+
   private Rectangle2D bbCache;
   public Rectangle2D getBoundingBox()
   {
@@ -64,13 +71,11 @@ public class GCodeShape implements ShapeObject
     return bbCache;
   }
 
+  private static final List<Object> TYPE = Collections.<Object>singletonList("GCode");
+
   public List<Object> getAttributeValues(String name)
   {
-    if ("Type".equals(name))
-    {
-      return Arrays.asList(new Object[]{"GCode"});
-    }
-    return new LinkedList<Object>();
+    return "Type".equals(name) ? TYPE : Collections.<Object>emptyList();
   }
 
   public List<String> getAttributes()
@@ -21,35 +21,163 @@ package com.t_oster.visicut.model.graphicelements.jpgpngsupport;
 import com.t_oster.visicut.model.graphicelements.GraphicObject;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.RenderedImage;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 /**
+ * A bitmap which is decoded lazily from its file. The image is decoded
+ * subsampled to the resolution it is rendered with, so previews never
+ * need the full resolution pixels. All decoded images are softly
+ * referenced and decoded again if they have been released under memory
+ * pressure.
+ * Since the file is read again later, its size and modification time
+ * are recorded on import. If they change or the file can not be read,
+ * the image is not rendered and getSourceProblem() describes why.
  *
  * @author Thomas Oster <thomas.oster@rwth-aachen.de>
  */
 public class JPGPNGImage implements GraphicObject
 {
 
-  private RenderedImage decoratee;
-  public JPGPNGImage(RenderedImage img)
+  /**
+   * Limits the subsampling, 2^MAX_LEVEL
+   */
+  private static final int MAX_LEVEL = 16;
+
+  private File file;
+  private long length;
+  private long lastModified;
+  private int width;
+  private int height;
+  /**
+   * levels.get(n) holds the image subsampled by 2^n
+   */
+  private List<SoftReference<BufferedImage>> levels = new ArrayList<SoftReference<BufferedImage>>(Collections.<SoftReference<BufferedImage>>nCopies(MAX_LEVEL + 1, null));
+  private volatile String readError = null;
+
+  /**
+   * @param file the image file
+   * @param width width of the image in pixels
+   * @param height height of the image in pixels
+   */
+  public JPGPNGImage(File file, int width, int height)
+  {
+    this.file = file;
+    this.length = file.length();
+    this.lastModified = file.lastModified();
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Opens a reader for the given file. It has to be released with close.
+   */
+  static ImageReader openReader(File file) throws IOException
+  {
+    ImageInputStream in = ImageIO.createImageInputStream(file);
+    if (in == null)
+    {
+      throw new IOException("Can't read "+file.getName());
+    }
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+    if (!readers.hasNext())
+    {
+      in.close();
+      throw new IOException("Unsupported image format: "+file.getName());
+    }
+    ImageReader reader = readers.next();
+    reader.setInput(in, true, false);
+    return reader;
+  }
+
+  static void close(ImageReader reader)
+  {
+    try
+    {
+      ((ImageInputStream) reader.getInput()).close();
+    }
+    catch (IOException ex)
+    {
+      Logger.getLogger(JPGPNGImage.class.getName()).log(Level.SEVERE, null, ex);
+    }
+    reader.dispose();
+  }
+
+  /**
+   * Returns the image at the given level or a finer one, if there
+   * is one in memory already. Decodes it otherwise.
+   */
+  private synchronized BufferedImage getImage(int level) throws IOException
+  {
+    for (int i = level; i >= 0; i--)
+    {
+      SoftReference<BufferedImage> ref = levels.get(i);
+      BufferedImage img = ref != null ? ref.get() : null;
+      if (img != null)
+      {
+        return img;
+      }
+    }
+    int subsampling = 1 << level;
+    ImageReader reader = openReader(file);
+    try
+    {
+      ImageReadParam param = reader.getDefaultReadParam();
+      param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+      BufferedImage img = reader.read(0, param);
+      levels.set(level, new SoftReference<BufferedImage>(img));
+      return img;
+    }
+    finally
+    {
+      close(reader);
+    }
+  }
+
+  /**
+   * Returns the coarsest level which still has at least one image
+   * pixel per device pixel for the given transform
+   */
+  private int getLevel(AffineTransform imageToDevice)
   {
-    decoratee = img;
+    double scale = Math.sqrt(Math.abs(imageToDevice.getDeterminant()));
+    int level = 0;
+    while (level < MAX_LEVEL && scale * (2 << level) <= 1 && (width >> (level + 1)) > 0 && (height >> (level + 1)) > 0)
+    {
+      level++;
+    }
+    return level;
   }
+
+  private static final List<Object> TYPE = Collections.<Object>singletonList("Image");
+  private static final List<Object> COLOR = Collections.<Object>singletonList("Bitmap");
+
   public List<Object> getAttributeValues(String name)
   {
-    List<Object> result = new LinkedList<Object>();
     if (name.equals("Type"))
     {
-      result.add("Image");
+      return TYPE;
     }
     if (name.equals("Color"))
     {
-      result.add("Bitmap");
+      return COLOR;
     }
-    return result;
+    return Collections.emptyList();
   }
 
   public List<String> getAttributes()
@@ -60,14 +188,52 @@ public class JPGPNGImage implements GraphicObject
     return result;
   }
 
+  /**
+   * Returns a message describing why the image can not be rendered
+   * or null if it can be
+   */
+  public String getSourceProblem()
+  {
+    if (!file.isFile())
+    {
+      return "The image "+file.getName()+" is missing. It is left out.";
+    }
+    if (file.length() != length || file.lastModified() != lastModified)
+    {
+      return "The image "+file.getName()+" has changed since it was imported. It is left out until it is reloaded.";
+    }
+    String error = readError;
+    return error != null ? "The image "+file.getName()+" could not be read: "+error : null;
+  }
+
   public void render(Graphics2D g)
   {
-    g.drawRenderedImage(decoratee, null);
+    if (readError != null || file.length() != length || file.lastModified() != lastModified)
+    {
+      return;
+    }
+    try
+    {
+      BufferedImage img = getImage(getLevel(g.getTransform()));
+      if (img.getWidth() == width && img.getHeight() == height)
+      {
+        g.drawRenderedImage(img, null);
+      }
+      else
+      {
+        g.drawImage(img, 0, 0, width, height, null);
+      }
+    }
+    catch (IOException ex)
+    {
+      readError = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+      Logger.getLogger(JPGPNGImage.class.getName()).log(Level.SEVERE, null, ex);
+    }
   }
 
   public Rectangle2D getBoundingBox()
   {
-    return new Rectangle(decoratee.getMinX(), decoratee.getMinY(), decoratee.getWidth(), decoratee.getHeight());
+    return new Rectangle(0, 0, width, height);
   }
   
 }
@@ -26,8 +26,12 @@ import java.awt.geom.AffineTransform;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
-import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
 import javax.swing.filechooser.FileFilter;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 /**
  *
@@ -36,15 +40,40 @@ import javax.swing.filechooser.FileFilter;
 public class JPGPNGImporter extends AbstractImporter
 {
 
+  /**
+   * Used if the file does not specify its resolution
+   */
+  private static final double DEFAULT_DPI = 72;
+
   public GraphicSet importSetFromFile(File inputFile, List<String> warnings) throws ImportException
   {
     try
     {
       GraphicSet result = new GraphicSet();
-      //TODO: Get Real Resolution
-      double px2mm = Util.inch2mm(1d/72d);
-      result.setBasicTransform(AffineTransform.getScaleInstance(px2mm, px2mm));
-      result.add(new JPGPNGImage(ImageIO.read(inputFile)));
+      //only the header is read here, the pixels are decoded when rendering
+      ImageReader reader = JPGPNGImage.openReader(inputFile);
+      try
+      {
+        double[] dpi = null;
+        try
+        {
+          dpi = getResolution(reader.getImageMetadata(0));
+        }
+        catch (IOException ex)
+        {
+          warnings.add("Could not read resolution of "+inputFile.getName()+": "+ex.getMessage());
+        }
+        if (dpi == null)
+        {
+          dpi = new double[]{DEFAULT_DPI, DEFAULT_DPI};
+        }
+        result.setBasicTransform(AffineTransform.getScaleInstance(Util.inch2mm(1d/dpi[0]), Util.inch2mm(1d/dpi[1])));
+        result.add(new JPGPNGImage(inputFile, reader.getWidth(0), reader.getHeight(0)));
+      }
+      finally
+      {
+        JPGPNGImage.close(reader);
+      }
       return result;
     }
     catch (IOException ex)
@@ -53,6 +82,92 @@ public class JPGPNGImporter extends AbstractImporter
     }
   }
 
+  /**
+   * Reads the horizontal and vertical resolution in dpi from the
+   * image metadata. PNG (pHYs) and JPEG (JFIF) are read from their
+   * native metadata, other formats from the standard metadata.
+   * @return the resolution or null if it is not specified
+   */
+  static double[] getResolution(IIOMetadata metadata)
+  {
+    if (metadata == null)
+    {
+      return null;
+    }
+    double[] result = null;
+    String format = metadata.getNativeMetadataFormatName();
+    if ("javax_imageio_png_1.0".equals(format))
+    {
+      Element phys = getChild((Element) metadata.getAsTree(format), "pHYs");
+      if (phys != null && "meter".equals(phys.getAttribute("unitSpecifier")))
+      {
+        result = new double[]{
+          parse(phys.getAttribute("pixelsPerUnitXAxis")) * 0.0254,
+          parse(phys.getAttribute("pixelsPerUnitYAxis")) * 0.0254
+        };
+      }
+    }
+    else if ("javax_imageio_jpeg_image_1.0".equals(format))
+    {
+      Element jfif = getChild(getChild((Element) metadata.getAsTree(format), "JPEGvariety"), "app0JFIF");
+      if (jfif != null)
+      {
+        String unit = jfif.getAttribute("resUnits");
+        double factor = "1".equals(unit) ? 1 : "2".equals(unit) ? 2.54 : 0;
+        result = new double[]{
+          parse(jfif.getAttribute("Xdensity")) * factor,
+          parse(jfif.getAttribute("Ydensity")) * factor
+        };
+      }
+    }
+    else if (metadata.isStandardMetadataFormatSupported())
+    {
+      Element dimension = getChild((Element) metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName), "Dimension");
+      Element h = getChild(dimension, "HorizontalPixelSize");
+      Element v = getChild(dimension, "VerticalPixelSize");
+      if (h != null && v != null)
+      {
+        //pixel sizes are given in mm
+        result = new double[]{
+          25.4 / parse(h.getAttribute("value")),
+          25.4 / parse(v.getAttribute("value"))
+        };
+      }
+    }
+    if (result != null && result[0] > 0 && result[1] > 0 && !Double.isInfinite(result[0]) && !Double.isInfinite(result[1]))
+    {
+      return result;
+    }
+    return null;
+  }
+
+  private static Element getChild(Element parent, String name)
+  {
+    if (parent != null)
+    {
+      for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling())
+      {
+        if (n instanceof Element && name.equals(n.getNodeName()))
+        {
+          return (Element) n;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static double parse(String value)
+  {
+    try
+    {
+      return Double.parseDouble(value);
+    }
+    catch (NumberFormatException e)
+    {
+      return 0;
+    }
+  }
+
   public FileFilter getFileFilter()
   {
     return new FileFilter()
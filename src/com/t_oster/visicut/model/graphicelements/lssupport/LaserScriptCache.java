@@ -0,0 +1,268 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements.lssupport;
+
+import com.t_oster.liblasercut.laserscript.ScriptInterface;
+import com.t_oster.liblasercut.laserscript.ScriptInterpreter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.script.ScriptException;
+
+/**
+ * Executes LaserScripts and records the calls they make. When the same
+ * script is executed again (same content and sandbox setting), the
+ * recorded calls are replayed instead of running the interpreter.
+ *
+ * Scripts which call get() can depend on the target they are executed on,
+ * so they are never recorded and always executed.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class LaserScriptCache
+{
+
+  private static final int MAX_ENTRIES = 16;
+
+  private static LaserScriptCache instance;
+
+  public static synchronized LaserScriptCache getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new LaserScriptCache();
+    }
+    return instance;
+  }
+
+  private final Map<String, Recording> recordings = new LinkedHashMap<String, Recording>(MAX_ENTRIES, 0.75f, true)
+  {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Recording> eldest)
+    {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private LaserScriptCache()
+  {
+  }
+
+  /**
+   * Executes the given script on the given target, or replays the
+   * calls of an earlier execution of the same script.
+   */
+  public void execute(File script, ScriptInterface target, boolean sandbox) throws IOException, ScriptException
+  {
+    byte[] content = readFile(script);
+    String key = getKey(content, sandbox);
+    Recording recording;
+    synchronized (recordings)
+    {
+      recording = recordings.get(key);
+    }
+    if (recording != null)
+    {
+      recording.replay(target);
+      return;
+    }
+    recording = new Recording(target);
+    new ScriptInterpreter().execute(new InputStreamReader(new ByteArrayInputStream(content)), recording, sandbox);
+    if (recording.isReplayable())
+    {
+      recording.finish();
+      synchronized (recordings)
+      {
+        recordings.put(key, recording);
+      }
+    }
+  }
+
+  private static byte[] readFile(File f) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(0, Math.min(f.length(), Integer.MAX_VALUE)));
+    InputStream in = new FileInputStream(f);
+    try
+    {
+      byte[] buf = new byte[65536];
+      int len;
+      while ((len = in.read(buf)) > 0)
+      {
+        out.write(buf, 0, len);
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+
+  private static String getKey(byte[] content, boolean sandbox) throws IOException
+  {
+    try
+    {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      md.update(content);
+      StringBuilder result = new StringBuilder();
+      for (byte b : md.digest())
+      {
+        result.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+      }
+      result.append(sandbox ? ":sandbox" : ":nosandbox");
+      return result.toString();
+    }
+    catch (NoSuchAlgorithmException ex)
+    {
+      throw new IOException(ex.getMessage());
+    }
+  }
+
+  /**
+   * Forwards all calls to a target while recording them
+   */
+  private static class Recording implements ScriptInterface
+  {
+    private static final byte MOVE = 0;
+    private static final byte LINE = 1;
+    private static final byte SET = 2;
+    private static final byte ECHO = 3;
+
+    private ScriptInterface target;
+    private byte[] commands = new byte[256];
+    private int commandCount = 0;
+    private double[] coordinates = new double[512];
+    private int coordinateCount = 0;
+    private List<Object> arguments = new ArrayList<Object>();
+    private boolean replayable = true;
+
+    Recording(ScriptInterface target)
+    {
+      this.target = target;
+    }
+
+    boolean isReplayable()
+    {
+      return replayable;
+    }
+
+    /**
+     * Drops the target and unused capacity
+     */
+    void finish()
+    {
+      target = null;
+      commands = Arrays.copyOf(commands, commandCount);
+      coordinates = Arrays.copyOf(coordinates, coordinateCount);
+      ((ArrayList<Object>) arguments).trimToSize();
+    }
+
+    void replay(ScriptInterface t)
+    {
+      int c = 0;
+      int a = 0;
+      for (int i = 0; i < commandCount; i++)
+      {
+        switch (commands[i])
+        {
+          case MOVE:
+            t.move(coordinates[c], coordinates[c + 1]);
+            c += 2;
+            break;
+          case LINE:
+            t.line(coordinates[c], coordinates[c + 1]);
+            c += 2;
+            break;
+          case SET:
+            t.set((String) arguments.get(a), arguments.get(a + 1));
+            a += 2;
+            break;
+          case ECHO:
+            t.echo((String) arguments.get(a));
+            a++;
+            break;
+        }
+      }
+    }
+
+    private void add(byte command)
+    {
+      if (commandCount == commands.length)
+      {
+        commands = Arrays.copyOf(commands, commands.length * 2);
+      }
+      commands[commandCount++] = command;
+    }
+
+    private void add(byte command, double x, double y)
+    {
+      add(command);
+      if (coordinateCount + 2 > coordinates.length)
+      {
+        coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+      }
+      coordinates[coordinateCount++] = x;
+      coordinates[coordinateCount++] = y;
+    }
+
+    public void move(double x, double y)
+    {
+      target.move(x, y);
+      add(MOVE, x, y);
+    }
+
+    public void line(double x, double y)
+    {
+      target.line(x, y);
+      add(LINE, x, y);
+    }
+
+    public void set(String property, Object value)
+    {
+      target.set(property, value);
+      add(SET);
+      arguments.add(property);
+      arguments.add(value);
+    }
+
+    public Object get(String property)
+    {
+      replayable = false;
+      return target.get(property);
+    }
+
+    public void echo(String text)
+    {
+      target.echo(text);
+      add(ECHO);
+      arguments.add(text);
+    }
+  }
+}
@@ -19,7 +19,6 @@
 package com.t_oster.visicut.model.graphicelements.lssupport;
 
 import com.t_oster.liblasercut.laserscript.ScriptInterface;
-import com.t_oster.liblasercut.laserscript.ScriptInterpreter;
 import com.t_oster.visicut.managers.PreferencesManager;
 import com.t_oster.visicut.model.graphicelements.AbstractImporter;
 import com.t_oster.visicut.model.graphicelements.GraphicSet;
@@ -27,7 +26,6 @@ import com.t_oster.visicut.model.graphicelements.ImportException;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -70,10 +68,9 @@ public class LaserScriptImporter extends AbstractImporter
     result.setBasicTransform(new AffineTransform());
     final GeneralPath resultingShape = new GeneralPath();
     final List<String> messages = new LinkedList<String>();
-    ScriptInterpreter ip = new ScriptInterpreter();
     try
     {
-      ip.execute(new FileReader(inputFile), new ScriptInterfaceLogUi(new ScriptInterface(){
+      LaserScriptCache.getInstance().execute(inputFile, new ScriptInterfaceLogUi(new ScriptInterface(){
 
         private Map<String,Object> settings = new LinkedHashMap<String,Object>();
         
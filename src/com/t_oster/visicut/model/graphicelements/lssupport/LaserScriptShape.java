@@ -18,6 +18,7 @@
  **/
 package com.t_oster.visicut.model.graphicelements.lssupport;
 
+import com.t_oster.visicut.model.graphicelements.FlattenedShapeCache;
 import com.t_oster.visicut.model.graphicelements.ShapeObject;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -26,7 +27,7 @@ import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
 import java.io.File;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -38,6 +39,7 @@ public class LaserScriptShape implements ShapeObject
 
   private Shape shape;
   private File scriptSource;
+  private FlattenedShapeCache flattenedShape = new FlattenedShapeCache();
   
   public LaserScriptShape(Shape shape, File scriptSource)
   {
@@ -55,6 +57,11 @@ public class LaserScriptShape implements ShapeObject
     return this.shape;
   }
 
+  public Shape getFlattenedShape(double flatness)
+  {
+    return flattenedShape.get(this.shape, flatness);
+  }
+
   private Rectangle2D bbCache;
   public Rectangle2D getBoundingBox()
   {
@@ -65,13 +72,11 @@ public class LaserScriptShape implements ShapeObject
     return bbCache;
   }
 
+  private static final List<Object> TYPE = Collections.<Object>singletonList("LaserScript");
+
   public List<Object> getAttributeValues(String name)
   {
-    if ("Type".equals(name))
-    {
-      return Arrays.asList(new Object[]{"LaserScript"});
-    }
-    return new LinkedList<Object>();
+    return "Type".equals(name) ? TYPE : Collections.<Object>emptyList();
   }
 
   public List<String> getAttributes()
@@ -21,15 +21,18 @@ package com.t_oster.visicut.model.graphicelements.psvgsupport;
 
 import com.t_oster.uicomponents.parameter.Parameter;
 import com.t_oster.visicut.model.PlfPart;
+import com.t_oster.visicut.model.graphicelements.GraphicSet;
 import com.t_oster.visicut.model.graphicelements.ImportException;
 import com.thoughtworks.xstream.XStream;
 import java.awt.geom.AffineTransform;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 /**
  *
@@ -99,9 +102,37 @@ public class ParametricPlfPart extends PlfPart
 
   private ParametricSVGImporter pi = new ParametricSVGImporter();
   public void applyParameters() throws ImportException
+  {
+    setRenderedObjects(pi.importSetFromFile(getSourceFile(), new LinkedList<String>(), this.getParameters()));
+  }
+
+  /**
+   * Creates a task which renders this part with the current parameter
+   * values. The values are copied immediately, so the task can run on
+   * another thread while the parameters are edited further.
+   * The result can be applied with setRenderedObjects.
+   */
+  public Callable<GraphicSet> createRenderTask()
+  {
+    final File source = getSourceFile();
+    final Map<String, Parameter> parameters = ParametricSVGImporter.copyParameters(this.getParameters());
+    return new Callable<GraphicSet>()
+    {
+      public GraphicSet call() throws ImportException
+      {
+        return pi.importSetFromFile(source, new LinkedList<String>(), parameters);
+      }
+    };
+  }
+
+  /**
+   * Replaces the graphic objects with a new rendering, keeping
+   * the current transform
+   */
+  public void setRenderedObjects(GraphicSet objects)
   {
     AffineTransform t = getGraphicObjects().getTransform();
-    setGraphicObjects(pi.importSetFromFile(getSourceFile(), new LinkedList<String>(), this.getParameters()));
+    setGraphicObjects(objects);
     getGraphicObjects().setTransform(t);
   }
 }
@@ -16,46 +16,44 @@
  *     You should have received a copy of the GNU Lesser General Public License
  *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
  **/
-
 package com.t_oster.visicut.model.graphicelements.psvgsupport;
 
 import com.t_oster.uicomponents.parameter.Parameter;
 import com.t_oster.visicut.misc.ExtensionFilter;
-import com.t_oster.visicut.misc.FileUtils;
 import com.t_oster.visicut.model.graphicelements.GraphicSet;
 import com.t_oster.visicut.model.graphicelements.ImportException;
 import com.t_oster.visicut.model.graphicelements.Importer;
 import com.t_oster.visicut.model.graphicelements.svgsupport.SVGImporter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.io.Writer;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.swing.filechooser.FileFilter;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.IContext;
 import org.thymeleaf.context.VariablesMap;
 import org.thymeleaf.templateresolver.FileTemplateResolver;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
+ * Imports SVG files which are Thymeleaf templates. The parameter definitions
+ * and the compiled template are cached per file and only re-read when the
+ * file changes on disk, so re-rendering with new values is cheap.
  *
  * @author Thomas Oster <thomas.oster@rwth-aachen.de>
  */
@@ -63,119 +61,202 @@ public class ParametricSVGImporter implements Importer
 {
 
   private static FileFilter FILTER = new ExtensionFilter(".parametric.svg", "Parametric SVG files");
-  
-  public Map<String, Parameter> parseParameters(File inputFile, List<String> warnings) throws ParserConfigurationException, SAXException, IOException
+
+  /**
+   * Everything about a template file which does not depend on the
+   * parameter values.
+   */
+  private static class Template
   {
-    
-    Map<String, Parameter> result = new LinkedHashMap<String, Parameter>();
-    DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-    Document doc = docBuilder.parse(inputFile);
+    long lastModified;
+    long length;
+    double resolution;
+    /**
+     * The parsed definitions. They are never handed out, callers get copies
+     * they can modify.
+     */
+    Map<String, Parameter> parameters;
+    List<String> parameterWarnings = new LinkedList<String>();
+  }
 
-    NodeList defs = doc.getElementsByTagName("ref");
-    for (int i = 0; i < defs.getLength(); i++)
+  private static final Map<String, Template> templates = new HashMap<String, Template>();
+
+  private static synchronized Template getTemplate(File inputFile) throws ParserConfigurationException, SAXException, IOException
+  {
+    String path = inputFile.getAbsolutePath();
+    Template t = templates.get(path);
+    if (t == null || t.lastModified != inputFile.lastModified() || t.length != inputFile.length())
     {
-      Node n = defs.item(i);
-      if (n.getNodeType() == Node.ELEMENT_NODE)
+      if (t != null)
       {
-        Parameter parameter = new Parameter();
-        NamedNodeMap attributes = n.getAttributes();
-        Node param = attributes.getNamedItem("param");
-        if (param == null)
-        {
-          continue;
-        }
-        Node deflt = attributes.getNamedItem("default");
-        Node label = attributes.getNamedItem("label");
-        Locale l = Locale.getDefault();
-        Node label_i10n = attributes.getNamedItem("label_"+l.getLanguage()+"-"+l.getCountry());
-        Node min = attributes.getNamedItem("min");
-        Node max = attributes.getNamedItem("max");
-        if (label_i10n != null)
-        {
-          parameter.label = label_i10n.getNodeValue();
-        }
-        else if (label != null)
-        {
-          parameter.label = label.getNodeValue();
-        }
-        else
-        {
-          parameter.label = param.getNodeValue();
-        }
-        Node typeNode = attributes.getNamedItem("type");
-        String type = typeNode == null ? "Double" : typeNode.getNodeValue();
-        String[] possibleValues = null;
-        if (type.contains("(") && type.endsWith(")"))
-        {
-          String betweenBrackets = type.substring(1+type.indexOf("("),type.length()-1);
-          possibleValues = betweenBrackets.split(",");
-        }
-        if (type.startsWith("Double"))
-        {
-          parameter.deflt = deflt != null ? Double.parseDouble(deflt.getNodeValue()) : null;
-          parameter.value = parameter.deflt != null ? parameter.deflt : (Double) 0.0;
-          if (possibleValues != null)
-          {
-            parameter.possibleValues = new Double[possibleValues.length];
-            for (int k = 0; k < possibleValues.length; k++)
-            {
-              parameter.possibleValues[k] = Double.parseDouble(possibleValues[k]);
-            }
-          }
-          if (min != null)
-          {
-            parameter.minValue = Double.parseDouble(min.getNodeValue());
-          }
-          if (max != null)
-          {
-            parameter.maxValue = Double.parseDouble(max.getNodeValue());
-          }
-        }
-        else if (type.startsWith("Integer"))
-        {
-          parameter.deflt = deflt != null ? Integer.parseInt(deflt.getNodeValue()) : null;
-          parameter.value = parameter.deflt != null ? parameter.deflt : (Integer) 0;
-          if (possibleValues != null)
-          {
-            parameter.possibleValues = new Integer[possibleValues.length];
-            for (int k = 0; k < possibleValues.length; k++)
-            {
-              parameter.possibleValues[k] = Integer.parseInt(possibleValues[k]);
-            }
-          }
-          if (min != null)
-          {
-            parameter.minValue = Integer.parseInt(min.getNodeValue());
-          }
-          if (max != null)
-          {
-            parameter.maxValue = Integer.parseInt(max.getNodeValue());
-          }
-        }
-        else if (type.startsWith("Boolean"))
+        getTemplateEngine().clearTemplateCacheFor(path);
+      }
+      t = new Template();
+      t.lastModified = inputFile.lastModified();
+      t.length = inputFile.length();
+      t.parameters = readParameters(inputFile, t.parameterWarnings);
+      t.resolution = new SVGImporter().determineResolution(inputFile);
+      templates.put(path, t);
+    }
+    return t;
+  }
+
+  /**
+   * Reads all <ref param="..."> elements. A SAX parser is sufficient here,
+   * there is no need to build a DOM of the whole drawing.
+   */
+  private static Map<String, Parameter> readParameters(File inputFile, final List<String> warnings) throws ParserConfigurationException, SAXException, IOException
+  {
+    final Map<String, Parameter> result = new LinkedHashMap<String, Parameter>();
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    try
+    {
+      factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+    }
+    catch (Exception e)
+    {
+      //parser does not support it, the DTD will just be loaded
+    }
+    SAXParser parser = factory.newSAXParser();
+    parser.parse(inputFile, new DefaultHandler()
+    {
+      @Override
+      public void startElement(String uri, String localName, String qName, Attributes attributes)
+      {
+        if ("ref".equals(qName) && attributes.getValue("param") != null)
         {
-          parameter.deflt = deflt != null ? Boolean.parseBoolean(deflt.getNodeValue()) : null;
-          parameter.value = parameter.deflt != null ? parameter.deflt : (Boolean) false;
+          result.put(attributes.getValue("param"), parseParameter(attributes, warnings));
         }
-        else if (type.startsWith("String"))
+      }
+    });
+    return result;
+  }
+
+  private static Parameter parseParameter(Attributes attributes, List<String> warnings)
+  {
+    Parameter parameter = new Parameter();
+    String param = attributes.getValue("param");
+    String deflt = attributes.getValue("default");
+    String label = attributes.getValue("label");
+    Locale l = Locale.getDefault();
+    String label_i10n = attributes.getValue("label_"+l.getLanguage()+"-"+l.getCountry());
+    String min = attributes.getValue("min");
+    String max = attributes.getValue("max");
+    if (label_i10n != null)
+    {
+      parameter.label = label_i10n;
+    }
+    else if (label != null)
+    {
+      parameter.label = label;
+    }
+    else
+    {
+      parameter.label = param;
+    }
+    String type = attributes.getValue("type");
+    if (type == null)
+    {
+      type = "Double";
+    }
+    String[] possibleValues = null;
+    if (type.contains("(") && type.endsWith(")"))
+    {
+      String betweenBrackets = type.substring(1+type.indexOf("("),type.length()-1);
+      possibleValues = betweenBrackets.split(",");
+    }
+    if (type.startsWith("Double"))
+    {
+      parameter.deflt = deflt != null ? Double.parseDouble(deflt) : null;
+      parameter.value = parameter.deflt != null ? parameter.deflt : (Double) 0.0;
+      if (possibleValues != null)
+      {
+        parameter.possibleValues = new Double[possibleValues.length];
+        for (int k = 0; k < possibleValues.length; k++)
         {
-          parameter.deflt = deflt != null ? deflt.getNodeValue() : null;
-          parameter.value = parameter.deflt != null ? parameter.deflt : "";
-          if (possibleValues != null)
-          {
-            parameter.possibleValues = possibleValues;
-          }
+          parameter.possibleValues[k] = Double.parseDouble(possibleValues[k]);
         }
-        else
+      }
+      if (min != null)
+      {
+        parameter.minValue = Double.parseDouble(min);
+      }
+      if (max != null)
+      {
+        parameter.maxValue = Double.parseDouble(max);
+      }
+    }
+    else if (type.startsWith("Integer"))
+    {
+      parameter.deflt = deflt != null ? Integer.parseInt(deflt) : null;
+      parameter.value = parameter.deflt != null ? parameter.deflt : (Integer) 0;
+      if (possibleValues != null)
+      {
+        parameter.possibleValues = new Integer[possibleValues.length];
+        for (int k = 0; k < possibleValues.length; k++)
         {
-          warnings.add("Unknown Parameter Type '"+type+"' for parameter '"+param.getNodeValue()+"'");
+          parameter.possibleValues[k] = Integer.parseInt(possibleValues[k]);
         }
-        result.put(param.getNodeValue(), parameter);
+      }
+      if (min != null)
+      {
+        parameter.minValue = Integer.parseInt(min);
+      }
+      if (max != null)
+      {
+        parameter.maxValue = Integer.parseInt(max);
+      }
+    }
+    else if (type.startsWith("Boolean"))
+    {
+      parameter.deflt = deflt != null ? Boolean.parseBoolean(deflt) : null;
+      parameter.value = parameter.deflt != null ? parameter.deflt : (Boolean) false;
+    }
+    else if (type.startsWith("String"))
+    {
+      parameter.deflt = deflt;
+      parameter.value = parameter.deflt != null ? parameter.deflt : "";
+      if (possibleValues != null)
+      {
+        parameter.possibleValues = possibleValues;
       }
     }
+    else
+    {
+      warnings.add("Unknown Parameter Type '"+type+"' for parameter '"+param+"'");
+    }
+    return parameter;
+  }
+
+  /**
+   * Returns a copy of the given parameters, so that the values can be
+   * changed (or read on another thread) independently of the original.
+   */
+  static Map<String, Parameter> copyParameters(Map<String, Parameter> parameters)
+  {
+    Map<String, Parameter> result = new LinkedHashMap<String, Parameter>();
+    for (Entry<String, Parameter> e : parameters.entrySet())
+    {
+      Parameter p = e.getValue();
+      Parameter copy = new Parameter();
+      copy.value = p.value;
+      copy.possibleValues = p.possibleValues;
+      copy.minValue = p.minValue;
+      copy.maxValue = p.maxValue;
+      copy.steps = p.steps;
+      copy.label = p.label;
+      copy.deflt = p.deflt;
+      result.put(e.getKey(), copy);
+    }
     return result;
   }
+
+  public Map<String, Parameter> parseParameters(File inputFile, List<String> warnings) throws ParserConfigurationException, SAXException, IOException
+  {
+    Template t = getTemplate(inputFile);
+    warnings.addAll(t.parameterWarnings);
+    return copyParameters(t.parameters);
+  }
   
   public FileFilter getFileFilter()
   {
@@ -208,14 +289,15 @@ public class ParametricSVGImporter implements Importer
     }
   }
   
-  private TemplateEngine _templateEngine = null;
-  private TemplateEngine getTemplateEngine()
+  private static TemplateEngine _templateEngine = null;
+  private static synchronized TemplateEngine getTemplateEngine()
   {
     if (_templateEngine == null)
     {
       _templateEngine = new TemplateEngine();
       FileTemplateResolver ftr = new FileTemplateResolver();
-      ftr.setCacheable(false);
+      //changed files are evicted in getTemplate
+      ftr.setCacheable(true);
       _templateEngine.setTemplateResolver(ftr);
     }
     return _templateEngine;
@@ -246,34 +328,20 @@ public class ParametricSVGImporter implements Importer
     };
   }
   
-  public GraphicSet importSetFromFile(final File inputFile, final List<String> warnings, final Map<String, Parameter> parameters) throws ImportException
+  /**
+   * Renders the template with the given parameter values and imports the
+   * result. This may be called from any thread.
+   */
+  public GraphicSet importSetFromFile(File inputFile, List<String> warnings, Map<String, Parameter> parameters) throws ImportException
   {
     try
     {
-      
-      SVGImporter svg = new SVGImporter();
-      double resolution = svg.determineResolution(inputFile, warnings);
-      final PipedOutputStream out = new PipedOutputStream();
-      PipedInputStream in = new PipedInputStream(out);
-      new Thread()
-      {
-        @Override
-        public void run()
-        {
-          TemplateEngine te = getTemplateEngine();
-          Writer w = new OutputStreamWriter(out);
-          te.process(inputFile.getAbsolutePath(), getContext(parameters), w);
-          try
-          {
-            w.close();
-          }
-          catch (IOException ex)
-          {
-            warnings.add(ex.getMessage());
-          }
-        }
-      }.start();    
-      return (new SVGImporter()).importSetFromFile(in, inputFile.getName(), resolution, warnings);
+      Template t = getTemplate(inputFile);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Writer w = new OutputStreamWriter(out, "UTF-8");
+      getTemplateEngine().process(inputFile.getAbsolutePath(), getContext(parameters), w);
+      w.close();
+      return (new SVGImporter()).importSetFromFile(new ByteArrayInputStream(out.toByteArray()), inputFile.getName(), t.resolution, warnings);
     }
     catch (Exception ex)
     {
@@ -243,11 +243,9 @@ public class DashedShape implements Shape {
         }
 
         public int currentSegment(double[] coords) {
-            float[] fcoord = new float[2];
-            int retval = currentSegment(fcoord);
-            coords[0] = fcoord[0];
-            coords[1] = fcoord[1];
-            return retval;
+            coords[0] = dashedSegment[0];
+            coords[1] = dashedSegment[1];
+            return dashedType;
         }
 
         public int getWindingRule() {
@@ -20,6 +20,7 @@ package com.t_oster.visicut.model.graphicelements.svgsupport;
 
 import com.kitfox.svg.ImageSVG;
 import com.kitfox.svg.RenderableElement;
+import java.awt.geom.AffineTransform;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +39,12 @@ public class SVGImage extends SVGObject
     decoratee = e;
   }
 
+  public SVGImage(ImageSVG e, AffineTransform absoluteTransform)
+  {
+    this(e);
+    this.setAbsoluteTransformation(absoluteTransform);
+  }
+
   @Override
   public RenderableElement getDecoratee()
   {
@@ -40,13 +40,11 @@ import com.t_oster.visicut.model.graphicelements.GraphicSet;
 import com.t_oster.visicut.model.graphicelements.ImportException;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.URI;
 import java.util.List;
 import java.util.logging.Handler;
@@ -65,7 +63,12 @@ public class SVGImporter extends AbstractImporter
   private SVGUniverse u = new SVGUniverse();
   private SVGRoot root;
 
-  private void importNode(SVGElement e, List<GraphicObject> result, double svgResolution, List<String> warnings)
+  /**
+   * Imports the element and its children. The absolute transformation
+   * of each element is resolved here once, by passing the transformation
+   * of the parent down the recursion.
+   */
+  private void importNode(SVGElement e, AffineTransform parentTransform, List<GraphicObject> result, double svgResolution, List<String> warnings) throws SVGException
   {
     if (e instanceof PatternSVG || e instanceof Gradient || e instanceof Defs)
     {//Ignore Patterns,Gradients and Children
@@ -81,11 +84,18 @@ public class SVGImporter extends AbstractImporter
     {
       return;
     }
+    AffineTransform transform = parentTransform;
+    AffineTransform groupTransform = SVGObject.getGroupTransform(e);
+    if (groupTransform != null)
+    {
+      transform = new AffineTransform(parentTransform);
+      transform.concatenate(groupTransform);
+    }
     if (e instanceof ShapeElement && !(e instanceof Group))
     {
       if (((ShapeElement) e).getShape() != null)
       {
-        result.add(new SVGShape((ShapeElement) e, svgResolution));
+        result.add(new SVGShape((ShapeElement) e, svgResolution, transform));
       }
       else
       {
@@ -96,15 +106,29 @@ public class SVGImporter extends AbstractImporter
     {
       if (e instanceof ImageSVG)
       {
-        result.add(new SVGImage((ImageSVG) e));
+        result.add(new SVGImage((ImageSVG) e, transform));
       }
     }
     for (int i = 0; i < e.getNumChildren(); i++)
     {
-      importNode(e.getChild(i), result, svgResolution, warnings);
+      importNode(e.getChild(i), transform, result, svgResolution, warnings);
     }
   }
 
+  /**
+   * Imports the SVG from the given stream. The resolution is guessed
+   * from the generator comment at the start of the stream.
+   */
+  public GraphicSet importSetFromFile(InputStream in, String name, final List<String> warnings) throws Exception
+  {
+    return this.importSetFromFile(in, name, 0, warnings);
+  }
+
+  /**
+   * Imports the SVG from the given stream with the given reference
+   * resolution. If svgResolution is not positive, it is guessed
+   * from the generator comment at the start of the stream.
+   */
   public GraphicSet importSetFromFile(InputStream in, String name, double svgResolution, final List<String> warnings) throws Exception
   {
     Handler svgImportLoggerHandler = new Handler()
@@ -127,11 +151,20 @@ public class SVGImporter extends AbstractImporter
     {
       u.clear();
       Logger.getLogger(SVGConst.SVG_LOGGER).addHandler(svgImportLoggerHandler);
-      URI svg = u.loadSVG(in, Helper.toPathName(name));   
+      SVGSniffingInputStream sniffer = new SVGSniffingInputStream(in);
+      URI svg = u.loadSVG(sniffer, Helper.toPathName(name));   
+      if (svgResolution <= 0)
+      {
+        svgResolution = SVGSniffingInputStream.determineResolution(sniffer.getHeader());
+      }
+      if (sniffer.usesFlowRoot())
+      {
+        warnings.add(java.util.ResourceBundle.getBundle("com/t_oster/visicut/model/graphicelements/svgsupport/resources/SVGImporter").getString("FLOWROOT_WARNING"));
+      }
       root = u.getDiagram(svg).getRoot();
       GraphicSet result = new GraphicSet();
       result.setBasicTransform(determineTransformation(root, svgResolution));
-      importNode(root, result, svgResolution, warnings);
+      importNode(root, new AffineTransform(), result, svgResolution, warnings);
       Logger.getLogger(SVGConst.SVG_LOGGER).removeHandler(svgImportLoggerHandler);
       return result;
     }
@@ -169,42 +202,31 @@ public class SVGImporter extends AbstractImporter
 
   /**
    * Since different programs have a different idea of the reference resolution
-   * in SVG, this method tries to determine it.
-   * @param root
+   * in SVG, this method tries to determine it. Only the start of the
+   * file is read, unsupported elements are reported while importing.
    * @param f
    * @return
    */
-  public double determineResolution(File f, List<String> warnings)
+  public double determineResolution(File f)
   {
-    BufferedReader in = null;;
-    double result = 90;
-    boolean usesFlowRoot = false;
+    SVGSniffingInputStream in = null;
     try
     {
-      in = new BufferedReader(new InputStreamReader(new FileInputStream(f)));
-      try
+      in = new SVGSniffingInputStream(new FileInputStream(f));
+      byte[] buf = new byte[SVGSniffingInputStream.HEADER_SIZE];
+      int read = 0;
+      while (read < buf.length)
       {
-        String line = in.readLine();
-        while (line != null)
+        int count = in.read(buf, read, buf.length - read);
+        if (count < 0)
         {
-          if (line.startsWith("<!-- Generator: Adobe Illustrator"))
-          {
-            result = 72;
-          }
-          if (line.contains("</flowRoot>"))
-          {
-            usesFlowRoot = true;
-          }
-          line = in.readLine();
+          break;
         }
-        in.close();
-      }
-      catch (IOException ex)
-      {
-        Logger.getLogger(SVGImporter.class.getName()).log(Level.SEVERE, null, ex);
+        read += count;
       }
+      return SVGSniffingInputStream.determineResolution(in.getHeader());
     }
-    catch (FileNotFoundException ex)
+    catch (IOException ex)
     {
       Logger.getLogger(SVGImporter.class.getName()).log(Level.SEVERE, null, ex);
     }
@@ -222,11 +244,7 @@ public class SVGImporter extends AbstractImporter
         Logger.getLogger(SVGImporter.class.getName()).log(Level.SEVERE, null, ex);
       }
     }
-    if (usesFlowRoot)
-    {
-      warnings.add(java.util.ResourceBundle.getBundle("com/t_oster/visicut/model/graphicelements/svgsupport/resources/SVGImporter").getString("FLOWROOT_WARNING"));
-    }
-    return result;
+    return 90;
   }
 
   /*
@@ -280,9 +298,15 @@ public class SVGImporter extends AbstractImporter
   {
     try
     {
-      double svgResolution = determineResolution(inputFile, warnings);
-      GraphicSet result = this.importSetFromFile(new FileInputStream(inputFile), inputFile.getName(), svgResolution, warnings);
-      return result;
+      InputStream in = new BufferedInputStream(new FileInputStream(inputFile));
+      try
+      {
+        return this.importSetFromFile(in, inputFile.getName(), warnings);
+      }
+      finally
+      {
+        in.close();
+      }
     }
     catch (Exception ex)
     {
@@ -70,43 +70,81 @@ public abstract class SVGObject implements GraphicObject
 
   public abstract RenderableElement getDecoratee();
 
+  private AffineTransform absoluteTransform = null;
+
+  /**
+   * Sets the absolute transformation, if it is already known
+   * at creation time (e.g. resolved by the SVGImporter while
+   * descending the tree). The transform may be shared between
+   * multiple objects and must not be modified.
+   * @param absoluteTransform 
+   */
+  protected void setAbsoluteTransformation(AffineTransform absoluteTransform)
+  {
+    this.absoluteTransform = absoluteTransform;
+  }
+
   /**
    * This 
    * applies all transformations in the Path of the SVGShape
    * and returns the Transformed Shape, which can be displayed
    * or printed on the position it appears in the original image.
+   * The result is cached and must not be modified.
    * @param selectedSVGElement
    * @return 
    */
   public AffineTransform getAbsoluteTransformation() throws SVGException
   {
-    if (this.getDecoratee() != null)
+    if (absoluteTransform == null && this.getDecoratee() != null)
     {
       AffineTransform tr = new AffineTransform();
-      for (Object o : this.getPathToRoot())
+      for (SVGElement o : this.getPathToRoot())
+      {
+        AffineTransform trans = getGroupTransform(o);
+        if (trans != null)
+        {
+          trans.concatenate(tr);
+          tr = trans;
+        }
+      }
+      absoluteTransform = tr;
+    }
+    return absoluteTransform;
+  }
+
+  /**
+   * Parses the transform attribute of the given element, if it is
+   * a Group. Returns null if there is no transformation.
+   * @param e
+   * @return
+   * @throws SVGException 
+   */
+  static AffineTransform getGroupTransform(SVGElement e) throws SVGException
+  {
+    if (!(e instanceof Group))
+    {
+      return null;
+    }
+    AffineTransform tr = null;
+    StyleAttribute sty = new StyleAttribute("transform"); 
+    if (e.getPres(sty))
+    {
+      String value = sty.getStringValue();
+      for (String v : value.split("\\)"))
       {
-        if (o instanceof Group)
+        v = v.trim();
+        if (!"".equals(v))
         {
-          StyleAttribute sty = new StyleAttribute("transform"); 
-          if (((SVGElement) o).getPres(sty))
+          AffineTransform trans = SVGElement.parseSingleTransform(v+")");
+          if (tr != null)
           {
-            String value = sty.getStringValue();
-            for (String v : value.split("\\)"))
-            {
-              v = v.trim();
-              if (!"".equals(v))
-              {
-                AffineTransform trans = SVGElement.parseSingleTransform(v+")");
-                trans.concatenate(tr);
-                tr = trans;
-              }
-            }
+            trans.concatenate(tr);
           }
+          tr = trans;
         }
       }
-      return tr;
     }
-    return null;
+    return tr;
   }
 
   @Override
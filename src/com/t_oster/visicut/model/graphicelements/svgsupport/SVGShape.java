@@ -22,12 +22,15 @@ import com.kitfox.svg.Circle;
 import com.kitfox.svg.Line;
 import com.kitfox.svg.Path;
 import com.kitfox.svg.Rect;
+import com.kitfox.svg.SVGElement;
 import com.kitfox.svg.SVGException;
 import com.kitfox.svg.ShapeElement;
 import com.kitfox.svg.Text;
 import com.kitfox.svg.Tspan;
 import com.kitfox.svg.xml.StyleAttribute;
-import com.t_oster.visicut.misc.Helper;
+import com.t_oster.visicut.misc.ShapeBounds;
+import com.t_oster.visicut.model.graphicelements.CachedShape;
+import com.t_oster.visicut.model.graphicelements.FlattenedShapeCache;
 import com.t_oster.visicut.model.graphicelements.ShapeObject;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -60,6 +63,12 @@ public class SVGShape extends SVGObject implements ShapeObject
     this.decoratee = s;
   }
 
+  public SVGShape(ShapeElement s, double svgResolution, AffineTransform absoluteTransform)
+  {
+    this(s, svgResolution);
+    this.setAbsoluteTransformation(absoluteTransform);
+  }
+
   /**
    * Returns the first StyleAttribute with the given name in the
    * Path from the current Node to the Root node
@@ -213,8 +222,19 @@ public class SVGShape extends SVGObject implements ShapeObject
     return bb;
   }
   
+  private Rectangle2D boundingBoxCache = null;
+
   @Override
   public Rectangle2D getBoundingBox()
+  {
+    if (boundingBoxCache == null)
+    {
+      boundingBoxCache = this.calculateBoundingBox();
+    }
+    return (Rectangle2D) boundingBoxCache.clone();
+  }
+
+  private Rectangle2D calculateBoundingBox()
   {
     AffineTransform at;
     try
@@ -226,7 +246,7 @@ public class SVGShape extends SVGObject implements ShapeObject
       Logger.getLogger(SVGShape.class.getName()).log(Level.SEVERE, null, ex);
       at = new AffineTransform();
     }
-    Rectangle2D bb = Helper.smallestBoundingBox(this.getDecoratee().getShape(), at);
+    Rectangle2D bb = ShapeBounds.getBounds(this.getDecoratee().getShape(), at);
     StyleAttribute sa = getStyleAttributeRecursive("stroke-width");
     if (sa != null)
     {
@@ -237,7 +257,29 @@ public class SVGShape extends SVGObject implements ShapeObject
     return bb;
   }
   
+  private Shape shapeCache = null;
+  private FlattenedShapeCache flattenedShape = new FlattenedShapeCache();
+
+  /**
+   * Returns the shape with all transformations and the dash
+   * pattern applied. The result is cached and must not be modified.
+   * @return 
+   */
   public Shape getShape()
+  {
+    if (shapeCache == null)
+    {
+      shapeCache = this.createShape();
+    }
+    return shapeCache;
+  }
+
+  public Shape getFlattenedShape(double flatness)
+  {
+    return flattenedShape.get(this.getShape(), flatness);
+  }
+
+  private Shape createShape()
   {
     try
     {
@@ -272,4 +314,95 @@ public class SVGShape extends SVGObject implements ShapeObject
     }
     return null;
   }
+
+  private static final String[] UNSUPPORTED_STYLES = new String[]{
+    "stroke-dasharray", "marker-start", "marker-mid", "marker-end", "filter", "mask", "clip-path"
+  };
+  private static final String[] OPACITY_STYLES = new String[]{"opacity", "fill-opacity", "stroke-opacity"};
+
+  private Color getPaint(String name, Color defaultValue) throws SVGException
+  {
+    StyleAttribute sa = getStyleAttributeRecursive(name);
+    if (sa == null)
+    {
+      return defaultValue;
+    }
+    String value = sa.getStringValue();
+    if (value == null || "none".equals(value.trim()))
+    {
+      return null;
+    }
+    Color c = sa.getColorValue();
+    if (c == null)
+    {
+      throw new SVGException("Unsupported paint "+value);
+    }
+    return c;
+  }
+
+  /**
+   * Returns a CachedShape with the same geometry and attributes,
+   * which renders the same as this shape, or null if the style
+   * of this shape can not be expressed by a plain fill and stroke
+   * (gradients, opacity, dashes, markers etc).
+   * @return 
+   */
+  public CachedShape toCachedShape()
+  {
+    try
+    {
+      for (String name : UNSUPPORTED_STYLES)
+      {
+        StyleAttribute sa = getStyleAttributeRecursive(name);
+        if (sa != null && sa.getStringValue() != null && !"none".equals(sa.getStringValue().trim()))
+        {
+          return null;
+        }
+      }
+      StyleAttribute sa = new StyleAttribute();
+      for (SVGElement e : this.getPath(this.getDecoratee()))
+      {
+        for (String name : OPACITY_STYLES)
+        {
+          if (e.getStyle(sa.setName(name), false) && sa.getFloatValue() != 1)
+          {
+            return null;
+          }
+        }
+      }
+      sa = getStyleAttributeRecursive("stroke-linecap");
+      if (sa != null && !"butt".equals(sa.getStringValue()))
+      {
+        return null;
+      }
+      sa = getStyleAttributeRecursive("stroke-linejoin");
+      if (sa != null && !"miter".equals(sa.getStringValue()))
+      {
+        return null;
+      }
+      sa = getStyleAttributeRecursive("stroke-miterlimit");
+      if (sa != null && sa.getFloatValue() != 4)
+      {
+        return null;
+      }
+      if (this.getDecoratee().getShape() == null)
+      {
+        return null;
+      }
+      Color fill = getPaint("fill", Color.BLACK);
+      Color stroke = getPaint("stroke", null);
+      sa = getStyleAttributeRecursive("stroke-width");
+      float strokeWidth = sa != null ? sa.getFloatValueWithUnits() : 1;
+      Map<String, List<Object>> values = new LinkedHashMap<String, List<Object>>();
+      for (String a : this.getAttributes())
+      {
+        values.put(a, this.getAttributeValues(a));
+      }
+      return new CachedShape(this.getDecoratee().getShape(), this.getAbsoluteTransformation(), this.getBoundingBox(), values, fill, stroke, strokeWidth);
+    }
+    catch (SVGException ex)
+    {
+      return null;
+    }
+  }
 }
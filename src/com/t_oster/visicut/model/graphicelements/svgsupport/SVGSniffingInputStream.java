@@ -0,0 +1,156 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.graphicelements.svgsupport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Looks at the SVG data while it is passed to the parser, so the
+ * file does not have to be read twice. It keeps the first few KB
+ * for guessing the generator and watches the whole stream for
+ * flowRoot elements, which are not supported.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+class SVGSniffingInputStream extends FilterInputStream
+{
+
+  public static final int HEADER_SIZE = 4096;
+  private static final byte[] FLOWROOT = "</flowRoot>".getBytes();
+  private byte[] header = new byte[HEADER_SIZE];
+  private int headerLength = 0;
+  private int flowRootMatched = 0;
+  private boolean usesFlowRoot = false;
+
+  public SVGSniffingInputStream(InputStream in)
+  {
+    super(in);
+  }
+
+  private void sniff(int b)
+  {
+    if (headerLength < HEADER_SIZE)
+    {
+      header[headerLength++] = (byte) b;
+    }
+    if (!usesFlowRoot)
+    {
+      if (b == FLOWROOT[flowRootMatched])
+      {
+        if (++flowRootMatched == FLOWROOT.length)
+        {
+          usesFlowRoot = true;
+        }
+      }
+      else
+      {
+        //'<' only occurs at the start of the pattern
+        flowRootMatched = b == FLOWROOT[0] ? 1 : 0;
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    int b = super.read();
+    if (b != -1)
+    {
+      sniff(b);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    int count = super.read(b, off, len);
+    for (int i = 0; i < count; i++)
+    {
+      sniff(b[off + i] & 0xff);
+    }
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException
+  {
+    //skipped bytes have to be sniffed as well
+    byte[] buf = new byte[(int) Math.min(n, 1024)];
+    long skipped = 0;
+    while (skipped < n)
+    {
+      int count = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+      if (count <= 0)
+      {
+        break;
+      }
+      skipped += count;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported()
+  {
+    return false;
+  }
+
+  /**
+   * Returns true if a flowRoot element has been read so far
+   */
+  public boolean usesFlowRoot()
+  {
+    return usesFlowRoot;
+  }
+
+  /**
+   * Returns the first HEADER_SIZE bytes read so far
+   */
+  public String getHeader()
+  {
+    try
+    {
+      return new String(header, 0, headerLength, "ISO-8859-1");
+    }
+    catch (UnsupportedEncodingException ex)
+    {
+      return new String(header, 0, headerLength);
+    }
+  }
+
+  /**
+   * Guesses the reference resolution from the generator comment
+   * in the given start of an SVG file.
+   */
+  public static double determineResolution(String header)
+  {
+    for (String line : header.split("\n"))
+    {
+      if (line.startsWith("<!-- Generator: Adobe Illustrator"))
+      {
+        return 72;
+      }
+    }
+    return 90;
+  }
+}
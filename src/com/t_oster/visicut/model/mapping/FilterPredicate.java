@@ -0,0 +1,201 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.t_oster.visicut.model.mapping;
+
+import com.t_oster.visicut.model.graphicelements.GraphicObject;
+import java.util.List;
+
+/**
+ * A MappingFilter compiled into a specialized predicate.
+ * The decision which kind of comparison is done (equality, numeric
+ * comparison, inversion) is taken once when compiling and not
+ * for every object which is matched.
+ * Matching only looks up the attribute values of the object. All
+ * GraphicObjects either memoize those lists or return shared constant
+ * lists, so matching an object allocates nothing.
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public abstract class FilterPredicate
+{
+
+  public abstract boolean matches(GraphicObject e);
+
+  /**
+   * Creates the predicate for the current state of the given filter.
+   * Later changes to the filter are not reflected in the result.
+   * @param f
+   * @return 
+   */
+  public static FilterPredicate compile(MappingFilter f)
+  {
+    FilterPredicate result;
+    String attribute = f.getAttribute();
+    Object value = f.getValue();
+    if (attribute == null)
+    {
+      result = EVERYTHING;
+    }
+    else if (value instanceof Number)
+    {
+      double number = ((Number) value).doubleValue();
+      result = f.isCompare() ? new NumberAtMost(attribute, number) : new NumberEquals(attribute, number);
+    }
+    else
+    {
+      result = new Contains(attribute, value);
+    }
+    return f.isInverted() ? new Not(result) : result;
+  }
+
+  /**
+   * Combines the predicates into one, which matches
+   * if all of them match
+   * @param parts
+   * @return 
+   */
+  static FilterPredicate compile(FilterPredicate[] parts)
+  {
+    switch (parts.length)
+    {
+      case 0:
+        return EVERYTHING;
+      case 1:
+        return parts[0];
+      default:
+        return new And(parts);
+    }
+  }
+
+  public static final FilterPredicate EVERYTHING = new FilterPredicate()
+  {
+    @Override
+    public boolean matches(GraphicObject e)
+    {
+      return true;
+    }
+  };
+
+  /**
+   * Matches if the value is one of the attribute's values,
+   * e.g. for colors or group membership
+   */
+  static class Contains extends FilterPredicate
+  {
+    private final String attribute;
+    private final Object value;
+
+    Contains(String attribute, Object value)
+    {
+      this.attribute = attribute;
+      this.value = value;
+    }
+
+    @Override
+    public boolean matches(GraphicObject e)
+    {
+      return e.getAttributeValues(attribute).contains(value);
+    }
+  }
+
+  /**
+   * Matches if the first value of the attribute is equal to the number.
+   * Objects without the attribute do not match
+   */
+  static class NumberEquals extends FilterPredicate
+  {
+    private final String attribute;
+    private final double number;
+
+    NumberEquals(String attribute, double number)
+    {
+      this.attribute = attribute;
+      this.number = number;
+    }
+
+    @Override
+    public boolean matches(GraphicObject e)
+    {
+      List<Object> values = e.getAttributeValues(attribute);
+      return !values.isEmpty() && ((Number) values.get(0)).doubleValue() == number;
+    }
+  }
+
+  /**
+   * Matches if the first value of the attribute is less or equal than the number.
+   * Objects without the attribute do not match
+   */
+  static class NumberAtMost extends FilterPredicate
+  {
+    private final String attribute;
+    private final double number;
+
+    NumberAtMost(String attribute, double number)
+    {
+      this.attribute = attribute;
+      this.number = number;
+    }
+
+    @Override
+    public boolean matches(GraphicObject e)
+    {
+      List<Object> values = e.getAttributeValues(attribute);
+      return !values.isEmpty() && ((Number) values.get(0)).doubleValue() <= number;
+    }
+  }
+
+  static class Not extends FilterPredicate
+  {
+    private final FilterPredicate inner;
+
+    Not(FilterPredicate inner)
+    {
+      this.inner = inner;
+    }
+
+    @Override
+    public boolean matches(GraphicObject e)
+    {
+      return !inner.matches(e);
+    }
+  }
+
+  static class And extends FilterPredicate
+  {
+    private final FilterPredicate[] parts;
+
+    And(FilterPredicate[] parts)
+    {
+      this.parts = parts;
+    }
+
+    @Override
+    public boolean matches(GraphicObject e)
+    {
+      for (FilterPredicate p : parts)
+      {
+        if (!p.matches(e))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
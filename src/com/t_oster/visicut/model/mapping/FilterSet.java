@@ -18,6 +18,7 @@
  **/
 package com.t_oster.visicut.model.mapping;
 
+import com.t_oster.visicut.model.graphicelements.GraphicObject;
 import com.t_oster.visicut.model.graphicelements.GraphicSet;
 import java.util.LinkedList;
 
@@ -34,6 +35,54 @@ public class FilterSet extends LinkedList<MappingFilter>
    */ 
   public boolean multiselectEnabled;
   
+  private transient FilterPredicate[] compiledParts = null;
+  private transient FilterPredicate compiled = null;
+  private transient int compiledModCount;
+  
+  /**
+   * Returns a predicate matching all objects, which are matched by
+   * every filter of this set. It is cached until the set or one of
+   * its filters is changed.
+   * @return 
+   */
+  public FilterPredicate getPredicate()
+  {
+    if (compiled == null || compiledModCount != modCount || !isCompiledUpToDate())
+    {
+      FilterPredicate[] parts = new FilterPredicate[this.size()];
+      int i = 0;
+      for (MappingFilter f : this)
+      {
+        parts[i++] = f.getPredicate();
+      }
+      compiledParts = parts;
+      compiled = FilterPredicate.compile(parts);
+      compiledModCount = modCount;
+    }
+    return compiled;
+  }
+  
+  /**
+   * Checks if the filters still have the same predicates as when
+   * compiled, i.e. none of them was edited or replaced.
+   */
+  private boolean isCompiledUpToDate()
+  {
+    if (compiledParts.length != this.size())
+    {
+      return false;
+    }
+    int i = 0;
+    for (MappingFilter f : this)
+    {
+      if (f.getPredicate() != compiledParts[i++])
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+  
   public GraphicSet getMatchingObjects(GraphicSet elements)
   {
     if (this.isEmpty())
@@ -46,10 +95,13 @@ public class FilterSet extends LinkedList<MappingFilter>
       return result;
     }
     result.setTransform(elements.getTransform());
-    result.addAll(elements);
-    for (MappingFilter filter : this)
+    FilterPredicate p = this.getPredicate();
+    for (GraphicObject e : elements)
     {
-      result.removeAll(filter.getNotMatchingElements(result));
+      if (p.matches(e))
+      {
+        result.add(e);
+      }
     }
     return result;
   }
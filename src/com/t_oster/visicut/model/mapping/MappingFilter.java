@@ -47,6 +47,7 @@ public class MappingFilter
   public void setCompare(boolean compare)
   {
     this.compare = compare;
+    this.predicate = null;
   }
   
   protected boolean inverted = false;
@@ -69,6 +70,7 @@ public class MappingFilter
   public void setInverted(boolean inverted)
   {
     this.inverted = inverted;
+    this.predicate = null;
   }
 
   private String attribute;
@@ -87,31 +89,34 @@ public class MappingFilter
   public void setAttribute(String attribute)
   {
     this.attribute = attribute;
+    this.predicate = null;
   }
 
   public void setValue(Object value)
   {
     this.value = value;
+    this.predicate = null;
   }
 
-  public final boolean matches(GraphicObject e)
+  private transient FilterPredicate predicate = null;
+
+  /**
+   * Returns this filter compiled into a predicate.
+   * The predicate is cached until one of the setters is called.
+   * @return 
+   */
+  public FilterPredicate getPredicate()
   {
-    boolean result;
-    if (value instanceof Number)
+    if (predicate == null)
     {
-      if (e.getAttributeValues(attribute).isEmpty()) {
-        // object does not have the relevant attribute -> does not match (except if inverted)
-        return inverted;
-      } 
-      double number = ((Number) value).doubleValue();
-      double other = ((Number) e.getAttributeValues(attribute).get(0)).doubleValue();
-      result = attribute == null || (compare ? other <= number : other == number);
+      predicate = FilterPredicate.compile(this);
     }
-    else
-    {
-      result = attribute == null || e.getAttributeValues(attribute).contains(value);
-    }
-    return inverted ? !result : result;
+    return predicate;
+  }
+
+  public final boolean matches(GraphicObject e)
+  {
+    return this.getPredicate().matches(e);
   }
 
   public MappingFilter()
@@ -129,9 +134,10 @@ public class MappingFilter
     GraphicSet result = new GraphicSet();
     result.setBasicTransform(elements.getBasicTransform());
     result.setTransform(elements.getTransform());
+    FilterPredicate p = this.getPredicate();
     for (GraphicObject e : elements)
     {
-      if ((!invert && this.matches(e)) || (invert && !this.matches(e)))
+      if (p.matches(e) != invert)
       {
         result.add(e);
       }
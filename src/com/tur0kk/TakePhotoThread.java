@@ -20,10 +20,14 @@ package com.tur0kk;
 
 import com.github.sarxos.webcam.Webcam;
 import com.t_oster.visicut.gui.MainView;
+import com.t_oster.visicut.misc.HttpFrameReader;
 import java.awt.Dimension;
-import java.awt.Image;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.SwingUtilities;
@@ -39,6 +43,7 @@ public class TakePhotoThread extends Thread
   public static final int PHOTO_RESOLUTION_SMALL = 1;  // 176 x 144
   public static final int PHOTO_RESOLUTION_MEDIUM = 2; // 320 x 240
   public static final int PHOTO_RESOLUTION_HIGH = 3;   // 640 x 480
+  private static final int RETRY_DELAY_MS = 1000; // wait time after VisiCam errors
 
   // Object variables
   private JLabel lblPhoto; // display target
@@ -47,7 +52,17 @@ public class TakePhotoThread extends Thread
   private int photoResolution; // Identifier from static variables to set resolution of images
   private int framerateMs; // Integer value for the update interval of the camera in milliseconds
 
-  private boolean running = true; // internal flat to know when to stop
+  private volatile boolean running = true; // internal flat to know when to stop
+
+  // Frame pipeline: frames are scaled into one of two reused images, while
+  // the label displays the other one. A new frame is only taken once the
+  // event dispatch thread has shown the previous one, so frames are dropped
+  // instead of queued up if the ui is behind.
+  private BufferedImage[] buffers = null;
+  private ImageIcon[] icons = null;
+  private int backBuffer = 0;
+  private final AtomicBoolean framePending = new AtomicBoolean(false);
+  private volatile HttpFrameReader visicam = null; // open connection to VisiCam
 
   public TakePhotoThread(JLabel lblPhoto, boolean webcam, int photoResolution){
     this.lblPhoto = lblPhoto;
@@ -60,6 +75,11 @@ public class TakePhotoThread extends Thread
   @Override
   public void interrupt(){
     this.running = false;
+    HttpFrameReader reader = visicam;
+    if (reader != null)
+    {
+      reader.close(); // abort a blocking read of a stream
+    }
   }
   
   @Override
@@ -100,14 +120,26 @@ public class TakePhotoThread extends Thread
         // Open camera
         cam.open();
       }
+      else{
+        visicam = new HttpFrameReader(new URL(this.visicamUrl));
+      }
       
       // frequently take picture and display
       while(this.running){
-        ImageIcon picture = takePicture();
+        long start = System.currentTimeMillis();
 
-        displayPicture(picture);
+        // skip this frame if the last one has not been displayed yet
+        if (!framePending.get())
+        {
+          BufferedImage picture = takePicture();
+          if (picture != null)
+          {
+            displayPicture(picture);
+          }
+        }
 
-        Thread.currentThread().sleep(getFramerateMs());     
+        long remaining = getFramerateMs() - (System.currentTimeMillis() - start);
+        Thread.sleep(Math.max(1, remaining));
       }
     }
     catch(Exception ex){
@@ -118,21 +150,50 @@ public class TakePhotoThread extends Thread
 
   }
   
-  // takes an image and displays it in the target label
-  private void displayPicture(ImageIcon image){
-    final ImageIcon picture = image;
+  // scales the image into the back buffer and displays it in the target label
+  private void displayPicture(BufferedImage image){
+    int width = lblPhoto.getWidth();
+    int height = lblPhoto.getHeight();
+    if (width <= 0 || height <= 0)
+    {
+      width = image.getWidth();
+      height = image.getHeight();
+    }
+    if (buffers == null || buffers[0].getWidth() != width || buffers[0].getHeight() != height)
+    {
+      buffers = new BufferedImage[]{
+        new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB),
+        new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+      };
+      icons = new ImageIcon[]{new ImageIcon(buffers[0]), new ImageIcon(buffers[1])};
+    }
+
+    Graphics2D g = buffers[backBuffer].createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g.drawImage(image, 0, 0, width, height, null);
+    g.dispose();
+    final ImageIcon picture = icons[backBuffer];
+    backBuffer = 1 - backBuffer;
 
     if(this.running){ // prevent displaying after terminating
+      framePending.set(true);
       SwingUtilities.invokeLater(new Runnable() {
         public void run()
         {
           lblPhoto.setIcon(picture);
+          lblPhoto.repaint();
+          framePending.set(false);
         }
       });
     }
   }
   
   private void closeCamera(){
+    if (visicam != null)
+    {
+      visicam.close();
+      visicam = null;
+    }
     Webcam cam = Webcam.getDefault();
     if(cam.isOpen()){
       cam.close();      
@@ -142,35 +203,26 @@ public class TakePhotoThread extends Thread
   /*
    * handles the picture taking depending on the given flag, uses webcam if webcam = tue and visicam if webcam = false
    */
-  private ImageIcon takePicture(){
-    ImageIcon imageIcon = null;
+  private BufferedImage takePicture() throws InterruptedException{
     if(this.webcam){ // webcam
       // take picture
       Webcam cam = Webcam.getDefault();
       if(cam.isOpen()){
-        // read image from webcam and convert to ImageIcon
-        BufferedImage image = cam.getImage();
-        imageIcon = new ImageIcon(image);
+        return cam.getImage();
       }
+      return null;
     }
     else{ // visicam
       try{
-        // read out image from VisiCam
-        URL src = new URL(this.visicamUrl);
-        imageIcon = new ImageIcon(src);
+        // read out image from VisiCam, reusing the connection
+        return visicam.read();
       }
-      catch(Exception e){
+      catch(IOException e){
+        // camera not reachable (yet), try again later
+        Thread.sleep(RETRY_DELAY_MS);
         return null;
       } 
     }
-    // scale to label
-    Image rawImage = imageIcon.getImage();
-    Image scaledImage = rawImage.getScaledInstance(
-      lblPhoto.getWidth(),
-      lblPhoto.getHeight(),
-      Image.SCALE_SMOOTH);
-    ImageIcon picture = new ImageIcon(scaledImage);
-    return picture;
   }
   
   // webcam detected if library finds a webcam
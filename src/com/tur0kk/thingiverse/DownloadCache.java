@@ -0,0 +1,154 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.tur0kk.thingiverse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A folder of downloaded files with a size limit. If the limit is
+ * exceeded, the least recently used files are deleted.
+ * Recency is tracked in memory, on startup the modification times
+ * of the files are used as an approximation.
+ * Files which are still needed after the next download (e.g. because
+ * a part was loaded from them) have to be copied out of the cache.
+ * @author Patrick Schmidt
+ */
+public class DownloadCache
+{
+  private final File folder;
+  private final long maxSize;
+  private long size = 0;
+  private LinkedHashMap<File, Long> entries = null;
+
+  /**
+   * @param folder folder containing the cached files
+   * @param maxSize size limit in bytes
+   */
+  public DownloadCache(File folder, long maxSize)
+  {
+    this.folder = folder;
+    this.maxSize = maxSize;
+  }
+
+  public File getFolder()
+  {
+    return folder;
+  }
+
+  /**
+   * Returns the location of a cached file and marks it as recently
+   * used. The file does not need to exist, call stored(File) after
+   * it has been written.
+   * @param name path relative to the cache folder
+   */
+  public synchronized File getFile(String name)
+  {
+    scan();
+    File f = new File(folder, name);
+    f.getParentFile().mkdirs();
+    entries.get(f);
+    return f;
+  }
+
+  /**
+   * Updates the size of the given file after it has been (re-)written
+   * and deletes least recently used files until the cache is below its
+   * size limit again. The given file itself is never deleted.
+   */
+  public synchronized void stored(File f)
+  {
+    scan();
+    Long old = entries.remove(f);
+    if (old != null)
+    {
+      size -= old;
+    }
+    if (f.exists())
+    {
+      entries.put(f, f.length());
+      size += f.length();
+    }
+    for (Iterator<Map.Entry<File, Long>> it = entries.entrySet().iterator(); size > maxSize && it.hasNext();)
+    {
+      Map.Entry<File, Long> e = it.next();
+      if (!e.getKey().equals(f))
+      {
+        e.getKey().delete();
+        size -= e.getValue();
+        it.remove();
+      }
+    }
+  }
+
+  private void scan()
+  {
+    if (entries != null)
+    {
+      return;
+    }
+    entries = new LinkedHashMap<File, Long>(16, 0.75f, true);
+    List<File> files = new ArrayList<File>();
+    listFiles(folder, files);
+    Collections.sort(files, new Comparator<File>()
+    {
+      public int compare(File a, File b)
+      {
+        long d = a.lastModified() - b.lastModified();
+        return d < 0 ? -1 : (d > 0 ? 1 : 0);
+      }
+    });
+    for (File f : files)
+    {
+      entries.put(f, f.length());
+      size += f.length();
+    }
+  }
+
+  private static void listFiles(File dir, List<File> result)
+  {
+    File[] files = dir.listFiles();
+    if (files == null)
+    {
+      return;
+    }
+    for (File f : files)
+    {
+      if (f.isDirectory())
+      {
+        listFiles(f, result);
+      }
+      else if (f.getName().endsWith(".part"))
+      {
+        // left over from an interrupted download
+        f.delete();
+      }
+      else
+      {
+        result.add(f);
+      }
+    }
+  }
+}
@@ -23,6 +23,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
 import org.scribe.exceptions.OAuthException;
 import org.scribe.builder.ServiceBuilder;
 import org.scribe.model.OAuthRequest;
@@ -44,8 +51,31 @@ public class ThingiverseClient {
   private String clientSecret = "";
   private String clientCallback = "";
   private String accesTokenString = "";
+  private String apiUrl = "http://api.thingiverse.com";
   OAuthService service;
 
+  /**
+   * Number of api responses kept for revalidation with
+   * If-None-Match / If-Modified-Since
+   */
+  private static final int MAX_CACHED_RESPONSES = 128;
+
+  private static class CachedResponse
+  {
+    String etag;
+    String lastModified;
+    String body;
+  }
+
+  private final Map<String, CachedResponse> responseCache = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true)
+  {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest)
+    {
+      return size() > MAX_CACHED_RESPONSES;
+    }
+  };
+
   /**
    * Get instance of ThingClient
    * @param clientId the id of your app, see thingiverse.com
@@ -67,6 +97,21 @@ public class ThingiverseClient {
             .build();
   }
 
+  /**
+   * Base url of all api calls. Can be changed to run the client against
+   * a local server, e.g. for testing.
+   * @param apiUrl url without trailing slash
+   */
+  public void setApiUrl(String apiUrl)
+  {
+    this.apiUrl = apiUrl;
+  }
+
+  public String getApiUrl()
+  {
+    return apiUrl;
+  }
+
    /**
    * Use this when the user has logged in already, and you have the accestoken.
    * The accesToken is used to use further API-calls.
@@ -133,16 +178,65 @@ public class ThingiverseClient {
     {
       urlEnd = "/" + url;
     }
-    OAuthRequest request = new OAuthRequest(verb, "http://api.thingiverse.com" + urlEnd);
+    OAuthRequest request = new OAuthRequest(verb, apiUrl + urlEnd);
     request.addHeader("Authorization", "Bearer " + accesTokenString);
 
     if (requestBody != null && !requestBody.isEmpty())
     {
       request.addPayload(requestBody);
     }
+
+    // Revalidate GET requests we have seen before instead of transferring
+    // the same listing again. The token is part of the key, because most
+    // answers depend on the logged in user.
+    String cacheKey = accesTokenString + " " + request.getUrl();
+    CachedResponse cached = null;
+    if (verb == Verb.GET)
+    {
+      synchronized (responseCache)
+      {
+        cached = responseCache.get(cacheKey);
+      }
+      if (cached != null)
+      {
+        if (cached.etag != null)
+        {
+          request.addHeader("If-None-Match", cached.etag);
+        }
+        if (cached.lastModified != null)
+        {
+          request.addHeader("If-Modified-Since", cached.lastModified);
+        }
+      }
+    }
     
     Response response = request.send();
-    return response.getBody();
+    if (cached != null && response.getCode() == 304)
+    {
+      return cached.body;
+    }
+    String body = response.getBody();
+    if (verb == Verb.GET && response.getCode() == 200)
+    {
+      String etag = getHeader(response, "ETag");
+      String lastModified = getHeader(response, "Last-Modified");
+      synchronized (responseCache)
+      {
+        if (etag != null || lastModified != null)
+        {
+          CachedResponse c = new CachedResponse();
+          c.etag = etag;
+          c.lastModified = lastModified;
+          c.body = body;
+          responseCache.put(cacheKey, c);
+        }
+        else
+        {
+          responseCache.remove(cacheKey);
+        }
+      }
+    }
+    return body;
   }
   
   //USER//
@@ -183,7 +277,7 @@ public class ThingiverseClient {
    */
   @ThingMethod(params = {"username","bio","location","default_licence"})
   public String updateUser(String username, String bio, String location, String default_licence) {
-    OAuthRequest request = new OAuthRequest(Verb.POST, "http://api.thingiverse.com/users/" + username + "/");
+    OAuthRequest request = new OAuthRequest(Verb.POST, apiUrl + "/users/" + username + "/");
     request.addHeader("Authorization", "Bearer " + accesTokenString);
     if (bio != null) {
       request.addBodyParameter("bio", bio);
@@ -213,7 +307,7 @@ public class ThingiverseClient {
    */
   @ThingMethod(params = {"id","name","licence","category","description","instructions","is_wip","tags"})
   public String updateThing(String id, String name, String licence, String category, String description, String instructions, String is_wip, String tags) {
-    OAuthRequest request = new OAuthRequest(Verb.POST, "http://api.thingiverse.com/things/" + id + "/");
+    OAuthRequest request = new OAuthRequest(Verb.POST, apiUrl + "/things/" + id + "/");
     request.addHeader("Authorization", "Bearer " + accesTokenString);
     if (name != null) {
       request.addBodyParameter("name", name);
@@ -339,7 +433,7 @@ public class ThingiverseClient {
    */
   @ThingMethod(params = {"id", "name","description"})
   public String updateCollection(String id, String name, String description) {
-    OAuthRequest request = new OAuthRequest(Verb.POST, "http://api.thingiverse.com/collections/" + id + "/");
+    OAuthRequest request = new OAuthRequest(Verb.POST, apiUrl + "/collections/" + id + "/");
     request.addHeader("Authorization", "Bearer " + accesTokenString);
     if (name != null) {
       request.addBodyParameter("name", name);
@@ -375,7 +469,7 @@ public class ThingiverseClient {
       throw new RuntimeException("name is not optional, http://www.thingiverse.com/developers/rest-api-reference");
     }
     //return call(Verb.POST, "/collections/");
-    OAuthRequest request = new OAuthRequest(Verb.POST, "http://api.thingiverse.com/collections/");
+    OAuthRequest request = new OAuthRequest(Verb.POST, apiUrl + "/collections/");
     request.addHeader("Authorization", "Bearer " + accesTokenString);
     request.addBodyParameter("description", description);
     Response response = request.send();
@@ -396,7 +490,7 @@ public class ThingiverseClient {
     if (description == null) {
       description = "";
     }
-    OAuthRequest request = new OAuthRequest(Verb.POST, "http://api.thingiverse.com/collections/" + collectionId + "/things/" + thingId);
+    OAuthRequest request = new OAuthRequest(Verb.POST, apiUrl + "/collections/" + collectionId + "/things/" + thingId);
     request.addHeader("Authorization", "Bearer " + accesTokenString);
     request.addBodyParameter("description", description);
     Response response = request.send();
@@ -507,6 +601,26 @@ public class ThingiverseClient {
    * @throws IOException 
    */
   public boolean downloadBinaryFile(String url, File outFile, boolean authorizationRequired) throws IOException
+  {
+    return downloadBinaryFile(url, outFile, authorizationRequired, 0);
+  }
+
+  /**
+   * Download a binary file, unless it has not been modified since the
+   * given time. The file is written to a temporary file first, so outFile
+   * is either replaced completely or left untouched.
+   * After a download the modification time of outFile is set to the
+   * Last-Modified time reported by the server (if any), so it can be
+   * passed as ifModifiedSince for the next download.
+   * @param url
+   * @param outFile
+   * @param authorizationRequired Set to true to send the OAuth access token
+   * with each request.
+   * @param ifModifiedSince time in milliseconds, 0 to download unconditionally
+   * @return True if outFile is up to date (downloaded or not modified)
+   * @throws IOException 
+   */
+  public boolean downloadBinaryFile(String url, File outFile, boolean authorizationRequired, long ifModifiedSince) throws IOException
   {
     // Perform http request
     OAuthRequest request = new OAuthRequest(Verb.GET, url);
@@ -519,31 +633,108 @@ public class ThingiverseClient {
     // Quick and dirty solution:
     // Fake user-agent. Otherwise thingiverse may give us 403 Forbidden.
     request.addHeader("User-Agent", "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:34.0) Gecko/20100101 Firefox/34.0");
+
+    String ifModifiedSinceHeader = null;
+    if (ifModifiedSince > 0 && outFile.exists())
+    {
+      ifModifiedSinceHeader = formatHttpDate(ifModifiedSince);
+      request.addHeader("If-Modified-Since", ifModifiedSinceHeader);
+    }
     
     Response response = request.send();
-    response = followRedirects(response, 2);
+    response = followRedirects(response, 2, ifModifiedSinceHeader);
 
+    if (ifModifiedSinceHeader != null && response.getCode() == 304)
+    {
+      return true;
+    }
     if (!response.isSuccessful())
     {
       return false;
     }
     
     // Save binary contents to file
+    File tmp = File.createTempFile("download", ".part", outFile.getAbsoluteFile().getParentFile());
     InputStream inputStream = response.getStream();
-    OutputStream outputStream = new FileOutputStream(outFile);
-    
-    byte[] buffer = new byte[4096];
-    int n;
-    while ((n = inputStream.read(buffer)) != -1)
+    OutputStream outputStream = new FileOutputStream(tmp);
+    try
     {
-      outputStream.write(buffer, 0, n);
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = inputStream.read(buffer)) != -1)
+      {
+        outputStream.write(buffer, 0, n);
+      }
+    }
+    catch (IOException ex)
+    {
+      outputStream.close();
+      tmp.delete();
+      throw ex;
     }
     outputStream.close();
-    
+    inputStream.close();
+
+    outFile.delete();
+    if (!tmp.renameTo(outFile))
+    {
+      tmp.delete();
+      return false;
+    }
+    long lastModified = parseHttpDate(getHeader(response, "Last-Modified"));
+    if (lastModified > 0)
+    {
+      outFile.setLastModified(lastModified);
+    }
     return true;
   }
+
+  /**
+   * Header lookup ignoring the case of the header name
+   */
+  private static String getHeader(Response response, String name)
+  {
+    for (Map.Entry<String, String> e : response.getHeaders().entrySet())
+    {
+      if (name.equalsIgnoreCase(e.getKey()))
+      {
+        return e.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static String formatHttpDate(long time)
+  {
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format.format(new Date(time));
+  }
+
+  private static long parseHttpDate(String date)
+  {
+    if (date == null)
+    {
+      return 0;
+    }
+    try
+    {
+      SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+      format.setTimeZone(TimeZone.getTimeZone("GMT"));
+      return format.parse(date).getTime();
+    }
+    catch (ParseException ex)
+    {
+      return 0;
+    }
+  }
   
   private Response followRedirects(Response response, int maxRedirects)
+  {
+    return followRedirects(response, maxRedirects, null);
+  }
+
+  private Response followRedirects(Response response, int maxRedirects, String ifModifiedSince)
   {
     if (maxRedirects < 1 || response.getCode() != 302)
     {
@@ -552,9 +743,13 @@ public class ThingiverseClient {
     
     // Follow redirect once
     OAuthRequest redirectRequest = new OAuthRequest(Verb.GET, response.getHeader("Location"));
+    if (ifModifiedSince != null)
+    {
+      redirectRequest.addHeader("If-Modified-Since", ifModifiedSince);
+    }
     Response redirectResponse = redirectRequest.send();
     
     // Recursively follow redirects until success or max tries exceeded
-    return followRedirects(redirectResponse, maxRedirects - 1);
+    return followRedirects(redirectResponse, maxRedirects - 1, ifModifiedSince);
   }
 }
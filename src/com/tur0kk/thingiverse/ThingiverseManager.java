@@ -19,6 +19,7 @@
 package com.tur0kk.thingiverse;
 
 import com.t_oster.visicut.VisicutModel;
+import com.t_oster.visicut.misc.FileUtils;
 import com.t_oster.visicut.misc.Helper;
 import com.tur0kk.thingiverse.model.Thing;
 import com.tur0kk.thingiverse.model.ThingCollection;
@@ -26,6 +27,7 @@ import com.tur0kk.thingiverse.model.ThingFile;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -38,6 +40,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -86,6 +89,31 @@ public class ThingiverseManager
    * The client object is available iff a user is currently logged in.
    */
   private ThingiverseClient client = null;
+
+  /**
+   * Number of threads doing api calls and downloads in parallel.
+   */
+  private static final int IO_THREADS = 8;
+
+  /**
+   * Size limits of the downloaded images and thing files on disk.
+   */
+  private static final long MAX_IMAGE_CACHE_SIZE = 50 * 1024 * 1024;
+  private static final long MAX_FILE_CACHE_SIZE = 200 * 1024 * 1024;
+
+  /**
+   * Shared executor for all thingiverse requests. Created on first use.
+   */
+  private ExecutorService executor = null;
+
+  private DownloadCache imageCache = null;
+  private DownloadCache fileCache = null;
+
+  /**
+   * Folder of the thing files which have been opened in this session.
+   * Created on first use and deleted when VisiCut exits.
+   */
+  private File openedFilesFolder = null;
   
   /**
    * Private constructor following the singleton pattern.
@@ -99,7 +127,7 @@ public class ThingiverseManager
    * Use this method to get the current thingiverse manager instance.
    * @return ThingiverseManager instance
    */
-  public static ThingiverseManager getInstance()
+  public static synchronized ThingiverseManager getInstance()
   {
     if (instance == null)
     {
@@ -108,6 +136,68 @@ public class ThingiverseManager
     return instance;
   }
   
+  /**
+   * Executor with a bounded number of daemon threads, which should be
+   * used for all background requests to thingiverse (e.g. loading
+   * thumbnails), so browsing does not spawn a thread per request.
+   * Tasks running on this executor must not wait for other tasks of it.
+   * @return shared executor
+   */
+  public synchronized ExecutorService getExecutor()
+  {
+    if (executor == null)
+    {
+      executor = Executors.newFixedThreadPool(IO_THREADS, new ThreadFactory()
+      {
+        private int count = 0;
+
+        public synchronized Thread newThread(Runnable r)
+        {
+          Thread t = new Thread(r, "Thingiverse-IO-" + (++count));
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return executor;
+  }
+
+  private synchronized DownloadCache getImageCache()
+  {
+    if (imageCache == null)
+    {
+      imageCache = new DownloadCache(new File(Helper.getBasePath(), "thingiverse/images"), MAX_IMAGE_CACHE_SIZE);
+    }
+    return imageCache;
+  }
+
+  private synchronized DownloadCache getFileCache()
+  {
+    if (fileCache == null)
+    {
+      fileCache = new DownloadCache(new File(Helper.getBasePath(), "thingiverse/files"), MAX_FILE_CACHE_SIZE);
+    }
+    return fileCache;
+  }
+
+  private synchronized File getOpenedFilesFolder() throws IOException
+  {
+    if (openedFilesFolder == null)
+    {
+      final File folder = FileUtils.createTempDirectory("visicut-thingiverse");
+      Runtime.getRuntime().addShutdownHook(new Thread()
+      {
+        @Override
+        public void run()
+        {
+          FileUtils.deleteRecursively(folder);
+        }
+      });
+      openedFilesFolder = folder;
+    }
+    return openedFilesFolder;
+  }
+
   /**
    * The internal webbrowser (JavaFX) will automatically close if it has been
    * redirected to a url with this prefix.
@@ -602,7 +692,8 @@ public class ThingiverseManager
    * Takes a list of strings and returns the sublist of things that match all
    * given filter rules. Note that this method is relatively slow. It does
    * a thingiverse api call for each thing in the input list. Requests are done
-   * in parallel using a thread pool.
+   * in parallel using the shared executor, so this must not be called from
+   * a task running on it.
    * @param things Input list of things
    * @param filterExtensions Set to true if you want to filter for supported
    * file extensions. The list of file extensions can be set as application
@@ -675,8 +766,7 @@ public class ThingiverseManager
     }
 
     // Execute jobs and wait until all of them are finished.
-    ExecutorService executor = Executors.newFixedThreadPool(30);
-    List<Future<Boolean>> results = executor.invokeAll(jobs);
+    List<Future<Boolean>> results = getExecutor().invokeAll(jobs);
 
     // Create filtered result list.
     Iterator<Thing> thingIter = things.iterator();
@@ -693,7 +783,6 @@ public class ThingiverseManager
       }
     }
 
-    executor.shutdown();
     return thingsFiltered;
   }
   
@@ -726,6 +815,10 @@ public class ThingiverseManager
   /**
    * Downloads a file from thingiverse,
    * saves it to disk and returns a File object or null.
+   * If the file has been downloaded before, it is only transferred again
+   * if it has been modified on thingiverse since.
+   * The returned file is a copy, which is not touched by the download
+   * cache, so it can back a loaded part until VisiCut exits.
    * @param thingFile
    * @return Java.io.File that has been saved to disk.
    */
@@ -735,22 +828,19 @@ public class ThingiverseManager
     
     try
     {
-      File folder = new File(Helper.getBasePath(),
-                             "thingiverse/files/" +
-                             thingFile.getThing().getId());
-      folder.mkdirs();
-      file = new File(folder, thingFile.getName());
-      
-      // Delete old file from disk.
-      // (There may have been an update and we want to download the most recent
-      // version each time)
-      if (file.exists())
+      DownloadCache cache = getFileCache();
+      File cached = cache.getFile(thingFile.getThing().getId() + "/" + thingFile.getName());
+      client.downloadBinaryFile(thingFile.getUrl(), cached, true, cached.exists() ? cached.lastModified() : 0);
+      // every opened file gets its own folder, so opening it again does
+      // not overwrite the file of a part which is already loaded
+      File dir = FileUtils.createTempDirectory("thing" + thingFile.getThing().getId(), getOpenedFilesFolder());
+      synchronized (cache)
       {
-        file.delete();
+        // keeps other downloads from evicting the file while it is copied
+        cache.stored(cached);
+        file = new File(dir, thingFile.getName());
+        FileUtils.copyFile(cached, file, true);
       }
-      
-      file.createNewFile();
-      client.downloadBinaryFile(thingFile.getUrl(), file, true);
     }
     catch (Exception ex)
     {
@@ -763,39 +853,34 @@ public class ThingiverseManager
   /**
    * Downloads an image from thingiverse,
    * saves it to disk and returns its location in the file system.
+   * Images which have been downloaded before are taken from the disk
+   * cache without any request.
    * @url Web url of the image
    * @return Absolute path to the image on the local file system
    */
   public String downloadImage(String url)
   {
     String returnPath = "";
-    File file = null;
     
     try
     {
-      File folder = new File(Helper.getBasePath(),
-                             "thingiverse/images/");
-      
       // Generate a "unique" filename...
       String filename = ((Integer)url.hashCode()).toString()
                       + "."
                       + url.substring(url.length() - 3);
       
-      folder.mkdirs();
-      file = new File(folder, filename);
-      
-      // Delete old file from disk.
-      // (There may have been an update and we want to download the most recent
-      // version each time)
-      if (file.exists())
+      DownloadCache cache = getImageCache();
+      File file = cache.getFile(filename);
+      if (file.exists() && file.length() > 0)
       {
-        file.delete();
+        return file.getAbsolutePath();
+      }
+
+      if (client.downloadBinaryFile(url, file, false))
+      {
+        cache.stored(file);
+        returnPath = file.getAbsolutePath();
       }
-      
-      file.createNewFile();
-      client.downloadBinaryFile(url, file, false);
-      
-      returnPath = file.getAbsolutePath();
     }
     catch (Exception ex)
     {
@@ -49,7 +49,6 @@ import java.io.File;
 import java.rmi.AccessException;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -62,10 +61,6 @@ public class ThingiverseDialog extends javax.swing.JDialog
 {
 
   // counter for keeping track of current running image loading threads. If == 0, user feedback for loading is disabled
-  private AtomicInteger numberLoadingLiked = new AtomicInteger();
-  private AtomicInteger numberLoadingMyThings = new AtomicInteger();
-  private AtomicInteger numberLoadingSearch = new AtomicInteger();
-  private AtomicInteger numberLoadingCollection = new AtomicInteger();
 
   /**
    * Creates new form ThingiverseDialog
@@ -120,101 +115,41 @@ public class ThingiverseDialog extends javax.swing.JDialog
   }
   
   /* This functions takes a list of things ti display and loads them into a given list.
-   * This includes showing a loading icon and starting a thread for each image to load it.
-   * User feedback is enabled until each image of this tab is ready.
+   * Each thing shows a loading icon until the renderer has loaded its image, which
+   * happens once the thing becomes visible in the list.
+   * User feedback is enabled until the list of this tab is ready.
    */
-  private void loadTab(final List<Thing> thingsToLoad, final JList thingList, final AtomicInteger feedbackCounter, final JLabel feedbackLabel){
-    // load all images for a tab asynchronously
-    new Thread(new Runnable()
+  private void loadTab(final List<Thing> thingsToLoad, final JList thingList, final JLabel feedbackLabel){
+    // init my things model with loading images
+    DefaultListModel myThingsModel = new DefaultListModel(); // model for JList
+    Iterator<Thing> i1 = thingsToLoad.iterator(); // iterate over each thing and add to model
+    int index = 0;
+    while (i1.hasNext())
     {
+      // get loading icon
+      ImageIcon loadingIcon = PluginIconLoader.loadIcon(PluginIconLoader.PLUGIN_LOADING_CIRCLE_MEDIUM);
 
-      public void run()
-      {
-        final ThingiverseManager thingiverse = ThingiverseManager.getInstance();
-        
-        // init my things model with loading images
-        DefaultListModel myThingsModel = new DefaultListModel(); // model for JList
-        Iterator<Thing> i1 = thingsToLoad.iterator(); // iterate over each thing and add to model
-        int index = 0;
-        while (i1.hasNext())
-        {
-          // get loading icon
-          ImageIcon loadingIcon = PluginIconLoader.loadIcon(PluginIconLoader.PLUGIN_LOADING_CIRCLE_MEDIUM);
-
-          // set changing observer for loading images to update gif 
-          loadingIcon.setImageObserver(new AnimationImageObserverList(thingList, index));
-
-          // add thing to model
-          Thing aThing = i1.next();
-          aThing.setImage(loadingIcon);
-          myThingsModel.addElement(aThing);
-
-          index += 1;
-        }
+      // set changing observer for loading images to update gif 
+      loadingIcon.setImageObserver(new AnimationImageObserverList(thingList, index));
 
-        // display myThingsModel in my things list
-        final DefaultListModel model = myThingsModel;
-        SwingUtilities.invokeLater(new Runnable()
-        {
-          public void run()
-          {
-            thingList.setModel(model);
-          }
-        });
-
-        // set an atomic counter to keep track of number of loading icons. If 0 again, disable loading header.
-        feedbackCounter.set(myThingsModel.size());
-
-        // start a thread for each image to load image asynchronous
-        for (final Thing entry : thingsToLoad)
-        {
-          final String url = entry.getImageUrl();
-          new Thread(new Runnable()
-          {
-            public void run()
-            {
+      // add thing to model
+      Thing aThing = i1.next();
+      aThing.setImage(loadingIcon);
+      myThingsModel.addElement(aThing);
 
-              String file = thingiverse.downloadImage(url); // download  image
-              ImageIcon imageIcon = null;
-              if ("".equals(file))
-              { // load default image if image not avaliable
-                imageIcon = PluginIconLoader.loadIcon(PluginIconLoader.PLUGIN_THINGIVERSE_NO_IMG);
-              }
-              else
-              {
-                imageIcon = new ImageIcon(file);
-              }
-
-              // overwrite image
-              final ImageIcon objectImage = imageIcon;
-              SwingUtilities.invokeLater(new Runnable()
-              {
-                public void run()
-                {
-                  // overwrite image
-                  entry.setImage(objectImage);
-                  thingList.updateUI();
-
-                  // image loaded, decrement loading images
-                  if (feedbackCounter.decrementAndGet() == 0)
-                  {
-                    feedbackLabel.setIcon(null);
-                  }
-                }
-              });
-            }
-          }).start();
-        }
-        
-        
-        // if list empty disable feedback
-        if(thingsToLoad.isEmpty()){
-          feedbackLabel.setIcon(null);
-        }
-        // do for other tabs
+      index += 1;
+    }
 
+    // display myThingsModel in my things list, images are loaded by the renderer
+    final DefaultListModel model = myThingsModel;
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      public void run()
+      {
+        thingList.setModel(model);
+        feedbackLabel.setIcon(null);
       }
-    }).start();
+    });
   }
 
   // called once when dialog is set up
@@ -258,7 +193,7 @@ public class ThingiverseDialog extends javax.swing.JDialog
         // request content from thingiverse
         ThingiverseManager thingiverse = ThingiverseManager.getInstance();
         List<Thing> things = thingiverse.getLikedThings(cbExtensions.isSelected(), cbTags.isSelected());
-        loadTab(things, lstLiked, numberLoadingLiked, lblLiked); // display result in tab list
+        loadTab(things, lstLiked, lblLiked); // display result in tab list
       }
     }).start();
   }
@@ -300,7 +235,7 @@ public class ThingiverseDialog extends javax.swing.JDialog
         // get things from thingiverse
         ThingiverseManager thingiverse = ThingiverseManager.getInstance();
         List<Thing> things = thingiverse.getMyThings(cbExtensions.isSelected(), cbTags.isSelected());
-        loadTab(things, lstMyThings, numberLoadingMyThings, lblMyThings); // display result
+        loadTab(things, lstMyThings, lblMyThings); // display result
       }
     }).start();
       
@@ -395,7 +330,7 @@ public class ThingiverseDialog extends javax.swing.JDialog
         // request current selected collection content
         ThingiverseManager thingiverse = ThingiverseManager.getInstance();
         List<Thing> things = thingiverse.getThingsByCollection(collection, cbExtensions.isSelected(), cbTags.isSelected());
-        loadTab(things, lstCollection, numberLoadingCollection, lblCollection);
+        loadTab(things, lstCollection, lblCollection);
       }
     }).start();
   }
@@ -427,7 +362,7 @@ public class ThingiverseDialog extends javax.swing.JDialog
     
         ThingiverseManager thingiverse = ThingiverseManager.getInstance();
         List<Thing> things = thingiverse.search(queryString, cbExtensions.isSelected(), cbTags.isSelected());
-        loadTab(things, lstSearch, numberLoadingSearch, lblSearch);
+        loadTab(things, lstSearch, lblSearch);
       }
     }).start();
   }
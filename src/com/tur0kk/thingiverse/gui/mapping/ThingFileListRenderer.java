@@ -22,6 +22,7 @@ import com.tur0kk.thingiverse.model.ThingFile;
 import java.awt.Component;
 import java.awt.Font;
 import javax.swing.DefaultListCellRenderer;
+import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JList;
 
@@ -32,6 +33,21 @@ import javax.swing.JList;
 public class ThingFileListRenderer extends DefaultListCellRenderer
 {
   Font font = new Font("helvitica", Font.BOLD, 24);
+
+  private final ThumbnailLoader<ThingFile> thumbnailLoader = new ThumbnailLoader<ThingFile>()
+  {
+    @Override
+    protected String getThumbnailUrl(ThingFile entry)
+    {
+      return entry.getThumbnailUrl();
+    }
+
+    @Override
+    protected void setThumbnail(ThingFile entry, ImageIcon thumbnail)
+    {
+      entry.setThumbnail(thumbnail);
+    }
+  };
   
   public ThingFileListRenderer(){
     
@@ -54,6 +70,7 @@ public class ThingFileListRenderer extends DefaultListCellRenderer
       // default behavior: show image and name of thing
       ThingFile aFile = (ThingFile) value;
       label.setText(aFile.getName());
+      thumbnailLoader.request(list, aFile, index);
       label.setIcon(aFile.getThumbnail());
       label.setHorizontalAlignment(JLabel.LEFT);
       label.setFont(font);
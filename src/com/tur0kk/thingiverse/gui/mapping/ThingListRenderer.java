@@ -22,6 +22,7 @@ import com.tur0kk.thingiverse.model.Thing;
 import java.awt.Component;
 import java.awt.Font;
 import javax.swing.DefaultListCellRenderer;
+import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JList;
 
@@ -36,6 +37,21 @@ public class ThingListRenderer extends DefaultListCellRenderer {
 
   Font font = new Font("helvitica", Font.BOLD, 24);
 
+  private final ThumbnailLoader<Thing> thumbnailLoader = new ThumbnailLoader<Thing>()
+  {
+    @Override
+    protected String getThumbnailUrl(Thing entry)
+    {
+      return entry.getImageUrl();
+    }
+
+    @Override
+    protected void setThumbnail(Thing entry, ImageIcon thumbnail)
+    {
+      entry.setImage(thumbnail);
+    }
+  };
+
   public ThingListRenderer(){
     
   }
@@ -50,6 +66,7 @@ public class ThingListRenderer extends DefaultListCellRenderer {
       
       // design list item
       label.setText(aThing.getName());
+      thumbnailLoader.request(list, aThing, index);
       label.setIcon(aThing.getImage());
       label.setHorizontalAlignment(JLabel.LEFT);
       label.setFont(font);
@@ -69,11 +69,11 @@ public class ThingSelectionListener implements ListSelectionListener
             }
 
             // display files of selected thing
-            new Thread(new Runnable() {
+            final ThingiverseManager thingiverse = ThingiverseManager.getInstance();
+            thingiverse.getExecutor().execute(new Runnable() {
 
               public void run()
               {        
-                final ThingiverseManager thingiverse = ThingiverseManager.getInstance();
 
                 // get things grom thingiverse
                 List<ThingFile> things = thingiverse.getFiles(selectionValue, cbExtensions.isSelected());
@@ -111,40 +111,8 @@ public class ThingSelectionListener implements ListSelectionListener
                     displayResult.setModel(model);            
                   }
                 });
-
-                // start a thread for each image to load image asynchronously
-                for (final ThingFile entry : things)
-                {
-                  final String url = entry.getThumbnailUrl();
-                  new Thread(new Runnable() 
-                  {
-                      public void run()
-                      {
-                        String file = thingiverse.downloadImage(url); // download  image
-                        ImageIcon imageIcon = null;
-                        if("".equals(file)){ // load default image if image not avaliable
-                          imageIcon = PluginIconLoader.loadIcon(PluginIconLoader.PLUGIN_THINGIVERSE_NO_IMG);
-                        }
-                        else{
-                          imageIcon = new ImageIcon(file);
-                        }
-
-                        // overwrite image
-                        final ImageIcon objectImage = imageIcon;
-                        SwingUtilities.invokeLater(new Runnable() {
-                          public void run()
-                          {
-                            // overwrite image
-                            entry.setThumbnail(objectImage);
-                            displayResult.updateUI();
-                          }
-                        });
-                      }
-                    }).start();
-                  }
-
               }
-            }).start();
+            });
           }
           else{
             // nothing is selected
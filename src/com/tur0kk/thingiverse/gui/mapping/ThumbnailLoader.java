@@ -0,0 +1,95 @@
+/**
+ * This file is part of VisiCut.
+ * Copyright (C) 2011 - 2013 Thomas Oster <thomas.oster@rwth-aachen.de>
+ * RWTH Aachen University - 52062 Aachen, Germany
+ *
+ *     VisiCut is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     VisiCut is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with VisiCut.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.tur0kk.thingiverse.gui.mapping;
+
+import com.frochr123.pluginicon.PluginIconLoader;
+import com.tur0kk.thingiverse.ThingiverseManager;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.swing.DefaultListModel;
+import javax.swing.ImageIcon;
+import javax.swing.JList;
+import javax.swing.ListModel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Loads the thumbnails of list entries on the shared thingiverse executor.
+ * Renderers call request for each cell they paint, so only thumbnails of
+ * rows which actually become visible are downloaded.
+ * @author Sven
+ */
+public abstract class ThumbnailLoader<T>
+{
+  private final Set<T> requested = Collections.newSetFromMap(new WeakHashMap<T, Boolean>());
+
+  protected abstract String getThumbnailUrl(T entry);
+
+  protected abstract void setThumbnail(T entry, ImageIcon thumbnail);
+
+  /**
+   * Starts loading the thumbnail of the entry at the given index, if the
+   * row is visible and its thumbnail has not been requested before.
+   * Must be called on the event dispatch thread.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void request(final JList list, final T entry, int index)
+  {
+    if (index < list.getFirstVisibleIndex() || index > list.getLastVisibleIndex() || !requested.add(entry))
+    {
+      return;
+    }
+    final String url = getThumbnailUrl(entry);
+    final ThingiverseManager thingiverse = ThingiverseManager.getInstance();
+    thingiverse.getExecutor().execute(new Runnable()
+    {
+      public void run()
+      {
+        String file = thingiverse.downloadImage(url); // download  image
+        final ImageIcon imageIcon;
+        if ("".equals(file))
+        { // load default image if image not avaliable
+          imageIcon = PluginIconLoader.loadIcon(PluginIconLoader.PLUGIN_THINGIVERSE_NO_IMG);
+        }
+        else
+        {
+          imageIcon = new ImageIcon(file);
+        }
+
+        SwingUtilities.invokeLater(new Runnable()
+        {
+          public void run()
+          {
+            // overwrite image and let the list update the size of the row
+            setThumbnail(entry, imageIcon);
+            ListModel model = list.getModel();
+            if (model instanceof DefaultListModel)
+            {
+              int i = ((DefaultListModel) model).indexOf(entry);
+              if (i >= 0)
+              {
+                ((DefaultListModel) model).set(i, entry);
+              }
+            }
+          }
+        });
+      }
+    });
+  }
+}
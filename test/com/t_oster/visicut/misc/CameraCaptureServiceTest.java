@@ -0,0 +1,214 @@
+package com.t_oster.visicut.misc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Captures frames from a local http server
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class CameraCaptureServiceTest
+{
+  private HttpServer server;
+  private CameraCaptureService service;
+  private final AtomicInteger requests = new AtomicInteger();
+  /**
+   * The first request blocks until this is released
+   */
+  private final CountDownLatch firstRequest = new CountDownLatch(1);
+  private final CountDownLatch firstRequestStarted = new CountDownLatch(1);
+  private final List<BufferedImage> frames = Collections.synchronizedList(new LinkedList<BufferedImage>());
+  private final List<Exception> errors = Collections.synchronizedList(new LinkedList<Exception>());
+  private final CountDownLatch done = new CountDownLatch(2);
+
+  @Before
+  public void setUp() throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/frame", new HttpHandler()
+    {
+      public void handle(HttpExchange ex) throws IOException
+      {
+        if (requests.getAndIncrement() == 0)
+        {
+          firstRequestStarted.countDown();
+          try
+          {
+            firstRequest.await(10, TimeUnit.SECONDS);
+          }
+          catch (InterruptedException e)
+          {
+            Thread.currentThread().interrupt();
+          }
+        }
+        byte[] data = HttpFrameReaderTest.jpeg(Color.RED);
+        ex.getResponseHeaders().set("Content-Type", "image/jpeg");
+        ex.sendResponseHeaders(200, data.length);
+        OutputStream out = ex.getResponseBody();
+        out.write(data);
+        out.close();
+      }
+    });
+    server.createContext("/mjpeg", new HttpHandler()
+    {
+      /**
+       * Each connection streams frames of its own color, until the
+       * client closes it
+       */
+      public void handle(HttpExchange ex) throws IOException
+      {
+        Color c = requests.getAndIncrement() == 0 ? Color.RED : Color.BLUE;
+        byte[] data = HttpFrameReaderTest.jpeg(c);
+        ex.getResponseHeaders().set("Content-Type", "multipart/x-mixed-replace;boundary=frame");
+        ex.sendResponseHeaders(200, 0);
+        OutputStream out = ex.getResponseBody();
+        try
+        {
+          for (int i = 0; i < 500; i++)
+          {
+            out.write(("--frame\r\nContent-Type: image/jpeg\r\nContent-Length: " + data.length + "\r\n\r\n").getBytes("US-ASCII"));
+            out.write(data);
+            out.write("\r\n".getBytes("US-ASCII"));
+            out.flush();
+            Thread.sleep(10);
+          }
+          out.close();
+        }
+        catch (IOException e)
+        {
+          //closed by the client
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+        ex.close();
+      }
+    });
+    server.createContext("/error", new HttpHandler()
+    {
+      public void handle(HttpExchange ex) throws IOException
+      {
+        requests.incrementAndGet();
+        byte[] data = "marker not found".getBytes("UTF-8");
+        ex.sendResponseHeaders(500, data.length);
+        OutputStream out = ex.getResponseBody();
+        out.write(data);
+        out.close();
+      }
+    });
+    server.start();
+    service = new CameraCaptureService(new CameraCaptureService.Listener()
+    {
+      public void frameCaptured(BufferedImage frame)
+      {
+        frames.add(frame);
+        done.countDown();
+      }
+
+      public void captureFailed(Exception ex)
+      {
+        errors.add(ex);
+        done.countDown();
+      }
+    });
+  }
+
+  @After
+  public void tearDown()
+  {
+    service.shutdown();
+    server.stop(0);
+  }
+
+  private String url(String path)
+  {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  @Test
+  public void testRequestsAreCollapsed() throws Exception
+  {
+    service.setUrl(url("/frame"));
+    service.capture();
+    assertTrue(firstRequestStarted.await(10, TimeUnit.SECONDS));
+    //requested while the first capture is running: only one more frame
+    service.capture();
+    service.capture();
+    service.capture();
+    firstRequest.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    //give a third capture the chance to show up
+    Thread.sleep(300);
+    assertEquals(2, requests.get());
+    assertEquals(2, frames.size());
+    assertTrue(errors.isEmpty());
+    HttpFrameReaderTest.assertColor(Color.RED, frames.get(1));
+  }
+
+  @Test
+  public void testStreamIsClosedAfterCapture() throws Exception
+  {
+    service.setUrl(url("/mjpeg"));
+    service.capture();
+    for (int i = 0; i < 100 && frames.isEmpty(); i++)
+    {
+      Thread.sleep(50);
+    }
+    //frames sent meanwhile must not be returned by the next capture
+    Thread.sleep(200);
+    service.capture();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(2, requests.get());
+    HttpFrameReaderTest.assertColor(Color.RED, frames.get(0));
+    HttpFrameReaderTest.assertColor(Color.BLUE, frames.get(1));
+    assertTrue(errors.isEmpty());
+  }
+
+  @Test
+  public void testCaptureFailed() throws Exception
+  {
+    service.setUrl(url("/error"));
+    service.setLive(true);
+    for (int i = 0; i < 100 && errors.isEmpty(); i++)
+    {
+      Thread.sleep(50);
+    }
+    //live mode is stopped after the first error
+    Thread.sleep(300);
+    assertFalse(service.isLive());
+    assertEquals(1, requests.get());
+    assertEquals(1, errors.size());
+    assertEquals("marker not found", errors.get(0).getMessage());
+    assertTrue(frames.isEmpty());
+  }
+
+  @Test
+  public void testNoUrl() throws Exception
+  {
+    service.setUrl("");
+    service.capture();
+    service.setLive(true);
+    assertFalse(service.isLive());
+    Thread.sleep(100);
+    assertEquals(0, requests.get());
+  }
+}
@@ -0,0 +1,193 @@
+package com.t_oster.visicut.misc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Reads frames from a local http server
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class HttpFrameReaderTest
+{
+  private static final Color[] COLORS = new Color[]{Color.RED, Color.GREEN, Color.BLUE};
+
+  private HttpServer server;
+  private final AtomicInteger requests = new AtomicInteger();
+
+  @Before
+  public void setUp() throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/single", new HttpHandler()
+    {
+      public void handle(HttpExchange ex) throws IOException
+      {
+        int i = requests.getAndIncrement();
+        byte[] data = jpeg(COLORS[i % COLORS.length]);
+        ex.getResponseHeaders().set("Content-Type", "image/jpeg");
+        ex.sendResponseHeaders(200, data.length);
+        OutputStream out = ex.getResponseBody();
+        out.write(data);
+        out.close();
+      }
+    });
+    server.createContext("/mjpeg", new MjpegHandler(true));
+    server.createContext("/mjpeg-nolength", new MjpegHandler(false));
+    server.createContext("/error", new HttpHandler()
+    {
+      public void handle(HttpExchange ex) throws IOException
+      {
+        requests.incrementAndGet();
+        byte[] data = "marker not found".getBytes("UTF-8");
+        ex.sendResponseHeaders(500, data.length);
+        OutputStream out = ex.getResponseBody();
+        out.write(data);
+        out.close();
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void tearDown()
+  {
+    server.stop(0);
+  }
+
+  /**
+   * Sends all colors as a multipart/x-mixed-replace stream and closes it
+   */
+  private class MjpegHandler implements HttpHandler
+  {
+    private final boolean sendLength;
+
+    MjpegHandler(boolean sendLength)
+    {
+      this.sendLength = sendLength;
+    }
+
+    public void handle(HttpExchange ex) throws IOException
+    {
+      requests.incrementAndGet();
+      ex.getResponseHeaders().set("Content-Type", "multipart/x-mixed-replace;boundary=frame");
+      ex.sendResponseHeaders(200, 0);
+      OutputStream out = ex.getResponseBody();
+      for (Color c : COLORS)
+      {
+        byte[] data = jpeg(c);
+        String header = "--frame\r\nContent-Type: image/jpeg\r\n"
+          + (sendLength ? "Content-Length: " + data.length + "\r\n" : "") + "\r\n";
+        out.write(header.getBytes("US-ASCII"));
+        out.write(data);
+        out.write("\r\n".getBytes("US-ASCII"));
+        out.flush();
+      }
+      out.close();
+    }
+  }
+
+  static byte[] jpeg(Color c) throws IOException
+  {
+    BufferedImage img = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+    for (int x = 0; x < img.getWidth(); x++)
+    {
+      for (int y = 0; y < img.getHeight(); y++)
+      {
+        img.setRGB(x, y, c.getRGB());
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(img, "jpg", out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Compares the center pixel, allowing for JPEG artifacts
+   */
+  static void assertColor(Color expected, BufferedImage img)
+  {
+    assertNotNull(img);
+    Color actual = new Color(img.getRGB(img.getWidth() / 2, img.getHeight() / 2));
+    assertTrue("expected " + expected + " but was " + actual,
+      Math.abs(expected.getRed() - actual.getRed()) < 16
+      && Math.abs(expected.getGreen() - actual.getGreen()) < 16
+      && Math.abs(expected.getBlue() - actual.getBlue()) < 16);
+  }
+
+  private URL url(String path) throws IOException
+  {
+    return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+  }
+
+  @Test
+  public void testSingleJpeg() throws IOException
+  {
+    HttpFrameReader reader = new HttpFrameReader(url("/single"));
+    assertColor(Color.RED, reader.read());
+    assertColor(Color.GREEN, reader.read());
+    assertEquals(2, requests.get());
+  }
+
+  private void readStream(String path) throws IOException
+  {
+    HttpFrameReader reader = new HttpFrameReader(url(path));
+    for (Color c : COLORS)
+    {
+      assertColor(c, reader.read());
+    }
+    assertEquals(1, requests.get());
+    try
+    {
+      reader.read();
+      fail("the stream has ended");
+    }
+    catch (EOFException ex)
+    {
+      //expected
+    }
+    reader.close();
+  }
+
+  @Test
+  public void testMjpegWithContentLength() throws IOException
+  {
+    readStream("/mjpeg");
+  }
+
+  @Test
+  public void testMjpegWithoutContentLength() throws IOException
+  {
+    readStream("/mjpeg-nolength");
+  }
+
+  @Test
+  public void testErrorMessage() throws IOException
+  {
+    HttpFrameReader reader = new HttpFrameReader(url("/error"));
+    try
+    {
+      reader.read();
+      fail("server sent an error");
+    }
+    catch (HttpFrameReader.HttpException ex)
+    {
+      assertEquals(500, ex.getResponseCode());
+      assertEquals("marker not found", ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.t_oster.visicut.misc;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.CubicCurve2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.QuadCurve2D;
+import java.awt.geom.Rectangle2D;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class ShapeBoundsTest
+{
+
+  private static final double DELTA = 1e-6;
+
+  private void assertRectEquals(Rectangle2D expected, Rectangle2D actual, double delta)
+  {
+    assertEquals(expected.getX(), actual.getX(), delta);
+    assertEquals(expected.getY(), actual.getY(), delta);
+    assertEquals(expected.getWidth(), actual.getWidth(), delta);
+    assertEquals(expected.getHeight(), actual.getHeight(), delta);
+  }
+
+  /**
+   * Bounds of the shape flattened with a very small flatness,
+   * which are the reference for the exact bounds
+   */
+  private Rectangle2D flattenedBounds(java.awt.Shape s, AffineTransform at)
+  {
+    double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+    double[] d = new double[6];
+    for (PathIterator pi = s.getPathIterator(at, 1e-6); !pi.isDone(); pi.next())
+    {
+      if (pi.currentSegment(d) != PathIterator.SEG_CLOSE)
+      {
+        minX = Math.min(minX, d[0]);
+        minY = Math.min(minY, d[1]);
+        maxX = Math.max(maxX, d[0]);
+        maxY = Math.max(maxY, d[1]);
+      }
+    }
+    return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+  }
+
+  @Test
+  public void testCubic()
+  {
+    CubicCurve2D c = new CubicCurve2D.Double(0, 0, 10, 20, 30, -10, 40, 0);
+    Rectangle2D bb = ShapeBounds.getBounds(c, null);
+    assertRectEquals(flattenedBounds(c, null), bb, 1e-4);
+    //control points are not part of the curve
+    assertTrue(bb.getMaxY() < 20);
+    assertTrue(bb.getMinY() > -10);
+  }
+
+  @Test
+  public void testQuad()
+  {
+    QuadCurve2D q = new QuadCurve2D.Double(0, 0, 5, 10, 10, 0);
+    assertRectEquals(new Rectangle2D.Double(0, 0, 10, 5), ShapeBounds.getBounds(q, null), DELTA);
+  }
+
+  @Test
+  public void testTransformedPath()
+  {
+    GeneralPath p = new GeneralPath();
+    p.moveTo(0, 0);
+    p.curveTo(10, 20, 30, -10, 40, 0);
+    p.quadTo(50, 10, 60, 0);
+    p.lineTo(60, -5);
+    p.closePath();
+    AffineTransform at = AffineTransform.getRotateInstance(0.5);
+    at.scale(2, 3);
+    assertRectEquals(flattenedBounds(p, at), ShapeBounds.getBounds(p, at), 1e-4);
+  }
+
+  @Test
+  public void testTrailingMoveIgnored()
+  {
+    GeneralPath p = new GeneralPath();
+    p.moveTo(0, 0);
+    p.lineTo(10, 10);
+    p.moveTo(100, 100);
+    assertRectEquals(new Rectangle2D.Double(0, 0, 10, 10), ShapeBounds.getBounds(p, null), DELTA);
+  }
+
+  @Test
+  public void testSegmentAfterClose()
+  {
+    GeneralPath p = new GeneralPath();
+    p.moveTo(0, 0);
+    p.lineTo(10, 0);
+    p.lineTo(10, 10);
+    p.closePath();
+    //continues from (0,0), not from (10,10)
+    p.quadTo(-10, 5, 0, 10);
+    Rectangle2D bb = ShapeBounds.getBounds(p, null);
+    assertRectEquals(new Rectangle2D.Double(-5, 0, 15, 10), bb, DELTA);
+    assertRectEquals(flattenedBounds(p, null), bb, 1e-4);
+  }
+
+  @Test
+  public void testTransformedRectangle()
+  {
+    Rectangle2D r = new Rectangle2D.Double(1, 2, 3, 4);
+    assertRectEquals(r, ShapeBounds.getBounds(r, null), DELTA);
+    AffineTransform at = AffineTransform.getRotateInstance(Math.PI / 2);
+    assertRectEquals(new Rectangle2D.Double(-6, 1, 4, 3), ShapeBounds.getBounds(r, at), DELTA);
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    ShapeBounds b = new ShapeBounds();
+    assertTrue(b.isEmpty());
+    assertRectEquals(new Rectangle2D.Double(), b.getBounds(), DELTA);
+  }
+}
@@ -0,0 +1,128 @@
+package com.t_oster.visicut.model.graphicelements;
+
+import com.t_oster.visicut.misc.ExtensionFilter;
+import com.t_oster.visicut.misc.FileUtils;
+import com.t_oster.visicut.model.PlfPart;
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import javax.swing.filechooser.FileFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Thomas Oster <thomas.oster@rwth-aachen.de>
+ */
+public class ImportCacheTest
+{
+
+  /**
+   * Imports every file as one rectangle and counts the imports
+   */
+  public static class CountingImporter implements Importer
+  {
+    static int imports = 0;
+
+    public FileFilter getFileFilter()
+    {
+      return new ExtensionFilter(".test", "Test files");
+    }
+
+    public PlfPart importFile(File inputFile, List<String> warnings) throws ImportException
+    {
+      imports++;
+      warnings.add("imported");
+      Map<String, List<Object>> attributes = new LinkedHashMap<String, List<Object>>();
+      attributes.put("Type", Arrays.<Object>asList("Rectangle"));
+      Rectangle2D r = new Rectangle2D.Double(0, 0, 10, 20);
+      GraphicSet set = new GraphicSet();
+      set.add(new CachedShape(r, new AffineTransform(), r, attributes, null, Color.RED, 1));
+      PlfPart result = new PlfPart();
+      result.setSourceFile(inputFile);
+      result.setGraphicObjects(set);
+      return result;
+    }
+  }
+
+  private File tmp;
+  private GraphicFileImporter importer;
+
+  @Before
+  public void setUp() throws IOException
+  {
+    tmp = FileUtils.createTempDirectory("importcachetest");
+    importer = new GraphicFileImporter(new String[]{CountingImporter.class.getName()});
+    importer.setImportCache(new ImportCache(new File(tmp, "cache")));
+    CountingImporter.imports = 0;
+  }
+
+  @After
+  public void tearDown()
+  {
+    FileUtils.deleteRecursively(tmp);
+  }
+
+  /**
+   * Writes the content to the given file in a new directory, like
+   * VisicutModel does when extracting the sources of a PLF file
+   */
+  private File extract(String name, String content, long lastModified) throws IOException
+  {
+    File f = new File(FileUtils.createTempDirectory("plf", tmp), name);
+    FileOutputStream out = new FileOutputStream(f);
+    out.write(content.getBytes("UTF-8"));
+    out.close();
+    f.setLastModified(lastModified);
+    return f;
+  }
+
+  @Test
+  public void testReopenedPlfHitsCache() throws Exception
+  {
+    File first = extract("1_part.test", "content", 1000000000000L);
+    File second = extract("1_part.test", "content", 1100000000000L);
+    List<String> warnings = new LinkedList<String>();
+    importer.importFile(first, warnings);
+    assertEquals(1, CountingImporter.imports);
+    warnings.clear();
+    PlfPart p = importer.importFile(second, warnings);
+    assertEquals("the same content must be served from the cache", 1, CountingImporter.imports);
+    assertEquals(second, p.getSourceFile());
+    assertEquals(Arrays.asList("imported"), warnings);
+    assertEquals(1, p.getGraphicObjects().size());
+    assertEquals(new Rectangle2D.Double(0, 0, 10, 20), p.getGraphicObjects().get(0).getBoundingBox());
+  }
+
+  @Test
+  public void testChangedContentIsImportedAgain() throws Exception
+  {
+    File first = extract("1_part.test", "content", 1000000000000L);
+    File second = extract("1_part.test", "changed", 1000000000000L);
+    importer.importFile(first, new LinkedList<String>());
+    importer.importFile(second, new LinkedList<String>());
+    assertEquals(2, CountingImporter.imports);
+  }
+
+  @Test
+  public void testKeyIgnoresPathAndTime() throws Exception
+  {
+    ImportCache cache = importer.getImportCache();
+    Importer i = new CountingImporter();
+    File first = extract("a.test", "content", 1000000000000L);
+    File second = extract("b.test", "content", 1100000000000L);
+    File other = extract("a.test", "other", 1000000000000L);
+    assertEquals(cache.getKey(first, i), cache.getKey(second, i));
+    assertFalse(cache.getKey(first, i).equals(cache.getKey(other, i)));
+  }
+}
@@ -0,0 +1,219 @@
+package com.tur0kk.thingiverse;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the client against a local server
+ * @author Patrick Schmidt
+ */
+public class ThingiverseClientTest
+{
+  private static final String LAST_MODIFIED = "Tue, 15 Nov 1994 12:45:26 GMT";
+  private static final long LAST_MODIFIED_MILLIS = 784903526000L;
+
+  private HttpServer server;
+  private String baseUrl;
+  private File folder;
+  private ThingiverseClient client;
+  /**
+   * Request headers and response codes of all requests
+   */
+  private final List<String> ifNoneMatch = Collections.synchronizedList(new LinkedList<String>());
+  private final List<String> ifModifiedSince = Collections.synchronizedList(new LinkedList<String>());
+  private final List<Integer> codes = Collections.synchronizedList(new LinkedList<Integer>());
+
+  @Before
+  public void setUp() throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/things/", new HttpHandler()
+    {
+      public void handle(HttpExchange ex) throws IOException
+      {
+        String etag = ex.getRequestHeaders().getFirst("If-None-Match");
+        ifNoneMatch.add(etag);
+        ex.getResponseHeaders().set("ETag", "\"v1\"");
+        if ("\"v1\"".equals(etag))
+        {
+          reply(ex, 304, null);
+        }
+        else
+        {
+          reply(ex, 200, "{\"id\":1}".getBytes("UTF-8"));
+        }
+      }
+    });
+    server.createContext("/users/", new HttpHandler()
+    {
+      public void handle(HttpExchange ex) throws IOException
+      {
+        String since = ex.getRequestHeaders().getFirst("If-Modified-Since");
+        ifModifiedSince.add(since);
+        ex.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+        if (LAST_MODIFIED.equals(since))
+        {
+          reply(ex, 304, null);
+        }
+        else
+        {
+          reply(ex, 200, "{\"name\":\"me\"}".getBytes("UTF-8"));
+        }
+      }
+    });
+    server.createContext("/files/thing.svg", new HttpHandler()
+    {
+      public void handle(HttpExchange ex) throws IOException
+      {
+        String since = ex.getRequestHeaders().getFirst("If-Modified-Since");
+        ifModifiedSince.add(since);
+        ex.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+        reply(ex, since != null ? 304 : 200, since != null ? null : "<svg/>".getBytes("UTF-8"));
+      }
+    });
+    server.createContext("/files/missing.svg", new HttpHandler()
+    {
+      public void handle(HttpExchange ex) throws IOException
+      {
+        reply(ex, 404, "not found".getBytes("UTF-8"));
+      }
+    });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    client = new ThingiverseClient("id", "secret", "http://localhost/callback");
+    client.setApiUrl(baseUrl);
+    client.loginWithAccesToken("token");
+    folder = File.createTempFile("thingiverse", "test");
+    folder.delete();
+    folder.mkdir();
+  }
+
+  @After
+  public void tearDown()
+  {
+    server.stop(0);
+    File[] files = folder.listFiles();
+    for (File f : files != null ? files : new File[0])
+    {
+      f.delete();
+    }
+    folder.delete();
+  }
+
+  private void reply(HttpExchange ex, int code, byte[] body) throws IOException
+  {
+    codes.add(code);
+    ex.sendResponseHeaders(code, body == null ? -1 : body.length);
+    if (body != null)
+    {
+      OutputStream out = ex.getResponseBody();
+      out.write(body);
+      out.close();
+    }
+    ex.close();
+  }
+
+  private static String read(File f) throws IOException
+  {
+    InputStream in = new FileInputStream(f);
+    try
+    {
+      byte[] buf = new byte[(int) f.length()];
+      int pos = 0;
+      while (pos < buf.length)
+      {
+        int n = in.read(buf, pos, buf.length - pos);
+        if (n < 0)
+        {
+          break;
+        }
+        pos += n;
+      }
+      return new String(buf, 0, pos, "UTF-8");
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testEtagRevalidation()
+  {
+    assertEquals("{\"id\":1}", client.thing("1"));
+    assertEquals("{\"id\":1}", client.thing("1"));
+    assertEquals(2, ifNoneMatch.size());
+    assertNull(ifNoneMatch.get(0));
+    assertEquals("\"v1\"", ifNoneMatch.get(1));
+    assertEquals(Integer.valueOf(304), codes.get(1));
+  }
+
+  @Test
+  public void testLastModifiedRevalidation()
+  {
+    assertEquals("{\"name\":\"me\"}", client.user("me"));
+    assertEquals("{\"name\":\"me\"}", client.user("me"));
+    assertEquals(2, ifModifiedSince.size());
+    assertNull(ifModifiedSince.get(0));
+    assertEquals(LAST_MODIFIED, ifModifiedSince.get(1));
+    assertEquals(Integer.valueOf(304), codes.get(1));
+  }
+
+  @Test
+  public void testResponsesAreCachedPerToken()
+  {
+    client.thing("1");
+    client.loginWithAccesToken("other");
+    assertEquals("{\"id\":1}", client.thing("1"));
+    assertNull(ifNoneMatch.get(1));
+  }
+
+  @Test
+  public void testDownload() throws IOException
+  {
+    File out = new File(folder, "thing.svg");
+    assertTrue(client.downloadBinaryFile(baseUrl + "/files/thing.svg", out, true, 0));
+    assertEquals("<svg/>", read(out));
+    assertEquals(LAST_MODIFIED_MILLIS, out.lastModified());
+    //the temporary file is renamed, not left behind
+    assertEquals(1, folder.listFiles().length);
+  }
+
+  @Test
+  public void testDownloadNotModified() throws IOException
+  {
+    File out = new File(folder, "thing.svg");
+    client.downloadBinaryFile(baseUrl + "/files/thing.svg", out, true, 0);
+    assertTrue(client.downloadBinaryFile(baseUrl + "/files/thing.svg", out, true, out.lastModified()));
+    assertEquals(LAST_MODIFIED, ifModifiedSince.get(1));
+    assertEquals(Integer.valueOf(304), codes.get(1));
+    assertEquals("<svg/>", read(out));
+  }
+
+  @Test
+  public void testFailedDownloadKeepsFile() throws IOException
+  {
+    File out = new File(folder, "missing.svg");
+    FileOutputStream o = new FileOutputStream(out);
+    o.write("old".getBytes("UTF-8"));
+    o.close();
+    assertFalse(client.downloadBinaryFile(baseUrl + "/files/missing.svg", out, true, 0));
+    assertEquals("old", read(out));
+    assertEquals(1, folder.listFiles().length);
+  }
+}